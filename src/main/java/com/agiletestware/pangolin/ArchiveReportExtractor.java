@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+
+/**
+ * Reads report files from zip and tar (optionally gzipped) archives. An
+ * archive is treated as a directory: entry <code>junit/TEST-a.xml</code> of
+ * <code>build/results.tar.gz</code> matches
+ * <code>build/results.tar.gz/junit/*.xml</code> pattern. Entry names are
+ * matched before entries are read: only matching entries of a zip archive are
+ * decompressed (names are read from its central directory), tar archive is
+ * read as a stream and data of not matching entries is skipped. Only matching
+ * entries are written to the target directory.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class ArchiveReportExtractor {
+
+	private static final String[] TAR_GZ_EXTENSIONS = { ".tar.gz", ".tgz" };
+	private static final String TAR_EXTENSION = ".tar";
+	private static final String ZIP_EXTENSION = ".zip";
+
+	private ArchiveReportExtractor() {
+	}
+
+	/**
+	 * Checks whether the file is a supported archive.
+	 *
+	 * @param fileName
+	 *            name of the file
+	 * @return <code>true</code> for zip, tar, tar.gz and tgz files.
+	 */
+	public static boolean isArchive(final String fileName) {
+		final String name = fileName.toLowerCase(Locale.ENGLISH);
+		return name.endsWith(ZIP_EXTENSION) || name.endsWith(TAR_EXTENSION) || isTarGz(name);
+	}
+
+	/**
+	 * Writes entries of the archive which match patterns of the scanner into
+	 * the target directory.
+	 *
+	 * @param archive
+	 *            the archive
+	 * @param archivePath
+	 *            path of the archive relative to the base directory of the
+	 *            scanner
+	 * @param scanner
+	 *            the scanner
+	 * @param targetDir
+	 *            target directory, entries are written to
+	 *            <code>archivePath/entryName</code> under it.
+	 * @return extracted files sorted by entry path
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static List<File> extract(final File archive, final String archivePath, final ReportFileScanner scanner, final Path targetDir)
+			throws IOException {
+		final List<File> files = new ArrayList<>();
+		final String name = archive.getName().toLowerCase(Locale.ENGLISH);
+		if (name.endsWith(ZIP_EXTENSION)) {
+			try (final ZipFile zip = new ZipFile(archive)) {
+				final Enumeration<? extends ZipEntry> entries = zip.entries();
+				while (entries.hasMoreElements()) {
+					final ZipEntry entry = entries.nextElement();
+					final String relativePath = entry.isDirectory() ? null : getMatchingPath(entry.getName(), archivePath, scanner);
+					if (relativePath != null) {
+						try (final InputStream in = zip.getInputStream(entry)) {
+							files.add(extractEntry(in, relativePath, targetDir));
+						}
+					}
+				}
+			}
+		} else {
+			try (final InputStream in = new BufferedInputStream(new FileInputStream(archive))) {
+				final TarInputStream tar = new TarInputStream(isTarGz(name) ? new GZIPInputStream(in) : in);
+				for (TarEntry entry = tar.getNextEntry(); entry != null; entry = tar.getNextEntry()) {
+					final String relativePath = entry.isFile() ? getMatchingPath(entry.getName(), archivePath, scanner) : null;
+					if (relativePath != null) {
+						files.add(extractEntry(tar, relativePath, targetDir));
+					}
+				}
+			}
+		}
+		files.sort(null);
+		return files;
+	}
+
+	/**
+	 * @return path of the entry relative to the base directory of the
+	 *         scanner, or <code>null</code> if the entry does not match.
+	 */
+	private static String getMatchingPath(final String entryName, final String archivePath, final ReportFileScanner scanner) {
+		final String relativeEntryPath = normalize(entryName);
+		if (relativeEntryPath == null) {
+			return null;
+		}
+		final String relativePath = archivePath + File.separator + relativeEntryPath;
+		return scanner.matches(relativePath) ? relativePath : null;
+	}
+
+	private static File extractEntry(final InputStream in, final String relativePath, final Path targetDir) throws IOException {
+		final Path target = targetDir.resolve(relativePath);
+		Files.createDirectories(target.getParent());
+		Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+		return target.toFile();
+	}
+
+	/**
+	 * @return entry name with platform separators, or <code>null</code> if it
+	 *         points outside of the archive.
+	 */
+	private static String normalize(final String entryName) {
+		final List<String> segments = new ArrayList<>();
+		for (final String segment : entryName.split("[/\\\\]")) {
+			if (segment.isEmpty() || ".".equals(segment)) {
+				continue;
+			}
+			if ("..".equals(segment)) {
+				return null;
+			}
+			segments.add(segment);
+		}
+		return segments.isEmpty() ? null : String.join(File.separator, segments);
+	}
+
+	private static boolean isTarGz(final String name) {
+		for (final String extension : TAR_GZ_EXTENSIONS) {
+			if (name.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
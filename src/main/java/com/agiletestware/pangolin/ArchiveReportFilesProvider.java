@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.agiletestware.pangolin.client.BuildLogger;
+import com.agiletestware.pangolin.client.upload.ReportFilesProvider;
+
+import hudson.Util;
+
+/**
+ * Decorator for {@link ReportFilesProvider} which adds report files read from
+ * archives in the workspace by {@link ArchiveReportExtractor}. Matching
+ * entries are stored in a temporary directory which must be removed by
+ * calling {@link #cleanUp()} once upload is finished.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class ArchiveReportFilesProvider implements ReportFilesProvider {
+
+	private final ReportFilesProvider delegate;
+	private final File workspace;
+	private final BuildLogger logger;
+	private Path tempDir;
+
+	/**
+	 * Instantiates a new archive report files provider.
+	 *
+	 * @param delegate
+	 *            provider of report files outside of archives
+	 * @param workspace
+	 *            workspace directory, patterns are relative to it
+	 * @param logger
+	 *            the logger
+	 */
+	public ArchiveReportFilesProvider(final ReportFilesProvider delegate, final File workspace, final BuildLogger logger) {
+		this.delegate = delegate;
+		this.workspace = workspace;
+		this.logger = logger;
+	}
+
+	@Override
+	public List<File> getReportFiles(final String pattern) {
+		final List<File> files = new ArrayList<>(delegate.getReportFiles(pattern));
+		final ReportFileScanner scanner = new ReportFileScanner(pattern);
+		final List<String> archives;
+		try {
+			archives = scanner.findArchives(workspace);
+		} catch (final IOException ex) {
+			logger.error(Messages.couldNotReadArchive(workspace.getPath(), ex.getMessage()));
+			return files;
+		}
+		int entries = 0;
+		for (final String archive : archives) {
+			try {
+				final List<File> extracted = ArchiveReportExtractor.extract(new File(workspace, archive), archive, scanner, getTempDir());
+				files.addAll(extracted);
+				entries += extracted.size();
+			} catch (final IOException ex) {
+				logger.error(Messages.couldNotReadArchive(archive, ex.getMessage()));
+			}
+		}
+		if (!archives.isEmpty()) {
+			logger.info(Messages.archiveReportsLog(entries, pattern, archives.size()));
+		}
+		return files;
+	}
+
+	/**
+	 * Gets path of a report file relative to the workspace. Path of a file
+	 * read from an archive is <code>archivePath/entryPath</code>, so entries
+	 * with the same name in different archives or directories do not collide.
+	 *
+	 * @param file
+	 *            file returned by {@link #getReportFiles(String)}
+	 * @return the relative path with '/' as separator.
+	 */
+	public String getRelativePath(final File file) {
+		final Path filePath = file.getAbsoluteFile().toPath();
+		final Path basePath = tempDir != null && filePath.startsWith(tempDir) ? tempDir : workspace.getAbsoluteFile().toPath();
+		return basePath.relativize(filePath).toString().replace(File.separatorChar, '/');
+	}
+
+	private Path getTempDir() throws IOException {
+		if (tempDir == null) {
+			tempDir = Files.createTempDirectory("pangolin-archives").toAbsolutePath();
+		}
+		return tempDir;
+	}
+
+	/**
+	 * Removes temporary directory with report files read from archives.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void cleanUp() throws IOException {
+		if (tempDir != null) {
+			Util.deleteRecursive(tempDir.toFile());
+			tempDir = null;
+		}
+	}
+}
@@ -15,16 +15,12 @@
  */
 package com.agiletestware.pangolin;
 
-import java.util.concurrent.TimeUnit;
-
 import org.apache.commons.lang.StringUtils;
 
-import com.agiletestware.pangolin.client.DefaultRetrofitFactory;
 import com.agiletestware.pangolin.client.PangolinClientFactory;
 import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
 import com.agiletestware.pangolin.client.upload.BulkUpdateParametersImpl;
 import com.agiletestware.pangolin.encryption.CustomSecret;
-import com.agiletestware.pangolin.retrofit.ConnectionConfig;
 
 /**
  * Creates {@link BulkUpdateParameters} instances.
@@ -61,9 +57,13 @@ public final class BulkUpdateParametersFactory {
 		params.setPangolinUrl(globalConfig.getPangolinUrl());
 		String testRailPassword = publisher.getTestRailPassword();
 		if (customSecret != null && StringUtils.isNotEmpty(testRailPassword)) {
-			testRailPassword = pangolinClient.create(DefaultRetrofitFactory.THE_INSTANCE)
-					.getEncryptedPassword(customSecret.getPlainText(testRailPassword), new ConnectionConfig(globalConfig.getPangolinUrl(),
-							TimeUnit.MILLISECONDS.convert(globalConfig.getUploadTimeOut(), TimeUnit.MINUTES)));
+			final PangolinEncryptedPassword savedPassword = publisher.getPangolinEncryptedPassword();
+			final String encryptedPassword = savedPassword != null ? savedPassword.getEncryptedPassword(globalConfig.getPangolinUrl(), customSecret)
+					: null;
+			// password is encrypted at build time if it was not encrypted on save or Pangolin URL has changed
+			testRailPassword = encryptedPassword != null ? encryptedPassword
+					: PangolinEncryptedPassword.encrypt(customSecret.getPlainText(testRailPassword), globalConfig,
+							PangolinClientRegistry.THE_INSTANCE.get(pangolinClient));
 		}
 		params.setTestRailEncryptedPassword(
 				StringUtils.isNotEmpty(testRailPassword) ? testRailPassword : globalConfig.getTestRailPasswordPlain());
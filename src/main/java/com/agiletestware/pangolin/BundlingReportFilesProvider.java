@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.agiletestware.pangolin.client.BuildLogger;
+import com.agiletestware.pangolin.client.upload.ReportFilesProvider;
+
+import hudson.Util;
+
+/**
+ * Decorator for {@link ReportFilesProvider} which returns bundles of report
+ * files created by {@link ReportBundler} instead of the original files.
+ * Bundles are stored in a temporary directory which must be removed by
+ * calling {@link #cleanUp()} once upload is finished.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class BundlingReportFilesProvider implements ReportFilesProvider {
+
+	private final ReportFilesProvider delegate;
+	private final ReportBundler bundler;
+	private final BuildLogger logger;
+	private final Map<File, List<File>> sources = new HashMap<>();
+	private Path tempDir;
+
+	/**
+	 * Instantiates a new bundling report files provider.
+	 *
+	 * @param delegate
+	 *            provider of original report files
+	 * @param bundler
+	 *            the bundler
+	 * @param logger
+	 *            the logger
+	 */
+	public BundlingReportFilesProvider(final ReportFilesProvider delegate, final ReportBundler bundler, final BuildLogger logger) {
+		this.delegate = delegate;
+		this.bundler = bundler;
+		this.logger = logger;
+	}
+
+	@Override
+	public List<File> getReportFiles(final String pattern) {
+		final List<File> files = delegate.getReportFiles(pattern);
+		final List<File> bundledFiles = new ArrayList<>();
+		for (final List<File> bundle : bundler.split(files)) {
+			if (bundle.size() == 1) {
+				bundledFiles.addAll(bundle);
+				continue;
+			}
+			try {
+				final File target = getTempDir().resolve("bundle-" + (bundledFiles.size() + 1) + ".xml").toFile();
+				bundler.merge(bundle, target);
+				sources.put(target, bundle);
+				bundledFiles.add(target);
+			} catch (final Exception ex) {
+				logger.error(Messages.couldNotBundleReports(bundle.size(), ex.getMessage()));
+				bundledFiles.addAll(bundle);
+			}
+		}
+		if (bundledFiles.size() < files.size()) {
+			logger.info(Messages.bundledReportsLog(files.size(), bundledFiles.size()));
+		}
+		return bundledFiles;
+	}
+
+	/**
+	 * Gets report files merged into a bundle.
+	 *
+	 * @param file
+	 *            file returned by {@link #getReportFiles(String)}
+	 * @return files of the bundle or the given file if it is not a bundle.
+	 */
+	public List<File> getSources(final File file) {
+		final List<File> bundle = sources.get(file);
+		return bundle != null ? bundle : Collections.singletonList(file);
+	}
+
+	private Path getTempDir() throws IOException {
+		if (tempDir == null) {
+			tempDir = Files.createTempDirectory("pangolin-bundles");
+		}
+		return tempDir;
+	}
+
+	/**
+	 * Removes temporary directory with bundles.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void cleanUp() throws IOException {
+		if (tempDir != null) {
+			Util.deleteRecursive(tempDir.toFile());
+			tempDir = null;
+		}
+	}
+}
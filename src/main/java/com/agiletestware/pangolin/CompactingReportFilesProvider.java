@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.agiletestware.pangolin.client.BuildLogger;
+import com.agiletestware.pangolin.client.upload.ReportFilesProvider;
+
+import hudson.Util;
+
+/**
+ * Decorator for {@link ReportFilesProvider} which returns compacted copies of
+ * report files created by {@link ReportCompactor}. Copies are stored in a
+ * temporary directory which must be removed by calling {@link #cleanUp()}
+ * once upload is finished.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class CompactingReportFilesProvider implements ReportFilesProvider {
+
+	private final ReportFilesProvider delegate;
+	private final Function<File, String> relativePathResolver;
+	private final ReportCompactor compactor;
+	private final BuildLogger logger;
+	private final Map<File, File> sources = new HashMap<>();
+	private Path tempDir;
+
+	/**
+	 * Instantiates a new compacting report files provider.
+	 *
+	 * @param delegate
+	 *            provider of original report files
+	 * @param relativePathResolver
+	 *            resolves unique path of a report file relative to the
+	 *            workspace (including files read from archives), the path is
+	 *            kept in the temporary directory
+	 * @param compactor
+	 *            the compactor
+	 * @param logger
+	 *            the logger
+	 */
+	public CompactingReportFilesProvider(final ReportFilesProvider delegate, final Function<File, String> relativePathResolver,
+			final ReportCompactor compactor, final BuildLogger logger) {
+		this.delegate = delegate;
+		this.relativePathResolver = relativePathResolver;
+		this.compactor = compactor;
+		this.logger = logger;
+	}
+
+	@Override
+	public List<File> getReportFiles(final String pattern) {
+		final List<File> files = delegate.getReportFiles(pattern);
+		final List<File> compactedFiles = new ArrayList<>(files.size());
+		long originalBytes = 0;
+		long compactedBytes = 0;
+		for (final File file : files) {
+			final File compacted = compact(file);
+			sources.put(compacted, file);
+			compactedFiles.add(compacted);
+			originalBytes += file.length();
+			compactedBytes += compacted.length();
+		}
+		if (!files.isEmpty()) {
+			logger.info(Messages.compactedReportsLog(files.size(), originalBytes, compactedBytes));
+		}
+		return compactedFiles;
+	}
+
+	/**
+	 * Gets original report file of a compacted copy.
+	 *
+	 * @param file
+	 *            file returned by {@link #getReportFiles(String)}
+	 * @return the original file.
+	 */
+	public File getSource(final File file) {
+		final File source = sources.get(file);
+		return source != null ? source : file;
+	}
+
+	private File compact(final File file) {
+		try {
+			final Path tempPath = getTempDir();
+			final File target = tempPath.resolve(relativePathResolver.apply(file)).normalize().toFile();
+			if (!target.toPath().startsWith(tempPath)) {
+				throw new IOException("Report is outside of the workspace");
+			}
+			Files.createDirectories(target.getParentFile().toPath());
+			compactor.compact(file, target);
+			return target;
+		} catch (final Exception ex) {
+			logger.error(Messages.couldNotCompactReport(file.getPath(), ex.getMessage()));
+			return file;
+		}
+	}
+
+	private Path getTempDir() throws IOException {
+		if (tempDir == null) {
+			tempDir = Files.createTempDirectory("pangolin-compacted").toAbsolutePath().normalize();
+		}
+		return tempDir;
+	}
+
+	/**
+	 * Removes temporary directory with compacted reports.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void cleanUp() throws IOException {
+		if (tempDir != null) {
+			Util.deleteRecursive(tempDir.toFile());
+			tempDir = null;
+		}
+	}
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.agiletestware.pangolin.client.BuildLogger;
 import com.agiletestware.pangolin.client.upload.ReportFilesProvider;
 
 import hudson.FilePath;
@@ -36,15 +37,49 @@ public class DefaultReportFilesProvider implements ReportFilesProvider {
 	private static final Logger LOGGER = Logger.getLogger(DefaultReportFilesProvider.class.getName());
 
 	private final FilePath workspace;
+	private final boolean parallelScan;
+	private final BuildLogger buildLogger;
 
 	public DefaultReportFilesProvider(final FilePath workspace) {
+		this(workspace, false, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param workspace
+	 *            the workspace
+	 * @param parallelScan
+	 *            if <code>true</code>, directories of local workspace are
+	 *            scanned in parallel.
+	 * @param buildLogger
+	 *            logger for scan statistics, can be <code>null</code>.
+	 */
+	public DefaultReportFilesProvider(final FilePath workspace, final boolean parallelScan, final BuildLogger buildLogger) {
 		this.workspace = workspace;
+		this.parallelScan = parallelScan;
+		this.buildLogger = buildLogger;
 	}
 
+	/**
+	 * Finds report files. If the workspace is on the current machine (e.g.
+	 * the provider runs on the agent), {@link ReportFileScanner} is used,
+	 * otherwise {@link FilePath#list(String)}.
+	 */
 	@Override
 	public List<File> getReportFiles(final String pattern) {
 		final List<File> files = new ArrayList<>();
 		try {
+			if (!workspace.isRemote()) {
+				final ReportFileScanner scanner = new ReportFileScanner(pattern);
+				final long start = System.currentTimeMillis();
+				final List<File> reportFiles = scanner.scan(new File(workspace.getRemote()), parallelScan);
+				if (buildLogger != null) {
+					buildLogger.info(Messages.reportScanLog(reportFiles.size(), pattern, System.currentTimeMillis() - start,
+							scanner.getDirectoriesVisited(), parallelScan ? Messages.reportScanParallel() : Messages.reportScanSequential()));
+				}
+				return reportFiles;
+			}
 			final FilePath[] filePaths = workspace.list(pattern);
 			if (filePaths.length > 0) {
 				for (final FilePath filePath : filePaths) {
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import hudson.Util;
+
+/**
+ * Controller-side cache of TestRail passwords encrypted by Pangolin server.
+ * Entries are keyed by Pangolin URL and SHA-256 hash of the plain password,
+ * so plain passwords are not kept in memory by the cache. Entries expire
+ * after a TTL and are removed when global configuration is saved.
+ * Concurrent misses for the same key are loaded once, other callers wait
+ * for the result. Failed loads are not cached.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class EncryptedPasswordCache {
+
+	/** Default time to live of cached passwords. */
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+	/** The instance. */
+	public static final EncryptedPasswordCache THE_INSTANCE = new EncryptedPasswordCache(DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+	private final ConcurrentMap<String, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+	private final long ttlMillis;
+	private final LongSupplier clock;
+
+	EncryptedPasswordCache(final long ttlMillis, final LongSupplier clock) {
+		this.ttlMillis = ttlMillis;
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns encrypted password from the cache or loads it.
+	 *
+	 * @param pangolinUrl
+	 *            URL of Pangolin server
+	 * @param plainPassword
+	 *            the plain password
+	 * @param loader
+	 *            loads encrypted password from Pangolin server
+	 * @return the encrypted password
+	 * @throws Exception
+	 *             if the password could not be loaded.
+	 */
+	public String get(final String pangolinUrl, final String plainPassword, final Callable<String> loader) throws Exception {
+		final String key = createKey(pangolinUrl, plainPassword);
+		while (true) {
+			final CompletableFuture<Entry> cached = entries.get(key);
+			if (cached != null) {
+				final Entry entry = await(cached);
+				if (entry != null && entry.expiresAt > clock.getAsLong()) {
+					return entry.encryptedPassword;
+				}
+				// expired or failed, the first caller which removes it loads a new one
+				entries.remove(key, cached);
+				continue;
+			}
+			final CompletableFuture<Entry> loading = new CompletableFuture<>();
+			if (entries.putIfAbsent(key, loading) != null) {
+				continue;
+			}
+			try {
+				final String encryptedPassword = loader.call();
+				loading.complete(new Entry(encryptedPassword, clock.getAsLong() + ttlMillis));
+				return encryptedPassword;
+			} catch (final Throwable ex) {
+				// waiters must not hang on errors either, they load the password again
+				entries.remove(key, loading);
+				loading.completeExceptionally(ex);
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached passwords, e.g. when Pangolin URL or credentials are
+	 * changed in global configuration.
+	 */
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private static Entry await(final CompletableFuture<Entry> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (final ExecutionException ex) {
+			return null;
+		}
+	}
+
+	private static String createKey(final String pangolinUrl, final String plainPassword) {
+		try {
+			final byte[] hash = MessageDigest.getInstance("SHA-256").digest(plainPassword.getBytes(StandardCharsets.UTF_8));
+			return pangolinUrl + '\n' + Util.toHexString(hash);
+		} catch (final NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static final class Entry {
+
+		private final String encryptedPassword;
+		private final long expiresAt;
+
+		Entry(final String encryptedPassword, final long expiresAt) {
+			this.encryptedPassword = encryptedPassword;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -20,6 +20,8 @@ import static com.agiletestware.pangolin.client.PangolinConstants.TEST_RAIL_URL_
 import static hudson.Util.fixEmptyAndTrim;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,7 +36,6 @@ import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import com.agiletestware.pangolin.client.DefaultPangolinClientFactory;
-import com.agiletestware.pangolin.client.DefaultRetrofitFactory;
 import com.agiletestware.pangolin.client.PangolinClientFactory;
 import com.agiletestware.pangolin.retrofit.ConnectionConfig;
 import com.agiletestware.pangolin.validator.CustomUrlAvailableValidator;
@@ -64,7 +65,22 @@ import net.sf.json.JSONObject;
 @Symbol("pangolinGlobalConfig")
 public class GlobalConfig extends GlobalConfiguration implements com.agiletestware.pangolin.GlobalConfiguration {
 
+	/** Default max size of the upload spool in megabytes. */
+	public static final int DEFAULT_SPOOL_MAX_SIZE = 1024;
+	/** Default number of retries of a failed upload. */
+	public static final int DEFAULT_UPLOAD_RETRIES = 2;
+	/** Default delay before the first retry in seconds. */
+	public static final int DEFAULT_RETRY_DELAY = 5;
+	/** Default number of consecutive failures which opens circuit breaker. */
+	public static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+	/** Default max number of uploads running at the same time, 0 means no limit. */
+	public static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 0;
+	/** Default max number of asynchronous uploads running at the same time. */
+	public static final int DEFAULT_MAX_ASYNC_UPLOADS = 4;
 	private static final Logger LOGGER = Logger.getLogger(GlobalConfig.class.getName());
+	/** Settings which must not be negative. */
+	static final List<String> NON_NEGATIVE_SETTINGS = Arrays.asList("maxConcurrentUploads", "maxAsyncUploads", "coalescingWindow", "uploadRetries",
+			"retryDelay", "circuitBreakerThreshold", "reportInterval");
 	private static final Validator<String, Void> TEST_RAIL_USER_VALIDATOR = new StringNotEmptyValidator<>(Messages.testRailUserIsRequired());
 	private static final Validator<String, Void> TEST_RAIL_PASSWORD_VALIDATOR = new StringNotEmptyValidator<>(Messages.testRailPasswordIsRequired());
 	private static final RegExpMatchValidator PANGOLIN_URL_REGEXP_VALIDATOR = new RegExpMatchValidator(
@@ -76,6 +92,16 @@ public class GlobalConfig extends GlobalConfiguration implements com.agiletestwa
 	private String testRailUserName;
 	private Secret testRailPassword;
 	private int uploadTimeOut;
+	private boolean spoolFailedUploads;
+	private int spoolMaxSize = DEFAULT_SPOOL_MAX_SIZE;
+	private int uploadRetries = DEFAULT_UPLOAD_RETRIES;
+	private int retryDelay = DEFAULT_RETRY_DELAY;
+	private int circuitBreakerThreshold = DEFAULT_CIRCUIT_BREAKER_THRESHOLD;
+	private int maxConcurrentUploads = DEFAULT_MAX_CONCURRENT_UPLOADS;
+	private int maxAsyncUploads = DEFAULT_MAX_ASYNC_UPLOADS;
+	private int coalescingWindow;
+	private boolean failFastWhenUnreachable;
+	private int reportInterval;
 	private transient PangolinClientFactory clientFactory;
 	private transient CustomUrlAvailableValidator pangolinUrlValidator;
 	private transient CustomUrlAvailableValidator testRailUrlValidator;
@@ -93,6 +119,12 @@ public class GlobalConfig extends GlobalConfiguration implements com.agiletestwa
 
 	@Override
 	public boolean configure(final StaplerRequest req, final JSONObject json) throws FormException {
+		for (final String setting : NON_NEGATIVE_SETTINGS) {
+			final int value = json.optInt(setting, 0);
+			if (value < 0) {
+				throw new Failure(Messages.negativeSettingValue(setting, value));
+			}
+		}
 		this.oldTestRailPassword = this.testRailPassword;
 		super.configure(req, json);
 		try {
@@ -104,6 +136,8 @@ public class GlobalConfig extends GlobalConfiguration implements com.agiletestwa
 			throw new Failure(errorMessage);
 		}
 		save();
+		// Pangolin URL could be changed
+		EncryptedPasswordCache.THE_INSTANCE.invalidateAll();
 		return true;
 	}
 
@@ -174,6 +208,34 @@ public class GlobalConfig extends GlobalConfiguration implements com.agiletestwa
 		return TEST_RAIL_PASSWORD_VALIDATOR.validate(fixEmptyAndTrim(testRailPassword), null);
 	}
 
+	public FormValidation doCheckMaxConcurrentUploads(@QueryParameter final String maxConcurrentUploads) {
+		return FormValidation.validateNonNegativeInteger(maxConcurrentUploads);
+	}
+
+	public FormValidation doCheckMaxAsyncUploads(@QueryParameter final String maxAsyncUploads) {
+		return FormValidation.validateNonNegativeInteger(maxAsyncUploads);
+	}
+
+	public FormValidation doCheckCoalescingWindow(@QueryParameter final String coalescingWindow) {
+		return FormValidation.validateNonNegativeInteger(coalescingWindow);
+	}
+
+	public FormValidation doCheckUploadRetries(@QueryParameter final String uploadRetries) {
+		return FormValidation.validateNonNegativeInteger(uploadRetries);
+	}
+
+	public FormValidation doCheckRetryDelay(@QueryParameter final String retryDelay) {
+		return FormValidation.validateNonNegativeInteger(retryDelay);
+	}
+
+	public FormValidation doCheckCircuitBreakerThreshold(@QueryParameter final String circuitBreakerThreshold) {
+		return FormValidation.validateNonNegativeInteger(circuitBreakerThreshold);
+	}
+
+	public FormValidation doCheckReportInterval(@QueryParameter final String reportInterval) {
+		return FormValidation.validateNonNegativeInteger(reportInterval);
+	}
+
 	@Override
 	public String getDisplayName() {
 		return Messages.pluginDisplayName();
@@ -223,6 +285,56 @@ public class GlobalConfig extends GlobalConfiguration implements com.agiletestwa
 		return uploadTimeOut;
 	}
 
+	@Override
+	public boolean isSpoolFailedUploads() {
+		return spoolFailedUploads;
+	}
+
+	@Override
+	public int getSpoolMaxSize() {
+		return spoolMaxSize > 0 ? spoolMaxSize : DEFAULT_SPOOL_MAX_SIZE;
+	}
+
+	@Override
+	public int getUploadRetries() {
+		return uploadRetries;
+	}
+
+	@Override
+	public int getRetryDelay() {
+		return retryDelay;
+	}
+
+	@Override
+	public int getCircuitBreakerThreshold() {
+		return circuitBreakerThreshold;
+	}
+
+	@Override
+	public int getMaxConcurrentUploads() {
+		return maxConcurrentUploads;
+	}
+
+	@Override
+	public int getMaxAsyncUploads() {
+		return maxAsyncUploads;
+	}
+
+	@Override
+	public int getCoalescingWindow() {
+		return coalescingWindow;
+	}
+
+	@Override
+	public boolean isFailFastWhenUnreachable() {
+		return failFastWhenUnreachable;
+	}
+
+	@Override
+	public int getReportInterval() {
+		return reportInterval;
+	}
+
 	/**
 	 * Gets the test rail user name.
 	 *
@@ -268,7 +380,7 @@ public class GlobalConfig extends GlobalConfiguration implements com.agiletestwa
 			return;
 		}
 		this.testRailPassword = Secret
-				.fromString(clientFactory.create(DefaultRetrofitFactory.THE_INSTANCE).getEncryptedPassword(newPassword.getPlainText(),
+				.fromString(PangolinClientRegistry.THE_INSTANCE.get(clientFactory).getEncryptedPassword(newPassword.getPlainText(),
 						new ConnectionConfig(pangolinUrl, TimeUnit.MILLISECONDS.convert(timeOutMinutes, TimeUnit.MINUTES))));
 	}
 
@@ -296,4 +408,54 @@ public class GlobalConfig extends GlobalConfiguration implements com.agiletestwa
 	public void setUploadTimeOut(final int uploadTimeOut) {
 		this.uploadTimeOut = uploadTimeOut;
 	}
+
+	@DataBoundSetter
+	public void setSpoolFailedUploads(final boolean spoolFailedUploads) {
+		this.spoolFailedUploads = spoolFailedUploads;
+	}
+
+	@DataBoundSetter
+	public void setSpoolMaxSize(final int spoolMaxSize) {
+		this.spoolMaxSize = spoolMaxSize;
+	}
+
+	@DataBoundSetter
+	public void setUploadRetries(final int uploadRetries) {
+		this.uploadRetries = uploadRetries;
+	}
+
+	@DataBoundSetter
+	public void setRetryDelay(final int retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+
+	@DataBoundSetter
+	public void setCircuitBreakerThreshold(final int circuitBreakerThreshold) {
+		this.circuitBreakerThreshold = circuitBreakerThreshold;
+	}
+
+	@DataBoundSetter
+	public void setMaxConcurrentUploads(final int maxConcurrentUploads) {
+		this.maxConcurrentUploads = maxConcurrentUploads;
+	}
+
+	@DataBoundSetter
+	public void setMaxAsyncUploads(final int maxAsyncUploads) {
+		this.maxAsyncUploads = maxAsyncUploads;
+	}
+
+	@DataBoundSetter
+	public void setCoalescingWindow(final int coalescingWindow) {
+		this.coalescingWindow = coalescingWindow;
+	}
+
+	@DataBoundSetter
+	public void setFailFastWhenUnreachable(final boolean failFastWhenUnreachable) {
+		this.failFastWhenUnreachable = failFastWhenUnreachable;
+	}
+
+	@DataBoundSetter
+	public void setReportInterval(final int reportInterval) {
+		this.reportInterval = reportInterval;
+	}
 }
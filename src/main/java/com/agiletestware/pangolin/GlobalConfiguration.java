@@ -33,4 +33,63 @@ public interface GlobalConfiguration {
 	 */
 	int getUploadTimeOut();
 
+	/**
+	 * @return <code>true</code> if failed uploads should be stored in the
+	 *         spool and sent again later.
+	 */
+	boolean isSpoolFailedUploads();
+
+	/**
+	 * @return max size of the spool in megabytes.
+	 */
+	int getSpoolMaxSize();
+
+	/**
+	 * @return number of retries of a failed upload.
+	 */
+	int getUploadRetries();
+
+	/**
+	 * @return delay before the first retry in seconds.
+	 */
+	int getRetryDelay();
+
+	/**
+	 * @return number of consecutive failed uploads which opens circuit
+	 *         breaker of Pangolin server, <code>0</code> disables the breaker.
+	 */
+	int getCircuitBreakerThreshold();
+
+	/**
+	 * @return max number of uploads running at the same time on Jenkins
+	 *         controller, <code>0</code> means no limit.
+	 */
+	int getMaxConcurrentUploads();
+
+	/**
+	 * @return max number of asynchronous uploads running at the same time in
+	 *         background on Jenkins controller.
+	 */
+	int getMaxAsyncUploads();
+
+	/**
+	 * @return window in seconds during which uploads into the same TestRail
+	 *         run are merged, <code>0</code> disables merging.
+	 */
+	int getCoalescingWindow();
+
+	/**
+	 * @return <code>true</code> if uploads should not be started while
+	 *         {@link PangolinHealthMonitor} reports Pangolin server as
+	 *         unreachable.
+	 */
+	boolean isFailFastWhenUnreachable();
+
+	/**
+	 * @return interval in minutes during which a TestRail report is run only
+	 *         once for the same project and template, <code>0</code> means
+	 *         that the report is run by each build.
+	 */
+	int getReportInterval();
+
 }
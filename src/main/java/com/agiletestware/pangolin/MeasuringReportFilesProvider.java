@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.util.List;
+
+import com.agiletestware.pangolin.client.upload.ReportFilesProvider;
+
+/**
+ * Decorator for {@link ReportFilesProvider} which counts report files and
+ * their total size, so upload metrics can be written into the build log.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class MeasuringReportFilesProvider implements ReportFilesProvider {
+
+	private final ReportFilesProvider delegate;
+	private int fileCount;
+	private long totalBytes;
+
+	public MeasuringReportFilesProvider(final ReportFilesProvider delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public List<File> getReportFiles(final String pattern) {
+		final List<File> files = delegate.getReportFiles(pattern);
+		for (final File file : files) {
+			fileCount++;
+			totalBytes += file.length();
+		}
+		return files;
+	}
+
+	/**
+	 * @return number of files returned by this provider.
+	 */
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * @return total size of files returned by this provider in bytes.
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import hudson.model.TaskListener;
+import hudson.remoting.Callable;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
+
+/**
+ * Uploads results of all configurations of a build with one remote call.
+ * Errors are handled for each configuration separately, so failure of one
+ * upload does not affect others.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinBatchRemoteExecutor implements Callable<List<PangolinUploadResult>, Exception>, Serializable {
+
+	private static final long serialVersionUID = 3301873562044529816L;
+	private final TaskListener listener;
+	private final int parallelism;
+	private final List<PangolinRemoteExecutor> executors = new ArrayList<>();
+
+	/**
+	 * Instantiates a new pangolin batch remote executor.
+	 *
+	 * @param listener
+	 *            the listener
+	 * @param parallelism
+	 *            max number of uploads running at the same time
+	 */
+	public PangolinBatchRemoteExecutor(final TaskListener listener, final int parallelism) {
+		this.listener = listener;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Adds an upload.
+	 *
+	 * @param executor
+	 *            the executor
+	 */
+	public void add(final PangolinRemoteExecutor executor) {
+		executors.add(executor);
+	}
+
+	@Override
+	public List<PangolinUploadResult> call() throws Exception {
+		final int threads = Math.min(parallelism, executors.size());
+		final List<PangolinUploadResult> results = new ArrayList<>(executors.size());
+		if (threads <= 1) {
+			for (int i = 0; i < executors.size(); i++) {
+				results.add(execute(i, listener));
+			}
+			return results;
+		}
+		// log of each upload is buffered and then written in the order of
+		// configurations, so output of different uploads is not interleaved
+		final ExecutorService executorService = Executors.newFixedThreadPool(threads,
+				new NamingThreadFactory(new DaemonThreadFactory(), "Pangolin upload"));
+		try {
+			final List<Future<PangolinUploadResult>> futures = new ArrayList<>(executors.size());
+			final List<ByteArrayOutputStream> logs = new ArrayList<>(executors.size());
+			for (int i = 0; i < executors.size(); i++) {
+				final int index = i;
+				final ByteArrayOutputStream log = new ByteArrayOutputStream();
+				final TaskListener uploadListener = new StreamTaskListener(log);
+				logs.add(log);
+				futures.add(executorService.submit(() -> execute(index, uploadListener)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				PangolinUploadResult result;
+				try {
+					result = futures.get(i).get();
+				} catch (final ExecutionException ex) {
+					result = PangolinUploadResult.failure(Messages.uploadErrorMessage() + ex.getMessage(), RetryPolicy.isRetryable(ex.getCause()));
+				}
+				logs.get(i).writeTo(listener.getLogger());
+				results.add(result);
+			}
+			return results;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private PangolinUploadResult execute(final int index, final TaskListener uploadListener) {
+		try {
+			return executors.get(index).upload(new JenkinsBuildLogger(uploadListener));
+		} catch (final Throwable ex) {
+			final String message = Messages.uploadErrorMessage() + ex.getMessage();
+			final PrintStream logger = uploadListener.getLogger();
+			logger.println(message);
+			ex.printStackTrace(logger);
+			final PangolinRemoteExecutor executor = executors.get(index);
+			return PangolinUploadResult.failure(message, RetryPolicy.isRetryable(ex), executor.getUploadedFiles(), executor.getTestRunId());
+		}
+	}
+
+	@Override
+	public void checkRoles(final RoleChecker checker) throws SecurityException {
+	}
+
+}
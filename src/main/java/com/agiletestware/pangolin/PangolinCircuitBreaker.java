@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller-wide circuit breaker of a Pangolin server. After a number of
+ * consecutive failed uploads the breaker opens and uploads to the server
+ * fail fast, so builds do not wait for upload timeout one after another.
+ * When open period is over, one trial upload is allowed: if it succeeds, the
+ * breaker closes, otherwise it opens again.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinCircuitBreaker {
+
+	/** How long the breaker stays open. */
+	static final long OPEN_PERIOD_MILLIS = 60 * 1000L;
+	private static final Logger LOGGER = Logger.getLogger(PangolinCircuitBreaker.class.getName());
+	private static final ConcurrentMap<String, PangolinCircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+	private final String url;
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long retryAt;
+
+	PangolinCircuitBreaker(final String url) {
+		this.url = url;
+	}
+
+	/**
+	 * Gets circuit breaker of the given Pangolin server.
+	 *
+	 * @param pangolinUrl
+	 *            Pangolin URL
+	 * @return the breaker
+	 */
+	public static PangolinCircuitBreaker forUrl(final String pangolinUrl) {
+		return BREAKERS.computeIfAbsent(String.valueOf(pangolinUrl), PangolinCircuitBreaker::new);
+	}
+
+	/**
+	 * Checks whether upload is allowed.
+	 *
+	 * @param threshold
+	 *            number of consecutive failures which opens the breaker,
+	 *            <code>0</code> disables the breaker.
+	 * @param now
+	 *            current time in milliseconds
+	 * @return <code>true</code> if upload is allowed.
+	 */
+	public synchronized boolean allowRequest(final int threshold, final long now) {
+		if (threshold <= 0 || state == State.CLOSED) {
+			return true;
+		}
+		if (now < retryAt) {
+			return false;
+		}
+		state = State.HALF_OPEN;
+		retryAt = now + OPEN_PERIOD_MILLIS;
+		LOGGER.log(Level.INFO, "Circuit breaker of {0} is half-open, trial upload is allowed", url);
+		return true;
+	}
+
+	/**
+	 * Records successful upload, the breaker closes.
+	 */
+	public synchronized void recordSuccess() {
+		if (state != State.CLOSED) {
+			LOGGER.log(Level.INFO, "Circuit breaker of {0} is closed", url);
+		}
+		state = State.CLOSED;
+		consecutiveFailures = 0;
+	}
+
+	/**
+	 * Records failed upload.
+	 *
+	 * @param threshold
+	 *            number of consecutive failures which opens the breaker,
+	 *            <code>0</code> disables the breaker.
+	 * @param now
+	 *            current time in milliseconds
+	 * @return <code>true</code> if the breaker has been opened by this failure.
+	 */
+	public synchronized boolean recordFailure(final int threshold, final long now) {
+		consecutiveFailures++;
+		if (threshold <= 0 || state == State.OPEN || state == State.CLOSED && consecutiveFailures < threshold) {
+			return false;
+		}
+		state = State.OPEN;
+		retryAt = now + OPEN_PERIOD_MILLIS;
+		LOGGER.log(Level.WARNING, Messages.circuitBreakerOpenedLog(url, consecutiveFailures, OPEN_PERIOD_MILLIS / 1000));
+		return true;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized int getConsecutiveFailures() {
+		return consecutiveFailures;
+	}
+
+	/**
+	 * State of the breaker.
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+}
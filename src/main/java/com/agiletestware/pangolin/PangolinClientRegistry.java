@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.agiletestware.pangolin.client.DefaultPangolinClientFactory;
+import com.agiletestware.pangolin.client.DefaultRetrofitFactory;
+import com.agiletestware.pangolin.client.PangolinClient;
+import com.agiletestware.pangolin.client.PangolinClientFactory;
+
+import hudson.init.Terminator;
+
+/**
+ * Registry of shared {@link PangolinClient} instances, one per client
+ * factory in each JVM (controller and every agent). Pangolin URL and timeout
+ * are passed to the client with each call, so a single client and its HTTP
+ * connection pool are reused for all Pangolin servers instead of creating a
+ * new client with new connections for each call. Clients are closed when
+ * Jenkins stops.
+ * <p>
+ * Every {@link DefaultPangolinClientFactory} shares one client, so the
+ * factory deserialized on an agent with a remote executor gets the same
+ * client as the previous calls, even if it is not the same object. Clients
+ * of other factories (e.g. in tests) are kept only while their factory is
+ * referenced.</p>
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public enum PangolinClientRegistry {
+
+	THE_INSTANCE;
+
+	private static final Logger LOGGER = Logger.getLogger(PangolinClientRegistry.class.getName());
+	/** Key of the client of {@link DefaultPangolinClientFactory}, never collected. */
+	private static final String DEFAULT_CLIENT_KEY = DefaultPangolinClientFactory.class.getName();
+	private final Map<Object, PangolinClient> clients = Collections.synchronizedMap(new WeakHashMap<>());
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Returns shared client created by the given factory.
+	 *
+	 * @param clientFactory
+	 *            the client factory
+	 * @return the client
+	 */
+	public PangolinClient get(final PangolinClientFactory clientFactory) {
+		final Object key = getKey(clientFactory);
+		final PangolinClient client = clients.get(key);
+		if (client != null) {
+			hits.incrementAndGet();
+			return client;
+		}
+		return clients.computeIfAbsent(key, k -> {
+			misses.incrementAndGet();
+			return clientFactory.create(DefaultRetrofitFactory.THE_INSTANCE);
+		});
+	}
+
+	private static Object getKey(final PangolinClientFactory clientFactory) {
+		return clientFactory instanceof DefaultPangolinClientFactory ? DEFAULT_CLIENT_KEY : clientFactory;
+	}
+
+	/**
+	 * Creates client factory which returns shared clients created by the given
+	 * factory, e.g. for {@link com.agiletestware.pangolin.client.upload.TestResultsUploader}.
+	 *
+	 * @param clientFactory
+	 *            the client factory
+	 * @return the shared client factory
+	 */
+	public PangolinClientFactory shared(final PangolinClientFactory clientFactory) {
+		return retrofitFactory -> get(clientFactory);
+	}
+
+	/**
+	 * @return number of calls which reused an existing client.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of created clients.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return number of clients in the registry.
+	 */
+	public int getSize() {
+		return clients.size();
+	}
+
+	/**
+	 * Removes all clients from the registry and closes them.
+	 */
+	public void clear() {
+		synchronized (clients) {
+			for (final PangolinClient client : clients.values()) {
+				if (client instanceof AutoCloseable) {
+					try {
+						((AutoCloseable) client).close();
+					} catch (final Exception ex) {
+						LOGGER.log(Level.WARNING, "Could not close Pangolin client", ex);
+					}
+				}
+			}
+			clients.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Pangolin clients: " + getSize() + ", created: " + getMisses() + ", reused: " + getHits();
+	}
+
+	/**
+	 * Closes clients of the controller when Jenkins stops.
+	 */
+	@Terminator
+	public static void shutdown() {
+		LOGGER.log(Level.INFO, THE_INSTANCE.toString());
+		THE_INSTANCE.clear();
+	}
+}
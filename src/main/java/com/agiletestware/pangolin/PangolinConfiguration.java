@@ -45,6 +45,13 @@ public final class PangolinConfiguration implements Serializable {
 	private String caseNameToIdMap;
 	private String configurationNames;
 	private boolean disableGrouping;
+	private boolean compactReports;
+	private boolean bundleReports;
+	private boolean readArchives;
+	private boolean useJenkinsTestResults;
+	private boolean skipUnchangedUploads;
+	private boolean parallelScan;
+	private boolean streamingUpload;
 
 	/**
 	 * Instantiates a new pangolin configuration.
@@ -314,4 +321,96 @@ public final class PangolinConfiguration implements Serializable {
 		this.disableGrouping = disableGrouping;
 	}
 
+	/**
+	 * @return <code>true</code> if captured output should be removed from
+	 *         reports before upload.
+	 */
+	public boolean isCompactReports() {
+		return compactReports;
+	}
+
+	@DataBoundSetter
+	public void setCompactReports(final boolean compactReports) {
+		this.compactReports = compactReports;
+	}
+
+	/**
+	 * @return <code>true</code> if JUnit reports should be packed into bundles
+	 *         before upload.
+	 */
+	public boolean isBundleReports() {
+		return bundleReports;
+	}
+
+	@DataBoundSetter
+	public void setBundleReports(final boolean bundleReports) {
+		this.bundleReports = bundleReports;
+	}
+
+	/**
+	 * @return <code>true</code> if report files should also be read from
+	 *         archives in the workspace.
+	 */
+	public boolean isReadArchives() {
+		return readArchives;
+	}
+
+	@DataBoundSetter
+	public void setReadArchives(final boolean readArchives) {
+		this.readArchives = readArchives;
+	}
+
+	/**
+	 * @return <code>true</code> if test results recorded by Jenkins for the
+	 *         build should be uploaded instead of report files from the
+	 *         workspace.
+	 */
+	public boolean isUseJenkinsTestResults() {
+		return useJenkinsTestResults;
+	}
+
+	@DataBoundSetter
+	public void setUseJenkinsTestResults(final boolean useJenkinsTestResults) {
+		this.useJenkinsTestResults = useJenkinsTestResults;
+	}
+
+	/**
+	 * @return <code>true</code> if upload should be skipped when report files
+	 *         have not changed since the previous successful build.
+	 */
+	public boolean isSkipUnchangedUploads() {
+		return skipUnchangedUploads;
+	}
+
+	@DataBoundSetter
+	public void setSkipUnchangedUploads(final boolean skipUnchangedUploads) {
+		this.skipUnchangedUploads = skipUnchangedUploads;
+	}
+
+	/**
+	 * @return <code>true</code> if workspace directories should be scanned for
+	 *         report files in parallel.
+	 */
+	public boolean isParallelScan() {
+		return parallelScan;
+	}
+
+	@DataBoundSetter
+	public void setParallelScan(final boolean parallelScan) {
+		this.parallelScan = parallelScan;
+	}
+
+	/**
+	 * @return <code>true</code> if report files should be uploaded in batches
+	 *         while the workspace is being scanned.
+	 */
+	public boolean isStreamingUpload() {
+		return streamingUpload;
+	}
+
+	@DataBoundSetter
+	public void setStreamingUpload(final boolean streamingUpload) {
+		this.streamingUpload = streamingUpload;
+	}
+
 }
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.util.concurrent.TimeUnit;
+
+import com.agiletestware.pangolin.client.PangolinClient;
+import com.agiletestware.pangolin.encryption.CustomSecret;
+import com.agiletestware.pangolin.retrofit.ConnectionConfig;
+
+/**
+ * Job-level TestRail password encrypted by Pangolin server when the job
+ * configuration is saved, together with URL of the Pangolin server which
+ * encrypted it. The encrypted value is stored protected by
+ * {@link CustomSecret}. It is used only while Pangolin URL in global
+ * configuration is the same, otherwise the password is encrypted at build
+ * time.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class PangolinEncryptedPassword {
+
+	/**
+	 * Timeout of the request which encrypts the password when the job
+	 * configuration is saved, the save request must not wait for upload
+	 * timeout.
+	 */
+	static final long SAVE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+	private final String pangolinUrl;
+	private final String encryptedPassword;
+
+	private PangolinEncryptedPassword(final String pangolinUrl, final String encryptedPassword) {
+		this.pangolinUrl = pangolinUrl;
+		this.encryptedPassword = encryptedPassword;
+	}
+
+	/**
+	 * Encrypts the password using Pangolin server from global configuration,
+	 * request times out after {@link #SAVE_TIMEOUT_MILLIS}. The request is
+	 * sent directly, not through {@link EncryptedPasswordCache}, so saving
+	 * cannot wait for an encryption started by a build with upload timeout.
+	 *
+	 * @param plainPassword
+	 *            the plain password
+	 * @param globalConfig
+	 *            global configuration
+	 * @param client
+	 *            Pangolin client
+	 * @param customSecret
+	 *            protects stored value
+	 * @return the encrypted password
+	 * @throws Exception
+	 *             if Pangolin could not encrypt the password.
+	 */
+	public static PangolinEncryptedPassword create(final String plainPassword, final GlobalConfiguration globalConfig, final PangolinClient client,
+			final CustomSecret customSecret) throws Exception {
+		final String pangolinUrl = globalConfig.getPangolinUrl();
+		return new PangolinEncryptedPassword(pangolinUrl,
+				customSecret.getEncryptedValue(client.getEncryptedPassword(plainPassword, new ConnectionConfig(pangolinUrl, SAVE_TIMEOUT_MILLIS))));
+	}
+
+	/**
+	 * Encrypts the password using Pangolin server from global configuration.
+	 * Results are cached by {@link EncryptedPasswordCache}.
+	 *
+	 * @param plainPassword
+	 *            the plain password
+	 * @param globalConfig
+	 *            global configuration
+	 * @param client
+	 *            Pangolin client
+	 * @return the password encrypted by Pangolin
+	 * @throws Exception
+	 *             if Pangolin could not encrypt the password.
+	 */
+	public static String encrypt(final String plainPassword, final GlobalConfiguration globalConfig, final PangolinClient client) throws Exception {
+		final long timeoutMillis = TimeUnit.MINUTES.toMillis(globalConfig.getUploadTimeOut());
+		return EncryptedPasswordCache.THE_INSTANCE.get(globalConfig.getPangolinUrl(), plainPassword,
+				() -> client.getEncryptedPassword(plainPassword, new ConnectionConfig(globalConfig.getPangolinUrl(), timeoutMillis)));
+	}
+
+	/**
+	 * Returns password encrypted by Pangolin if it was encrypted by the given
+	 * Pangolin server.
+	 *
+	 * @param currentPangolinUrl
+	 *            Pangolin URL from global configuration
+	 * @param customSecret
+	 *            protects stored value
+	 * @return the password or <code>null</code> if Pangolin URL has changed.
+	 */
+	public String getEncryptedPassword(final String currentPangolinUrl, final CustomSecret customSecret) {
+		if (pangolinUrl == null || !pangolinUrl.equals(currentPangolinUrl)) {
+			return null;
+		}
+		return customSecret.getPlainText(encryptedPassword);
+	}
+
+	/**
+	 * @return URL of the Pangolin server which has encrypted the password.
+	 */
+	public String getPangolinUrl() {
+		return pangolinUrl;
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.agiletestware.pangolin.client.UrlAvailableValidator;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+/**
+ * Periodically checks that Pangolin and TestRail servers from the global
+ * configuration are reachable and keeps the latest status and latency of
+ * each server, so uploads can fail fast when Pangolin server is known to be
+ * down. Form validation reads the same status and sends its own request only
+ * if there is no fresh status. Only the periodic checks are recorded. A status
+ * is used only while it is fresh, i.e. not older than
+ * {@link #STATUS_TTL_MILLIS}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+@Extension
+public class PangolinHealthMonitor extends AsyncPeriodicWork {
+
+	/** How long a status is considered fresh. */
+	static final long STATUS_TTL_MILLIS = 2 * MIN;
+	private static final int PROBE_TIMEOUT_MILLIS = 20000;
+	private static final ConcurrentMap<String, EndpointStatus> STATUSES = new ConcurrentHashMap<>();
+
+	public PangolinHealthMonitor() {
+		super("Pangolin health monitor");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return MIN;
+	}
+
+	@Override
+	protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+		final GlobalConfiguration globalConfig = DefaultGlobalConfigFactory.THE_INSTANCE.create();
+		final Set<String> urls = new LinkedHashSet<>();
+		if (StringUtils.isNotBlank(globalConfig.getPangolinUrl())) {
+			urls.add(globalConfig.getPangolinUrl().trim());
+		}
+		if (StringUtils.isNotBlank(globalConfig.getTestRailUrl())) {
+			urls.add(globalConfig.getTestRailUrl().trim());
+		}
+		final UrlAvailableValidator urlValidator = new UrlAvailableValidator(new JenkinsLogger(PangolinHealthMonitor.class));
+		for (final String url : urls) {
+			final EndpointStatus status = probe(url, urlValidator, PROBE_TIMEOUT_MILLIS);
+			listener.getLogger().println(status);
+		}
+		// forget URLs which are no longer configured or checked
+		final long now = System.currentTimeMillis();
+		STATUSES.values().removeIf(status -> !status.isFresh(now));
+	}
+
+	/**
+	 * Checks that the given URL is reachable and stores its status.
+	 *
+	 * @param url
+	 *            the URL
+	 * @param urlValidator
+	 *            validator which sends request to the URL
+	 * @param timeoutMillis
+	 *            request timeout in milliseconds
+	 * @return status of the URL.
+	 */
+	static EndpointStatus probe(final String url, final UrlAvailableValidator urlValidator, final int timeoutMillis) {
+		final String trimmedUrl = url.trim();
+		final long start = System.nanoTime();
+		final boolean reachable = urlValidator.isUrlReachable(trimmedUrl, timeoutMillis);
+		return record(trimmedUrl, reachable, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), System.currentTimeMillis());
+	}
+
+	static EndpointStatus record(final String url, final boolean reachable, final long latencyMillis, final long now) {
+		final String trimmedUrl = url.trim();
+		final EndpointStatus status = new EndpointStatus(trimmedUrl, reachable, latencyMillis, now);
+		STATUSES.put(trimmedUrl, status);
+		return status;
+	}
+
+	/**
+	 * Gets fresh status of the given URL.
+	 *
+	 * @param url
+	 *            the URL
+	 * @param now
+	 *            current time in milliseconds
+	 * @return the status or <code>null</code> if URL has not been checked
+	 *         recently.
+	 */
+	public static EndpointStatus getStatus(final String url, final long now) {
+		if (url == null) {
+			return null;
+		}
+		final EndpointStatus status = STATUSES.get(url.trim());
+		return status != null && status.isFresh(now) ? status : null;
+	}
+
+	/**
+	 * Checks whether the given URL is known to be unreachable.
+	 *
+	 * @param url
+	 *            the URL
+	 * @param now
+	 *            current time in milliseconds
+	 * @return <code>true</code> if the last fresh check of URL failed.
+	 */
+	public static boolean isDown(final String url, final long now) {
+		final EndpointStatus status = getStatus(url, now);
+		return status != null && !status.isReachable();
+	}
+
+	static void clear() {
+		STATUSES.clear();
+	}
+
+	/**
+	 * Result of a reachability check of a URL.
+	 */
+	public static final class EndpointStatus {
+		private final String url;
+		private final boolean reachable;
+		private final long latencyMillis;
+		private final long checkedAt;
+
+		EndpointStatus(final String url, final boolean reachable, final long latencyMillis, final long checkedAt) {
+			this.url = url;
+			this.reachable = reachable;
+			this.latencyMillis = latencyMillis;
+			this.checkedAt = checkedAt;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public boolean isReachable() {
+			return reachable;
+		}
+
+		public long getLatencyMillis() {
+			return latencyMillis;
+		}
+
+		public long getCheckedAt() {
+			return checkedAt;
+		}
+
+		boolean isFresh(final long now) {
+			return now - checkedAt < STATUS_TTL_MILLIS;
+		}
+
+		@Override
+		public String toString() {
+			return url + (reachable ? " is reachable" : " is unreachable") + ", latency: " + latencyMillis + " ms";
+		}
+	}
+}
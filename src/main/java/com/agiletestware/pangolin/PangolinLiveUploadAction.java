@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import hudson.model.Action;
+import hudson.model.Run;
+
+/**
+ * Invisible build action which passes state of live upload made during the
+ * build to {@link PangolinPublisher}. The state is not persisted.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinLiveUploadAction implements Action {
+
+	private final transient Map<String, PangolinLiveUploadSession.State> states = new ConcurrentHashMap<>();
+
+	@Override
+	public String getIconFileName() {
+		return null;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return null;
+	}
+
+	@Override
+	public String getUrlName() {
+		return null;
+	}
+
+	/**
+	 * Finds state of live upload for the given key in the given build.
+	 *
+	 * @param run
+	 *            build, can be <code>null</code>.
+	 * @param key
+	 *            key created by
+	 *            {@link PangolinUploadManifestAction#createKey(com.agiletestware.pangolin.client.upload.BulkUpdateParameters)}
+	 * @return the state or <code>null</code>
+	 */
+	static PangolinLiveUploadSession.State find(final Run<?, ?> run, final String key) {
+		if (run == null) {
+			return null;
+		}
+		final PangolinLiveUploadAction action = run.getAction(PangolinLiveUploadAction.class);
+		return action != null && action.states != null ? action.states.get(key) : null;
+	}
+
+	void put(final String key, final PangolinLiveUploadSession.State state) {
+		states.put(key, state);
+	}
+}
@@ -0,0 +1,341 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.remoting.RoleChecker;
+
+import com.agiletestware.pangolin.client.BuildLogger;
+import com.agiletestware.pangolin.shared.model.testresults.UploadResponse.RunInfo;
+
+import hudson.model.TaskListener;
+import hudson.remoting.Callable;
+
+/**
+ * Live upload of report files on an agent. It watches directories which can
+ * contain report files with {@link WatchService}, i.e. directories allowed
+ * by {@link ReportFileScanner#shouldVisitDirectory(String)}. A report file is
+ * considered complete when it has not been changed for a quiet period.
+ * Complete files are uploaded in batches, the newest complete files are
+ * always held back, so the final upload after the build has at least one
+ * file and can close the test run.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+final class PangolinLiveUploadSession implements Runnable {
+
+	private static final Map<String, PangolinLiveUploadSession> SESSIONS = new ConcurrentHashMap<>();
+	private static final long POLL_MILLIS = 1000;
+	/** How long {@link #stop()} waits for the running upload. */
+	static final long STOP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	private final PangolinRemoteExecutor executor;
+	private final Path baseDir;
+	private final ReportFileScanner scanner;
+	private final BuildLogger logger;
+	private final int batchSize;
+	private final long quietPeriodMillis;
+	/** Report files which are being written -> time of the last change. */
+	private final Map<Path, Long> pending = new LinkedHashMap<>();
+	private final List<File> completed = new ArrayList<>();
+	private final Set<String> uploadedFiles = ConcurrentHashMap.newKeySet();
+	private final Thread thread;
+	private volatile boolean stopped;
+
+	PangolinLiveUploadSession(final PangolinRemoteExecutor executor, final BuildLogger logger, final int batchSize, final long quietPeriodMillis) {
+		this.executor = executor;
+		this.baseDir = new File(executor.getWorkspace().getRemote()).toPath();
+		this.scanner = new ReportFileScanner(executor.getParameters().getResultPattern());
+		this.logger = logger;
+		this.batchSize = Math.max(batchSize, 1);
+		this.quietPeriodMillis = quietPeriodMillis;
+		this.thread = new Thread(this, "Pangolin live upload " + executor.getParameters().getResultPattern());
+		this.thread.setDaemon(true);
+		// only the final upload after the build can close the run
+		executor.getParameters().setCloseRun(false);
+	}
+
+	@Override
+	public void run() {
+		try (final WatchService watchService = baseDir.getFileSystem().newWatchService()) {
+			register(watchService, baseDir, false);
+			while (!stopped) {
+				final WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					handleEvents(watchService, key);
+				}
+				uploadCompleted(System.currentTimeMillis());
+			}
+		} catch (final InterruptedException | ClosedWatchServiceException ex) {
+			// stopped
+		} catch (final Exception ex) {
+			logger.error(Messages.liveUploadFailedLog() + ex.getMessage(), ex);
+		}
+	}
+
+	private void handleEvents(final WatchService watchService, final WatchKey key) throws IOException {
+		final Path dir = (Path) key.watchable();
+		final long now = System.currentTimeMillis();
+		for (final WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				continue;
+			}
+			final Path child = dir.resolve((Path) event.context());
+			if (Files.isDirectory(child)) {
+				if (event.kind() == ENTRY_CREATE && shouldWatch(child)) {
+					// files could be created before the directory has been registered
+					register(watchService, child, true);
+				}
+			} else if (scanner.matches(relativize(child))) {
+				fileChanged(child, now);
+			}
+		}
+		key.reset();
+	}
+
+	private void register(final WatchService watchService, final Path dir, final boolean addFiles) throws IOException {
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(final Path subdir, final BasicFileAttributes attrs) throws IOException {
+				if (!shouldWatch(subdir)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				subdir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+				if (addFiles && attrs.isRegularFile() && scanner.matches(relativize(file))) {
+					fileChanged(file, System.currentTimeMillis());
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Checks whether the directory can contain matching report files, so it
+	 * has to be watched. Directories are matched against the start of result
+	 * patterns with {@link org.apache.tools.ant.types.selectors.SelectorUtils#matchPatternStart(String, String)}.
+	 *
+	 * @param dir
+	 *            the directory
+	 * @return <code>true</code> if the directory has to be watched.
+	 */
+	boolean shouldWatch(final Path dir) {
+		return dir.equals(baseDir) || scanner.shouldVisitDirectory(relativize(dir));
+	}
+
+	/**
+	 * Records a change of a matching report file.
+	 *
+	 * @param file
+	 *            the report file
+	 * @param now
+	 *            time of the change in milliseconds
+	 */
+	void fileChanged(final Path file, final long now) {
+		pending.put(file, now);
+	}
+
+	/**
+	 * Uploads files which have not been changed for the quiet period in full
+	 * batches, at least one complete file is held back.
+	 *
+	 * @param now
+	 *            current time in milliseconds
+	 * @throws Exception
+	 *             if upload failed
+	 */
+	void uploadCompleted(final long now) throws Exception {
+		collectCompleted(now);
+		while (!stopped && completed.size() > batchSize) {
+			upload(new ArrayList<>(completed.subList(0, batchSize)));
+			completed.subList(0, batchSize).clear();
+		}
+	}
+
+	private void collectCompleted(final long now) {
+		for (final Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator(); iterator.hasNext();) {
+			final Map.Entry<Path, Long> entry = iterator.next();
+			if (now - entry.getValue() >= quietPeriodMillis) {
+				iterator.remove();
+				final File file = entry.getKey().toFile();
+				if (file.isFile() && !uploadedFiles.contains(executor.getRelativePath(file)) && !completed.contains(file)) {
+					completed.add(file);
+				}
+			}
+		}
+	}
+
+	private void upload(final List<File> batch) throws Exception {
+		final RunInfo runInfo;
+		try {
+			runInfo = executor.uploadFiles(batch, logger);
+		} catch (final Exception ex) {
+			// files of the batch sent before the failure are not sent again by the final upload
+			uploadedFiles.addAll(executor.getUploadedFiles());
+			throw ex;
+		}
+		for (final File file : batch) {
+			uploadedFiles.add(executor.getRelativePath(file));
+		}
+		logger.info(Messages.liveUploadBatchLog(batch.size()) + (runInfo != null && runInfo.getRunUrl() != null ? ": " + runInfo.getRunUrl() : ""));
+	}
+
+	private String relativize(final Path path) {
+		return baseDir.relativize(path).toString();
+	}
+
+	/**
+	 * Stops the session and waits up to {@link #STOP_TIMEOUT_MILLIS} for the
+	 * running upload, then interrupts it.
+	 *
+	 * @return state of the live upload.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting.
+	 */
+	State stop() throws InterruptedException {
+		stopped = true;
+		thread.join(STOP_TIMEOUT_MILLIS);
+		if (thread.isAlive()) {
+			logger.info(Messages.liveUploadNotStoppedLog(executor.getParameters().getResultPattern(), STOP_TIMEOUT_MILLIS));
+			thread.interrupt();
+			thread.join(POLL_MILLIS);
+		}
+		logger.info(Messages.liveUploadStoppedLog(executor.getParameters().getResultPattern(), uploadedFiles.size()));
+		return new State(new HashSet<>(uploadedFiles), executor.getParameters().getTestRunId());
+	}
+
+	/**
+	 * Result of live upload.
+	 */
+	static final class State implements Serializable {
+
+		private static final long serialVersionUID = -2468271398751327214L;
+		private final Set<String> uploadedFiles;
+		private final int testRunId;
+
+		State(final Set<String> uploadedFiles, final int testRunId) {
+			this.uploadedFiles = uploadedFiles;
+			this.testRunId = testRunId;
+		}
+
+		/**
+		 * @return paths of uploaded files relative to the workspace.
+		 */
+		Set<String> getUploadedFiles() {
+			return uploadedFiles;
+		}
+
+		int getTestRunId() {
+			return testRunId;
+		}
+	}
+
+	/**
+	 * Starts live upload on an agent and returns id of the session.
+	 */
+	static final class Start implements Callable<String, Exception> {
+
+		private static final long serialVersionUID = 7401328590712867311L;
+		private final PangolinRemoteExecutor executor;
+		private final TaskListener listener;
+		private final int batchSize;
+		private final long quietPeriodMillis;
+
+		Start(final PangolinRemoteExecutor executor, final TaskListener listener, final int batchSize, final long quietPeriodMillis) {
+			this.executor = executor;
+			this.listener = listener;
+			this.batchSize = batchSize;
+			this.quietPeriodMillis = quietPeriodMillis;
+		}
+
+		@Override
+		public String call() throws Exception {
+			final BuildLogger logger = new JenkinsBuildLogger(listener);
+			final PangolinLiveUploadSession session = new PangolinLiveUploadSession(executor, logger, batchSize, quietPeriodMillis);
+			final String id = UUID.randomUUID().toString();
+			SESSIONS.put(id, session);
+			session.thread.start();
+			logger.info(Messages.liveUploadStartedLog(executor.getParameters().getResultPattern()));
+			return id;
+		}
+
+		@Override
+		public void checkRoles(final RoleChecker checker) throws SecurityException {
+		}
+	}
+
+	/**
+	 * Stops live upload on an agent and returns its state.
+	 */
+	static final class Stop implements Callable<State, Exception> {
+
+		private static final long serialVersionUID = -5893184707285641839L;
+		private final String id;
+
+		Stop(final String id) {
+			this.id = id;
+		}
+
+		@Override
+		public State call() throws Exception {
+			final PangolinLiveUploadSession session = SESSIONS.remove(id);
+			if (session == null) {
+				return null;
+			}
+			return session.stop();
+		}
+
+		@Override
+		public void checkRoles(final RoleChecker checker) throws SecurityException {
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.tasks.BuildWrapperDescriptor;
+import jenkins.tasks.SimpleBuildWrapper;
+
+/**
+ * Build wrapper which uploads report files into TestRail while the build is
+ * running. Report files are found using configurations of
+ * {@link PangolinPublisher} of the same project, the publisher uploads the
+ * remaining files after the build and closes the test run.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinLiveUploadWrapper extends SimpleBuildWrapper {
+
+	private static final int DEFAULT_BATCH_SIZE = 50;
+	private static final int DEFAULT_QUIET_PERIOD = 5;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int quietPeriod = DEFAULT_QUIET_PERIOD;
+
+	/**
+	 * Constructor.
+	 */
+	@DataBoundConstructor
+	public PangolinLiveUploadWrapper() {
+	}
+
+	@Override
+	public void setUp(final Context context, final Run<?, ?> build, final FilePath workspace, final Launcher launcher, final TaskListener listener,
+			final EnvVars initialEnvironment) throws IOException, InterruptedException {
+		final PangolinPublisher publisher = findPublisher(build);
+		if (publisher == null) {
+			listener.getLogger().println(Messages.liveUploadNoPublisherLog());
+			return;
+		}
+		final VirtualChannel channel = workspace.getChannel();
+		final List<String> keys = new ArrayList<>();
+		final List<String> sessionIds = new ArrayList<>();
+		try {
+			for (final PangolinRemoteExecutor executor : publisher.createLiveUploadExecutors(build, workspace, listener)) {
+				keys.add(PangolinUploadManifestAction.createKey(executor.getParameters()));
+				sessionIds.add(channel.call(new PangolinLiveUploadSession.Start(executor, listener, getBatchSize(),
+						TimeUnit.SECONDS.toMillis(getQuietPeriod()))));
+			}
+		} catch (final InterruptedException ex) {
+			throw ex;
+		} catch (final Exception ex) {
+			listener.getLogger().println(Messages.liveUploadFailedLog() + ex.getMessage());
+		}
+		context.setDisposer(new LiveUploadDisposer(keys, sessionIds));
+	}
+
+	private static PangolinPublisher findPublisher(final Run<?, ?> build) {
+		if (!(build instanceof AbstractBuild)) {
+			return null;
+		}
+		return ((AbstractBuild<?, ?>) build).getProject().getPublishersList().get(PangolinPublisher.class);
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the number of complete report files uploaded at once.
+	 *
+	 * @param batchSize
+	 *            the batch size
+	 */
+	@DataBoundSetter
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+	}
+
+	public int getQuietPeriod() {
+		return quietPeriod;
+	}
+
+	/**
+	 * Sets the number of seconds a report file should not change before it is
+	 * considered complete.
+	 *
+	 * @param quietPeriod
+	 *            the quiet period in seconds
+	 */
+	@DataBoundSetter
+	public void setQuietPeriod(final int quietPeriod) {
+		this.quietPeriod = quietPeriod >= 0 ? quietPeriod : DEFAULT_QUIET_PERIOD;
+	}
+
+	/**
+	 * Stops live upload sessions and passes their state to
+	 * {@link PangolinPublisher}.
+	 */
+	private static final class LiveUploadDisposer extends Disposer {
+
+		private static final long serialVersionUID = 3154875261035624012L;
+		private final List<String> keys;
+		private final List<String> sessionIds;
+
+		LiveUploadDisposer(final List<String> keys, final List<String> sessionIds) {
+			this.keys = keys;
+			this.sessionIds = sessionIds;
+		}
+
+		@Override
+		public void tearDown(final Run<?, ?> build, final FilePath workspace, final Launcher launcher, final TaskListener listener)
+				throws IOException, InterruptedException {
+			final PangolinLiveUploadAction action = new PangolinLiveUploadAction();
+			for (int i = 0; i < sessionIds.size(); i++) {
+				try {
+					final PangolinLiveUploadSession.State state = workspace.getChannel().call(new PangolinLiveUploadSession.Stop(sessionIds.get(i)));
+					if (state != null && state.getTestRunId() > 0) {
+						action.put(keys.get(i), state);
+					}
+				} catch (final InterruptedException ex) {
+					throw ex;
+				} catch (final Exception ex) {
+					listener.getLogger().println(Messages.liveUploadFailedLog() + ex.getMessage());
+				}
+			}
+			build.addAction(action);
+		}
+	}
+
+	/**
+	 * Descriptor of {@link PangolinLiveUploadWrapper}.
+	 */
+	@Extension
+	@Symbol("pangolinLiveUpload")
+	public static final class DescriptorImpl extends BuildWrapperDescriptor {
+
+		@Override
+		public String getDisplayName() {
+			return Messages.liveUploadDisplayName();
+		}
+
+		@Override
+		public boolean isApplicable(final AbstractProject<?, ?> item) {
+			return true;
+		}
+	}
+}
@@ -15,9 +15,20 @@
  */
 package com.agiletestware.pangolin;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -40,11 +51,13 @@ import com.agiletestware.pangolin.util.PangolinUtility;
 import com.agiletestware.pangolin.validator.GlobalConfigValidator;
 
 import hudson.AbortException;
+import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Util;
 import hudson.model.AbstractProject;
+import hudson.model.Job;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.remoting.VirtualChannel;
@@ -52,7 +65,11 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
+import hudson.tasks.test.AbstractTestResultAction;
+import hudson.tasks.test.TestResult;
 import hudson.util.FormValidation;
+import hudson.util.StreamTaskListener;
+import jenkins.model.Jenkins;
 import jenkins.tasks.SimpleBuildStep;
 import net.sf.json.JSONObject;
 
@@ -66,9 +83,17 @@ public class PangolinPublisher extends Recorder implements SimpleBuildStep {
 
 	private static final Logger LOGGER = Logger.getLogger(PangolinPublisher.class.getName());
 	private static final String TRX_RESULT_FORMAT = "TRX";
+	private static final String JUNIT_RESULT_FORMAT = "junit";
+	private static final String JENKINS_TEST_RESULTS_REPORT = "TEST-jenkins-test-results.xml";
+	private static final String ASYNC_UPLOAD_LOG_FILE_NAME = "pangolin-upload.log";
+	/** Directory in the build directory with report files of asynchronous upload. */
+	static final String ASYNC_UPLOAD_REPORTS_DIR_NAME = "pangolin-reports";
 	private String testRailProject;
 	private String testRailUserName;
 	private String testRailPassword;
+	private PangolinEncryptedPassword pangolinEncryptedPassword;
+	private int maxParallelUploads = 1;
+	private boolean asyncUpload;
 	private final List<PangolinConfiguration> configs;
 	private final GlobalConfigFactory globalConfigFactory;
 	private final PangolinClientFactory pangolinClient;
@@ -153,38 +178,487 @@ public class PangolinPublisher extends Recorder implements SimpleBuildStep {
 	@Override
 	public void perform(final Run<?, ?> run, final FilePath workspace, final Launcher launcher, final TaskListener listener)
 			throws InterruptedException, IOException {
+		if (isAsyncUpload()) {
+			final PangolinUploadStatusAction status = new PangolinUploadStatusAction();
+			run.addAction(status);
+			final FilePath reports = new FilePath(new File(run.getRootDir(), ASYNC_UPLOAD_REPORTS_DIR_NAME));
+			try {
+				copyReports(run, workspace, reports, listener);
+			} catch (final IOException ex) {
+				LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+				listener.getLogger().println(Messages.uploadErrorMessage() + ex.getMessage());
+				status.update(PangolinUploadStatusAction.Status.FAILED, Messages.uploadErrorMessage() + ex.getMessage());
+				deleteReports(reports);
+				return;
+			} catch (final InterruptedException ex) {
+				status.update(PangolinUploadStatusAction.Status.FAILED, null);
+				deleteReports(reports);
+				throw ex;
+			}
+			PangolinUploadQueue.THE_INSTANCE.submit(() -> doAsyncUpdate(run, reports, status), globalConfigFactory.create().getMaxAsyncUploads());
+			listener.getLogger().println(Messages.asyncUploadQueuedLog(ASYNC_UPLOAD_LOG_FILE_NAME));
+			return;
+		}
 		if (!doUpdate(run, launcher, listener, workspace)) {
 			throw new AbortException(Messages.logFailIfUploadTrue());
 		}
 	}
 
+	/**
+	 * Copies report files of the configurations (and archives if they are
+	 * read) from the workspace into the given directory on the controller. The
+	 * files keep their paths relative to the workspace, so the directory can be
+	 * used as a workspace of the upload.
+	 */
+	private void copyReports(final Run<?, ?> run, final FilePath workspace, final FilePath reports, final TaskListener listener)
+			throws IOException, InterruptedException {
+		final EnvVars env = run.getEnvironment(listener);
+		reports.mkdirs();
+		for (final PangolinConfiguration config : getConfigs()) {
+			if (!config.isUseJenkinsTestResults()) {
+				final String pattern = env.expand(config.getResultPattern());
+				workspace.copyRecursiveTo(new ReportFilesDirScanner(pattern, config.isReadArchives()), reports, pattern);
+			}
+		}
+	}
+
+	/**
+	 * @return launcher of the controller which is used by asynchronous upload.
+	 */
+	Launcher createLocalLauncher(final TaskListener listener) {
+		return new Launcher.LocalLauncher(listener);
+	}
+
+	private static void deleteReports(final FilePath reports) {
+		try {
+			reports.deleteRecursive();
+		} catch (final IOException | InterruptedException ex) {
+			LOGGER.log(Level.WARNING, "Could not delete " + reports, ex);
+		}
+	}
+
+	/**
+	 * Uploads results in background after the build has released its
+	 * executor and workspace, report files are read from their copy in the
+	 * build directory, which is removed afterwards. Log of the upload is
+	 * written into a separate file in the build directory, because the build
+	 * log is already closed at this moment.
+	 */
+	private void doAsyncUpdate(final Run<?, ?> run, final FilePath reports, final PangolinUploadStatusAction status) {
+		status.update(PangolinUploadStatusAction.Status.RUNNING, null);
+		try (final StreamTaskListener listener = new StreamTaskListener(new File(run.getRootDir(), ASYNC_UPLOAD_LOG_FILE_NAME))) {
+			if (doUpdate(run, createLocalLauncher(listener), listener, reports)) {
+				status.update(PangolinUploadStatusAction.Status.DONE, null);
+			} else {
+				status.update(PangolinUploadStatusAction.Status.FAILED, Messages.logFailIfUploadTrue());
+			}
+		} catch (final InterruptedException ex) {
+			status.update(PangolinUploadStatusAction.Status.FAILED, Messages.asyncUploadInterrupted());
+		} catch (final Throwable ex) {
+			LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+			status.update(PangolinUploadStatusAction.Status.FAILED, Messages.uploadErrorMessage() + ex.getMessage());
+		} finally {
+			deleteReports(reports);
+			try {
+				run.save();
+			} catch (final IOException ex) {
+				LOGGER.log(Level.SEVERE, "Could not save build " + run.getExternalizableId(), ex);
+			}
+		}
+	}
+
 	private boolean doUpdate(final Run<?, ?> run, final Launcher launcher, final TaskListener listener, final FilePath workspace)
-			throws AbortException {
-		boolean success = true;
+			throws AbortException, InterruptedException {
 		final GlobalConfiguration globalConfig = globalConfigFactory.create();
 		GlobalConfigValidator.validate(globalConfig);
+		boolean success = true;
+		final List<PangolinRemoteExecutor> batchExecutors = new ArrayList<>();
+		final List<PangolinConfiguration> batchConfigs = new ArrayList<>();
+		final List<String> manifestKeys = new ArrayList<>();
+		final List<BulkUpdateParameters> batchParams = new ArrayList<>();
+		final List<PangolinConfiguration> coalescedConfigs = new ArrayList<>();
+		final List<PangolinRemoteExecutor> coalescedExecutors = new ArrayList<>();
 		for (final PangolinConfiguration config : getConfigs()) {
+			if (config.isUseJenkinsTestResults()) {
+				success &= uploadJenkinsTestResults(globalConfig, config, run, workspace, listener);
+				continue;
+			}
 			try {
-				doBulkUpdate(globalConfig, config, run, workspace, launcher, listener);
+				final PangolinRemoteExecutor remoteExecutor = createRemoteExecutor(globalConfig, config, run, workspace, listener);
+				final String pangolinUrl = remoteExecutor.getParameters().getPangolinUrl();
+				if (isRejected(globalConfig, pangolinUrl, listener)) {
+					success &= handleFailedUpload(globalConfig, config, remoteExecutor.getParameters(), createRejectedResult(remoteExecutor), run, workspace,
+							listener);
+					continue;
+				}
+				if (globalConfig.getCoalescingWindow() > 0 && StringUtils.isNotEmpty(remoteExecutor.getParameters().getTestRun())
+						&& !remoteExecutor.isLiveUploaded()) {
+					coalescedConfigs.add(config);
+					coalescedExecutors.add(remoteExecutor);
+					continue;
+				}
+				batchExecutors.add(remoteExecutor);
+				batchConfigs.add(config);
+				manifestKeys.add(PangolinUploadManifestAction.createKey(remoteExecutor.getParameters()));
+				batchParams.add(remoteExecutor.getParameters());
+			} catch (final InterruptedException ex) {
+				throw ex;
 			} catch (final Throwable ex) {
-				final String message = Messages.uploadErrorMessage() + ex.getMessage();
-				final PrintStream logger = listener.getLogger();
-				logger.println(message);
-				ex.printStackTrace(logger);
-				LOGGER.log(Level.SEVERE, message, ex);
-				if (config.getFailIfUploadFailed()) {
-					listener.getLogger().println(Messages.logFailIfUploadTrue());
-					success = false;
-				} else {
-					listener.getLogger().println(Messages.logFailIfUploadFalse());
+				success &= handleUploadError(ex, Collections.singletonList(config), listener);
+			}
+		}
+		success &= uploadCoalesced(globalConfig, coalescedConfigs, coalescedExecutors, run, launcher, workspace, listener);
+		if (batchConfigs.isEmpty()) {
+			return success;
+		}
+		final List<PangolinUploadResult> results;
+		try {
+			results = upload(globalConfig, batchExecutors, batchConfigs, getEffectiveMaxParallelUploads(), batch -> callRemote(launcher, batch), listener);
+		} catch (final InterruptedException ex) {
+			throw ex;
+		} catch (final Throwable ex) {
+			return handleUploadError(ex, batchConfigs, listener) && success;
+		}
+		for (int i = 0; i < results.size(); i++) {
+			success &= handleUploadResult(globalConfig, batchConfigs.get(i), batchParams.get(i), manifestKeys.get(i), results.get(i), run, workspace,
+					listener);
+		}
+		return success;
+	}
+
+	/**
+	 * Submits uploads of the given configurations to
+	 * {@link PangolinUploadCoalescer} and waits for them. Each upload is
+	 * executed by its own remote executor, so it is done on the agent with
+	 * settings of its configuration, but it is added into the test run created
+	 * by uploads of other builds merged with it.
+	 *
+	 * @return <code>false</code> if the build should fail.
+	 */
+	private boolean uploadCoalesced(final GlobalConfiguration globalConfig, final List<PangolinConfiguration> configs,
+			final List<PangolinRemoteExecutor> executors, final Run<?, ?> run, final Launcher launcher, final FilePath workspace,
+			final TaskListener listener) throws InterruptedException {
+		boolean success = true;
+		final List<String> keys = new ArrayList<>();
+		final List<String> manifestKeys = new ArrayList<>();
+		final List<BulkUpdateParameters> params = new ArrayList<>();
+		for (final PangolinRemoteExecutor executor : executors) {
+			keys.add(PangolinUploadCoalescer.createKey(executor.getParameters()));
+			manifestKeys.add(PangolinUploadManifestAction.createKey(executor.getParameters()));
+			params.add(new ResolvedBulkUpdateParameters(executor.getParameters()));
+		}
+		final List<CompletableFuture<PangolinUploadCoalescer.Result>> futures = new ArrayList<>();
+		for (int i = 0; i < executors.size(); i++) {
+			final PangolinRemoteExecutor executor = executors.get(i);
+			final PangolinConfiguration config = configs.get(i);
+			final boolean closeRun = executor.getParameters().isCloseRun();
+			final Set<String> pendingRuns = findPendingRuns(run, keys.get(i));
+			if (pendingRuns != null && keys.subList(i + 1, keys.size()).contains(keys.get(i))) {
+				pendingRuns.add(run.getExternalizableId());
+			}
+			futures.add(PangolinUploadCoalescer.THE_INSTANCE.submit(executor.getParameters(), run.getExternalizableId(), (testRunId, lastUpload) -> {
+				if (testRunId > 0) {
+					executor.joinTestRun(testRunId);
+				}
+				executor.getParameters().setCloseRun(closeRun && lastUpload);
+				return upload(globalConfig, Collections.singletonList(executor), Collections.singletonList(config), 1,
+						batch -> callRemote(launcher, batch), listener).get(0);
+			}, TimeUnit.SECONDS.toMillis(globalConfig.getCoalescingWindow()), pendingRuns));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			PangolinUploadResult result;
+			try {
+				final PangolinUploadCoalescer.Result merged = futures.get(i).get();
+				listener.getLogger().println(Messages.coalescedUploadLog(merged.getMergedUploads()));
+				result = merged.getUploadResult();
+			} catch (final ExecutionException ex) {
+				final Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+				final String message = Messages.uploadErrorMessage() + cause.getMessage();
+				listener.getLogger().println(message);
+				cause.printStackTrace(listener.getLogger());
+				result = PangolinUploadResult.failure(message, RetryPolicy.isRetryable(cause), executors.get(i).getUploadedFiles(),
+						executors.get(i).getTestRunId());
+			}
+			success &= handleUploadResult(globalConfig, configs.get(i), params.get(i), manifestKeys.get(i), result, run, workspace, listener);
+		}
+		return success;
+	}
+
+	/**
+	 * Finds other running builds of jobs which have uploaded into the TestRail
+	 * run with the given key before, see
+	 * {@link PangolinUploadCoalescer#getJobs(String)}, so they can still join
+	 * coalescing window of the given build.
+	 *
+	 * @return ids of the found builds or <code>null</code> if no job has
+	 *         uploaded into the run yet.
+	 */
+	private static Set<String> findPendingRuns(final Run<?, ?> run, final String key) {
+		final Set<String> jobs = PangolinUploadCoalescer.THE_INSTANCE.getJobs(key);
+		if (jobs == null) {
+			return null;
+		}
+		final Set<String> pendingRuns = new HashSet<>();
+		final Jenkins jenkins = Jenkins.getInstance();
+		if (jenkins == null) {
+			return pendingRuns;
+		}
+		for (final String jobName : jobs) {
+			final Job<?, ?> job = jenkins.getItemByFullName(jobName, Job.class);
+			if (job == null) {
+				continue;
+			}
+			for (Run<?, ?> build = job.getLastBuild(); build != null && build.isBuilding(); build = build.getPreviousBuild()) {
+				if (build != run) {
+					pendingRuns.add(build.getExternalizableId());
+				}
+			}
+		}
+		return pendingRuns;
+	}
+
+	/**
+	 * Uploads test results recorded by Jenkins for the run (e.g. by
+	 * <code>junit</code> step) instead of report files from the workspace. The
+	 * report is created and uploaded on the controller, so the agent and the
+	 * workspace are not used.
+	 */
+	private boolean uploadJenkinsTestResults(final GlobalConfiguration globalConfig, final PangolinConfiguration config, final Run<?, ?> run,
+			final FilePath workspace, final TaskListener listener) throws InterruptedException {
+		final AbstractTestResultAction<?> action = run.getAction(AbstractTestResultAction.class);
+		if (action == null || !(action.getResult() instanceof TestResult)) {
+			return handleUploadError(new IllegalStateException(Messages.noJenkinsTestResults()), Collections.singletonList(config), listener);
+		}
+		File reportsDir = null;
+		try {
+			reportsDir = Files.createTempDirectory("pangolin-test-results").toFile();
+			final int cases = TestResultReportWriter.write((TestResult) action.getResult(), new File(reportsDir, JENKINS_TEST_RESULTS_REPORT));
+			listener.getLogger().println(Messages.jenkinsTestResultsLog(cases));
+			final FilePath reports = new FilePath(reportsDir);
+			final PangolinRemoteExecutor remoteExecutor = createRemoteExecutor(globalConfig, config, run, reports, listener, parameters -> {
+				parameters.setResultPattern(JENKINS_TEST_RESULTS_REPORT);
+				parameters.setReportFormat(JUNIT_RESULT_FORMAT);
+			});
+			final BulkUpdateParameters params = remoteExecutor.getParameters();
+			final String pangolinUrl = params.getPangolinUrl();
+			if (isRejected(globalConfig, pangolinUrl, listener)) {
+				return handleFailedUpload(globalConfig, config, params, createRejectedResult(remoteExecutor), run, reports, listener);
+			}
+			// the report is uploaded on the controller, so the batch is called locally
+			final PangolinUploadResult result = upload(globalConfig, Collections.singletonList(remoteExecutor), Collections.singletonList(config), 1,
+					PangolinBatchRemoteExecutor::call, listener).get(0);
+			return handleUploadResult(globalConfig, config, params, PangolinUploadManifestAction.createKey(params), result, run, reports, listener);
+		} catch (final InterruptedException ex) {
+			throw ex;
+		} catch (final Throwable ex) {
+			return handleUploadError(ex, Collections.singletonList(config), listener);
+		} finally {
+			if (reportsDir != null) {
+				try {
+					Util.deleteRecursive(reportsDir);
+				} catch (final IOException e) {
+					LOGGER.log(Level.WARNING, "Could not delete " + reportsDir, e);
 				}
 			}
 		}
+	}
+
+	/**
+	 * Uploads results of the given executors. An upload attempt holds a permit
+	 * of {@link PangolinUploadScheduler} only while it is running: uploads
+	 * which have failed with a transient error release the permit, wait
+	 * according to the retry policy and then send only report files which have
+	 * not been sent yet.
+	 *
+	 * @return upload results in the order of executors
+	 */
+	private static List<PangolinUploadResult> upload(final GlobalConfiguration globalConfig, final List<PangolinRemoteExecutor> executors,
+			final List<PangolinConfiguration> configs, final int parallelism, final BatchCall batchCall, final TaskListener listener) throws Exception {
+		final RetryPolicy retryPolicy = createRetryPolicy(globalConfig);
+		final List<PangolinUploadResult> results = new ArrayList<>(Collections.nCopies(executors.size(), (PangolinUploadResult) null));
+		List<Integer> pending = new ArrayList<>();
+		for (int i = 0; i < executors.size(); i++) {
+			pending.add(i);
+		}
+		for (int retry = 0;; retry++) {
+			final PangolinBatchRemoteExecutor batchExecutor = new PangolinBatchRemoteExecutor(listener, parallelism);
+			final List<BulkUpdateParameters> params = new ArrayList<>();
+			for (final int index : pending) {
+				batchExecutor.add(executors.get(index));
+				params.add(executors.get(index).getParameters());
+			}
+			final List<PangolinUploadResult> attemptResults;
+			final String queueKey = getQueueKey(params);
+			try (final PangolinUploadScheduler.Permit permit = PangolinUploadScheduler.THE_INSTANCE.acquire(queueKey,
+					globalConfig.getMaxConcurrentUploads())) {
+				listener.getLogger().println(Messages.uploadQueueWaitLog(permit.getWaitMillis(), queueKey, permit.getQueuedAhead()));
+				attemptResults = batchCall.call(batchExecutor);
+			}
+			if (attemptResults == null || attemptResults.size() != pending.size()) {
+				throw new IllegalStateException("Expected " + pending.size() + " upload result(s), but got "
+						+ (attemptResults == null ? "none" : String.valueOf(attemptResults.size())));
+			}
+			final List<Integer> failed = new ArrayList<>();
+			for (int i = 0; i < pending.size(); i++) {
+				final int index = pending.get(i);
+				final PangolinUploadResult result = attemptResults.get(i);
+				results.set(index, result);
+				if (!result.isSuccess() && result.isTransientFailure() && retry < retryPolicy.getMaxRetries()) {
+					executors.get(index).resume(result);
+					failed.add(index);
+				} else if (result.isSuccess() && retry > 0) {
+					listener.getLogger().println(Messages.uploadSucceededAfterRetriesLog(retry));
+				}
+			}
+			if (failed.isEmpty()) {
+				return results;
+			}
+			final long delay = retryPolicy.getDelayMillis(retry);
+			for (final int index : failed) {
+				final String error = StringUtils.removeStart(results.get(index).getErrorMessage(), Messages.uploadErrorMessage());
+				listener.getLogger().println(Messages.uploadRetryLog(error, delay, retry + 1, retryPolicy.getMaxRetries()));
+			}
+			Thread.sleep(delay);
+			pending = failed;
+		}
+	}
+
+	/**
+	 * Calls {@link PangolinBatchRemoteExecutor} locally or on an agent.
+	 */
+	private interface BatchCall {
+		List<PangolinUploadResult> call(PangolinBatchRemoteExecutor batchExecutor) throws Exception;
+	}
+
+	/**
+	 * Checks whether upload to the given Pangolin server should fail fast
+	 * because its circuit breaker is open or it is known to be unreachable.
+	 */
+	private static boolean isRejected(final GlobalConfiguration globalConfig, final String pangolinUrl, final TaskListener listener) {
+		final long now = System.currentTimeMillis();
+		if (globalConfig.isFailFastWhenUnreachable() && PangolinHealthMonitor.isDown(pangolinUrl, now)) {
+			listener.getLogger().println(Messages.unreachableRejectedLog(pangolinUrl));
+			return true;
+		}
+		if (!PangolinCircuitBreaker.forUrl(pangolinUrl).allowRequest(globalConfig.getCircuitBreakerThreshold(), now)) {
+			listener.getLogger().println(Messages.circuitBreakerRejectedLog(pangolinUrl));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Creates result of upload which has not been started because Pangolin
+	 * server is unavailable, so it can be spooled like a transient failure.
+	 */
+	private static PangolinUploadResult createRejectedResult(final PangolinRemoteExecutor remoteExecutor) {
+		return PangolinUploadResult.failure(null, true, remoteExecutor.getUploadedFiles(), remoteExecutor.getTestRunId());
+	}
+
+	/**
+	 * Adds link to TestRail run and records manifest of successful upload,
+	 * handles failed upload.
+	 *
+	 * @return <code>false</code> if the build should fail.
+	 */
+	private boolean handleUploadResult(final GlobalConfiguration globalConfig, final PangolinConfiguration config, final BulkUpdateParameters params,
+			final String manifestKey, final PangolinUploadResult result, final Run<?, ?> run, final FilePath workspace, final TaskListener listener)
+			throws InterruptedException {
+		final PangolinCircuitBreaker breaker = PangolinCircuitBreaker.forUrl(params.getPangolinUrl());
+		if (result.isSuccess()) {
+			breaker.recordSuccess();
+			final String runUrl = result.isSkipped() ? getPreviousRunUrl(run, manifestKey) : result.getRunUrl();
+			if (runUrl != null) {
+				run.addAction(new PangolinRunLinkAction(runUrl));
+			}
+			if (result.getManifest() != null) {
+				getManifestAction(run).put(manifestKey, result.getManifest(), runUrl);
+			}
+			return true;
+		}
+		LOGGER.log(Level.SEVERE, result.getErrorMessage());
+		if (result.isTransientFailure() && breaker.recordFailure(globalConfig.getCircuitBreakerThreshold(), System.currentTimeMillis())) {
+			listener.getLogger().println(Messages.circuitBreakerOpenedLog(params.getPangolinUrl(), breaker.getConsecutiveFailures(),
+					PangolinCircuitBreaker.OPEN_PERIOD_MILLIS / 1000));
+		}
+		return handleFailedUpload(globalConfig, config, params, result, run, workspace, listener);
+	}
+
+	/**
+	 * Handles failed upload: stores it in the spool if spooling is enabled and
+	 * the upload failed with a transient error, otherwise applies
+	 * <code>failIfUploadFailed</code> flag.
+	 *
+	 * @return <code>false</code> if the build should fail.
+	 */
+	private boolean handleFailedUpload(final GlobalConfiguration globalConfig, final PangolinConfiguration config, final BulkUpdateParameters params,
+			final PangolinUploadResult result, final Run<?, ?> run, final FilePath workspace, final TaskListener listener) throws InterruptedException {
+		if (globalConfig.isSpoolFailedUploads() && result.isTransientFailure() && spool(globalConfig, config, params, result, run, workspace, listener)) {
+			return true;
+		}
+		if (config.getFailIfUploadFailed()) {
+			listener.getLogger().println(Messages.logFailIfUploadTrue());
+			return false;
+		}
+		listener.getLogger().println(Messages.logFailIfUploadFalse());
+		return true;
+	}
+
+	/**
+	 * Stores failed upload in the spool, so it is sent again when Pangolin is
+	 * reachable. Report files which have already been sent are not stored,
+	 * the rest is added into the same test run.
+	 *
+	 * @return <code>true</code> if the upload has been spooled.
+	 */
+	private boolean spool(final GlobalConfiguration globalConfig, final PangolinConfiguration config, final BulkUpdateParameters params,
+			final PangolinUploadResult result, final Run<?, ?> run, final FilePath workspace, final TaskListener listener) throws InterruptedException {
+		try {
+			final PangolinUploadSpool.SpooledUpload upload = PangolinUploadSpool.get().add(params, PangolinUploadSpool.ReportSettings.of(config),
+					run.getExternalizableId(), workspace, result.getUploadedFiles(), result.getTestRunId(),
+					globalConfig.getSpoolMaxSize() * 1024L * 1024L);
+			if (upload == null) {
+				return false;
+			}
+			listener.getLogger().println(Messages.uploadSpooledLog(upload.getName()));
+			return true;
+		} catch (final InterruptedException ex) {
+			throw ex;
+		} catch (final Exception ex) {
+			listener.getLogger().println(Messages.couldNotSpoolUpload() + ex.getMessage());
+			LOGGER.log(Level.SEVERE, Messages.couldNotSpoolUpload(), ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Logs an error which happened before or during the remote call and
+	 * applies <code>failIfUploadFailed</code> flag of each affected
+	 * configuration.
+	 *
+	 * @return <code>false</code> if at least one of configurations requires to
+	 *         fail the build.
+	 */
+	private boolean handleUploadError(final Throwable ex, final List<PangolinConfiguration> configurations, final TaskListener listener) {
+		final String message = Messages.uploadErrorMessage() + ex.getMessage();
+		final PrintStream logger = listener.getLogger();
+		logger.println(message);
+		ex.printStackTrace(logger);
+		LOGGER.log(Level.SEVERE, message, ex);
+		boolean success = true;
+		for (final PangolinConfiguration config : configurations) {
+			if (config.getFailIfUploadFailed()) {
+				logger.println(Messages.logFailIfUploadTrue());
+				success = false;
+			} else {
+				logger.println(Messages.logFailIfUploadFalse());
+			}
+		}
 		return success;
 	}
 
 	/**
-	 * Do bulk update.
+	 * Creates remote executor for the given configuration.
 	 *
 	 * @param globalConfig
 	 *            the global config
@@ -194,27 +668,117 @@ public class PangolinPublisher extends Recorder implements SimpleBuildStep {
 	 *            the run
 	 * @param workspace
 	 *            the workspace
-	 * @param launcher
-	 *            the launcher
 	 * @param listener
 	 *            the listener
+	 * @return the pangolin remote executor
 	 * @throws Exception
 	 *             the exception
 	 */
-	private void doBulkUpdate(final GlobalConfiguration globalConfig, final PangolinConfiguration config, final Run<?, ?> run, final FilePath workspace,
-			final Launcher launcher, final TaskListener listener)
-					throws Exception {
+	private PangolinRemoteExecutor createRemoteExecutor(final GlobalConfiguration globalConfig, final PangolinConfiguration config, final Run<?, ?> run,
+			final FilePath workspace, final TaskListener listener) throws Exception {
+		return createRemoteExecutor(globalConfig, config, run, workspace, listener, params -> {
+		});
+	}
+
+	/**
+	 * Creates remote executor for the given configuration. Resolved
+	 * parameters are modified by the given customizer before they are used to
+	 * find manifest of the previous upload and state of live upload.
+	 */
+	private PangolinRemoteExecutor createRemoteExecutor(final GlobalConfiguration globalConfig, final PangolinConfiguration config, final Run<?, ?> run,
+			final FilePath workspace, final TaskListener listener, final Consumer<BulkUpdateParameters> paramsCustomizer) throws Exception {
 		final BulkUpdateParameters params = BulkUpdateParametersFactory.create(globalConfig, config, this, pangolinClient, customSecret);
-		final PangolinRemoteExecutor remoteExecutor = new PangolinRemoteExecutor(workspace,
-				new BulkUpdateEnvSpecificParameters(params, run.getEnvironment(listener)), listener);
+		final ResolvedBulkUpdateParameters resolvedParams = ResolvedBulkUpdateParameters.resolve(params, run.getEnvironment(listener));
+		paramsCustomizer.accept(resolvedParams);
+		final PangolinRemoteExecutor remoteExecutor = new PangolinRemoteExecutor(workspace, resolvedParams, listener);
+		remoteExecutor.setCompactReports(config.isCompactReports());
+		remoteExecutor.setBundleReports(config.isBundleReports());
+		remoteExecutor.setReadArchives(config.isReadArchives());
+		remoteExecutor.setParallelScan(config.isParallelScan());
+		remoteExecutor.setStreamingUpload(config.isStreamingUpload());
+		if (config.isSkipUnchangedUploads()) {
+			final PangolinUploadManifestAction.Entry previous = PangolinUploadManifestAction.find(run.getPreviousSuccessfulBuild(),
+					PangolinUploadManifestAction.createKey(remoteExecutor.getParameters()));
+			remoteExecutor.setSkipUnchangedUploads(previous != null ? previous.getManifest() : null);
+		}
+		final PangolinLiveUploadSession.State liveState = PangolinLiveUploadAction.find(run,
+				PangolinUploadManifestAction.createKey(remoteExecutor.getParameters()));
+		if (liveState != null) {
+			remoteExecutor.setLiveUploadState(liveState.getUploadedFiles(), liveState.getTestRunId());
+		}
+		return remoteExecutor;
+	}
+
+	/**
+	 * Creates executors for live upload of report files during the build, one
+	 * per configuration.
+	 *
+	 * @return the executors
+	 * @throws Exception
+	 *             if global configuration is invalid or parameters can't be
+	 *             resolved.
+	 */
+	List<PangolinRemoteExecutor> createLiveUploadExecutors(final Run<?, ?> run, final FilePath workspace, final TaskListener listener) throws Exception {
+		final GlobalConfiguration globalConfig = globalConfigFactory.create();
+		GlobalConfigValidator.validate(globalConfig);
+		final List<PangolinRemoteExecutor> executors = new ArrayList<>();
+		for (final PangolinConfiguration config : getConfigs()) {
+			if (config.isUseJenkinsTestResults()) {
+				continue;
+			}
+			final PangolinRemoteExecutor remoteExecutor = createRemoteExecutor(globalConfig, config, run, workspace, listener);
+			executors.add(remoteExecutor);
+		}
+		return executors;
+	}
+
+	private static RetryPolicy createRetryPolicy(final GlobalConfiguration globalConfig) {
+		return new RetryPolicy(globalConfig.getUploadRetries(), TimeUnit.SECONDS.toMillis(globalConfig.getRetryDelay()),
+				RetryPolicy.DEFAULT_MAX_DELAY_MILLIS);
+	}
+
+	/**
+	 * Uploads are queued fairly by TestRail project.
+	 */
+	static String getQueueKey(final List<BulkUpdateParameters> params) {
+		final Set<String> projects = new TreeSet<>();
+		for (final BulkUpdateParameters param : params) {
+			projects.add(String.valueOf(param.getProject()));
+		}
+		return StringUtils.join(projects, ", ");
+	}
+
+	private static String getPreviousRunUrl(final Run<?, ?> run, final String manifestKey) {
+		final PangolinUploadManifestAction.Entry previous = PangolinUploadManifestAction.find(run.getPreviousSuccessfulBuild(), manifestKey);
+		return previous != null ? previous.getRunUrl() : null;
+	}
+
+	private static synchronized PangolinUploadManifestAction getManifestAction(final Run<?, ?> run) {
+		PangolinUploadManifestAction action = run.getAction(PangolinUploadManifestAction.class);
+		if (action == null) {
+			action = new PangolinUploadManifestAction();
+			run.addAction(action);
+		}
+		return action;
+	}
+
+	/**
+	 * Uploads all configurations with one remote call.
+	 *
+	 * @param launcher
+	 *            the launcher
+	 * @param batchExecutor
+	 *            the batch executor
+	 * @return upload results in the order of configurations
+	 * @throws Exception
+	 *             the exception
+	 */
+	private List<PangolinUploadResult> callRemote(final Launcher launcher, final PangolinBatchRemoteExecutor batchExecutor) throws Exception {
 		final VirtualChannel channel = launcher.getChannel();
 		if (channel == null) {
 			throw new IllegalStateException("VirtualChannel is null");
 		}
-		final String runUrl = channel.call(remoteExecutor);
-		if (runUrl != null) {
-			run.addAction(new PangolinRunLinkAction(runUrl));
-		}
+		return channel.call(batchExecutor);
 	}
 
 	/**
@@ -276,7 +840,82 @@ public class PangolinPublisher extends Recorder implements SimpleBuildStep {
 		setTestRailPasswordWithCustomSecretCheck(testRailPassword);
 	}
 
+	/**
+	 * Gets the maximum number of configurations which are uploaded
+	 * concurrently.
+	 *
+	 * @return the max parallel uploads
+	 */
+	public int getMaxParallelUploads() {
+		return maxParallelUploads;
+	}
+
+	/**
+	 * Sets the maximum number of configurations which are uploaded
+	 * concurrently. Values less than 2 mean sequential upload.
+	 *
+	 * @param maxParallelUploads
+	 *            the new max parallel uploads
+	 */
+	@DataBoundSetter
+	public void setMaxParallelUploads(final int maxParallelUploads) {
+		this.maxParallelUploads = maxParallelUploads;
+	}
+
+	/**
+	 * Checks if results are uploaded asynchronously.
+	 *
+	 * @return true, if upload is asynchronous
+	 */
+	public boolean isAsyncUpload() {
+		return asyncUpload;
+	}
+
+	/**
+	 * Sets the async upload flag. If set, upload is executed in background
+	 * and the build does not wait for it.
+	 *
+	 * @param asyncUpload
+	 *            the new async upload flag
+	 */
+	@DataBoundSetter
+	public void setAsyncUpload(final boolean asyncUpload) {
+		this.asyncUpload = asyncUpload;
+	}
+
+	private int getEffectiveMaxParallelUploads() {
+		// jobs saved by previous versions of the plugin have 0 here
+		return Math.max(maxParallelUploads, 1);
+	}
+
+	/**
+	 * @return TestRail password encrypted by Pangolin when the job was saved,
+	 *         can be <code>null</code>.
+	 */
+	public PangolinEncryptedPassword getPangolinEncryptedPassword() {
+		return pangolinEncryptedPassword;
+	}
+
+	/**
+	 * Encrypts TestRail password using Pangolin server, so it is not
+	 * encrypted on each build. If Pangolin is not available, the password is
+	 * encrypted at build time.
+	 */
+	void encryptPasswordForPangolin() {
+		this.pangolinEncryptedPassword = null;
+		if (customSecret == null || testRailPassword == null) {
+			return;
+		}
+		try {
+			this.pangolinEncryptedPassword = PangolinEncryptedPassword.create(customSecret.getPlainText(testRailPassword), globalConfigFactory.create(),
+					PangolinClientRegistry.THE_INSTANCE.get(pangolinClient), customSecret);
+		} catch (final Exception ex) {
+			LOGGER.log(Level.WARNING, "Could not encrypt TestRail password, it will be encrypted at build time. Error: " + ex.getMessage(), ex);
+		}
+	}
+
 	private void setTestRailPasswordWithCustomSecretCheck(final String testRailPassword) {
+		this.pangolinEncryptedPassword = null;
 		final String plainTextPassword = Util.fixEmpty(testRailPassword);
 		if (customSecret == null) {
 			this.testRailPassword = plainTextPassword;
@@ -299,6 +938,8 @@ public class PangolinPublisher extends Recorder implements SimpleBuildStep {
 
 		/** The Constant CONFIGURATION_OBJECT_NAME. */
 		private static final String CONFIGURATION_OBJECT_NAME = "configuration";
+		private static final String MAX_PARALLEL_UPLOADS_NAME = "maxParallelUploads";
+		private static final String ASYNC_UPLOAD_NAME = "asyncUpload";
 
 		/**
 		 * Constructor.
@@ -324,8 +965,31 @@ public class PangolinPublisher extends Recorder implements SimpleBuildStep {
 			if (req == null) {
 				throw new IllegalArgumentException("req parameter with " + StaplerRequest.class.getName() + " type is null");
 			}
-			return new PangolinPublisher(req.getParameter("testRailProject"), req.getParameter("testRailUserName"), req.getParameter("testRailPassword"),
-					req.bindJSONToList(PangolinConfiguration.class, formData.get(CONFIGURATION_OBJECT_NAME)));
+			final PangolinPublisher publisher = new PangolinPublisher(req.getParameter("testRailProject"), req.getParameter("testRailUserName"),
+					req.getParameter("testRailPassword"), req.bindJSONToList(PangolinConfiguration.class, formData.get(CONFIGURATION_OBJECT_NAME)));
+			publisher.setMaxParallelUploads(formData.optInt(MAX_PARALLEL_UPLOADS_NAME, 1));
+			publisher.setAsyncUpload(formData.optBoolean(ASYNC_UPLOAD_NAME));
+			publisher.encryptPasswordForPangolin();
+			return publisher;
+		}
+
+		/**
+		 * Do check max parallel uploads.
+		 *
+		 * @param maxParallelUploads
+		 *            the max parallel uploads
+		 * @return the form validation
+		 */
+		public FormValidation doCheckMaxParallelUploads(@QueryParameter final String maxParallelUploads) {
+			final String value = Util.fixEmptyAndTrim(maxParallelUploads);
+			if (value == null) {
+				return FormValidation.ok();
+			}
+			try {
+				return Integer.parseInt(value) > 0 ? FormValidation.ok() : FormValidation.error(Messages.maxParallelUploadsShouldBePositive());
+			} catch (final NumberFormatException ex) {
+				return FormValidation.error(Messages.maxParallelUploadsShouldBePositive());
+			}
 		}
 
 		/**
@@ -15,13 +15,30 @@
  */
 package com.agiletestware.pangolin;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.jenkinsci.remoting.RoleChecker;
 
+import com.agiletestware.pangolin.client.BuildLogger;
 import com.agiletestware.pangolin.client.DefaultPangolinClientFactory;
 import com.agiletestware.pangolin.client.PangolinClientFactory;
 import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+import com.agiletestware.pangolin.client.upload.ReportFilesProvider;
 import com.agiletestware.pangolin.client.upload.TestResultsUploader;
 import com.agiletestware.pangolin.shared.model.testresults.UploadResponse.RunInfo;
 
@@ -37,10 +54,26 @@ import hudson.remoting.Callable;
 public class PangolinRemoteExecutor implements Callable<String, Exception>, Serializable {
 
 	private static final long serialVersionUID = -8132991309548833113L;
+	/** Number of report files uploaded in one request in streaming mode. */
+	static final int STREAMING_BATCH_SIZE = 500;
+	/** How long a failed streaming upload waits for the scan thread to stop. */
+	private static final long SCAN_STOP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+	private static final String JUNIT_REPORT_FORMAT = "junit";
 	private final JenkinsBuildLogger logger;
 	private final FilePath workspace;
 	private final BulkUpdateParameters parameters;
 	private final PangolinClientFactory clientFactory;
+	private boolean compactReports;
+	private ReportBundler reportBundler;
+	private boolean readArchives;
+	private boolean skipUnchangedUploads;
+	private ReportFilesManifest previousManifest;
+	private boolean parallelScan;
+	private boolean streamingUpload;
+	private int streamingBatchSize = STREAMING_BATCH_SIZE;
+	private Set<String> liveUploadedFiles = Collections.emptySet();
+	private int liveTestRunId;
+	private final Set<String> uploadedFiles = new HashSet<>();
 
 	/**
 	 * Instantiates a new pangolin remote executor.
@@ -78,9 +111,456 @@ public class PangolinRemoteExecutor implements Callable<String, Exception>, Seri
 	 *             the exception
 	 */
 	public RunInfo execute() throws Exception {
-		final DefaultReportFilesProvider reportFilesProvider = new DefaultReportFilesProvider(workspace);
-		final TestResultsUploader testResultsUploader = new TestResultsUploader(clientFactory, DefaultMessagesProvider.THE_INSTANCE, reportFilesProvider);
-		return testResultsUploader.upload(parameters, logger);
+		return execute(logger);
+	}
+
+	/**
+	 * Uploads results using the given logger. If upload of unchanged reports
+	 * should be skipped, calculates manifest of the collected report files
+	 * and compares it with manifest of the previous upload, the same files are
+	 * uploaded if they have changed. Streaming upload is not used in this
+	 * case, because all report files must be hashed before upload.
+	 *
+	 * @param buildLogger
+	 *            the build logger
+	 * @return result of the upload
+	 * @throws Exception
+	 *             the exception
+	 */
+	PangolinUploadResult upload(final BuildLogger buildLogger) throws Exception {
+		if (!skipUnchangedUploads) {
+			final RunInfo runInfo = execute(buildLogger);
+			return PangolinUploadResult.success(runInfo != null ? runInfo.getRunUrl() : null, null, getTestRunId());
+		}
+		final ArchiveReportFilesProvider archiveProvider = createArchiveProvider(buildLogger);
+		try {
+			final List<File> files = getReportFiles(archiveProvider, buildLogger);
+			final Function<File, String> relativePathResolver = getRelativePathResolver(archiveProvider);
+			final ReportFilesManifest manifest = ReportFilesManifest.create(files, relativePathResolver);
+			if (!manifest.isEmpty() && manifest.equals(previousManifest)) {
+				buildLogger.info(Messages.uploadSkippedUnchangedLog(parameters.getResultPattern()));
+				return PangolinUploadResult.skipped(manifest);
+			}
+			final RunInfo runInfo = uploadReportFiles(files, relativePathResolver, buildLogger);
+			return PangolinUploadResult.success(runInfo != null ? runInfo.getRunUrl() : null, manifest, getTestRunId());
+		} finally {
+			if (archiveProvider != null) {
+				archiveProvider.cleanUp();
+			}
+		}
+	}
+
+	/**
+	 * @return provider of report files in the workspace and in archives, or
+	 *         <code>null</code> if archives are not read.
+	 */
+	private ArchiveReportFilesProvider createArchiveProvider(final BuildLogger buildLogger) {
+		if (!readArchives || workspace.isRemote()) {
+			return null;
+		}
+		return new ArchiveReportFilesProvider(new DefaultReportFilesProvider(workspace, parallelScan, buildLogger), new File(workspace.getRemote()),
+				buildLogger);
+	}
+
+	/**
+	 * @return report files in the workspace and in archives if the given
+	 *         provider is not <code>null</code>.
+	 */
+	private List<File> getReportFiles(final ArchiveReportFilesProvider archiveProvider, final BuildLogger buildLogger) {
+		final ReportFilesProvider filesProvider = archiveProvider != null ? archiveProvider
+				: new DefaultReportFilesProvider(workspace, parallelScan, buildLogger);
+		return filesProvider.getReportFiles(parameters.getResultPattern());
+	}
+
+	private Function<File, String> getRelativePathResolver(final ArchiveReportFilesProvider archiveProvider) {
+		return archiveProvider != null ? archiveProvider::getRelativePath : this::getRelativePath;
+	}
+
+	/**
+	 * Execute using the given logger.
+	 *
+	 * @param buildLogger
+	 *            the build logger
+	 * @throws Exception
+	 *             the exception
+	 */
+	RunInfo execute(final BuildLogger buildLogger) throws Exception {
+		if (streamingUpload && !workspace.isRemote()) {
+			return executeStreaming(buildLogger);
+		}
+		final ArchiveReportFilesProvider archiveProvider = createArchiveProvider(buildLogger);
+		try {
+			return uploadReportFiles(getReportFiles(archiveProvider, buildLogger), getRelativePathResolver(archiveProvider), buildLogger);
+		} finally {
+			if (archiveProvider != null) {
+				archiveProvider.cleanUp();
+			}
+		}
+	}
+
+	/**
+	 * Uploads the collected report files except for files which have already
+	 * been uploaded during the build.
+	 */
+	private RunInfo uploadReportFiles(final List<File> reportFiles, final Function<File, String> relativePathResolver, final BuildLogger buildLogger)
+			throws Exception {
+		if (liveTestRunId > 0) {
+			parameters.setTestRunId(liveTestRunId);
+		}
+		if (liveUploadedFiles.isEmpty()) {
+			return execute(pattern -> reportFiles, relativePathResolver, buildLogger);
+		}
+		final List<File> files = new ArrayList<>();
+		for (final File file : reportFiles) {
+			if (!liveUploadedFiles.contains(relativePathResolver.apply(file))) {
+				files.add(file);
+			}
+		}
+		buildLogger.info(Messages.liveUploadRemainderLog(files.size(), liveUploadedFiles.size()));
+		return execute(pattern -> files, relativePathResolver, buildLogger);
+	}
+
+	/**
+	 * @return path of the file relative to the workspace, with '/' as
+	 *         separator.
+	 */
+	String getRelativePath(final File file) {
+		return new File(workspace.getRemote()).toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Uploads report files while the workspace is still being scanned. Found
+	 * files are passed through a bounded queue and uploaded in batches of
+	 * {@link #STREAMING_BATCH_SIZE} files. All batches are added into the same
+	 * test run (uploader stores its id in parameters) and only the last batch
+	 * closes the run. If upload fails, the scan thread is stopped before the
+	 * error is thrown.
+	 */
+	private RunInfo executeStreaming(final BuildLogger buildLogger) throws Exception {
+		if (liveTestRunId > 0) {
+			parameters.setTestRunId(liveTestRunId);
+		}
+		final BlockingQueue<File> queue = new ArrayBlockingQueue<>(2 * streamingBatchSize);
+		final File end = new File("");
+		final AtomicReference<Throwable> scanError = new AtomicReference<>();
+		final AtomicBoolean stopped = new AtomicBoolean();
+		final ReportFileScanner scanner = new ReportFileScanner(parameters.getResultPattern());
+		final Thread scanThread = new Thread(() -> {
+			try {
+				scanner.scan(new File(workspace.getRemote()), file -> {
+					try {
+						if (stopped.get()) {
+							throw new CancellationException();
+						}
+						if (!liveUploadedFiles.contains(getRelativePath(file))) {
+							queue.put(file);
+						}
+					} catch (final InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new CancellationException();
+					}
+				});
+			} catch (final Throwable ex) {
+				scanError.set(ex);
+			} finally {
+				// nobody takes files once upload has finished, so do not wait for free space then
+				try {
+					while (!stopped.get() && !queue.offer(end, 100, TimeUnit.MILLISECONDS)) {
+						// upload is still taking files
+					}
+				} catch (final InterruptedException ex) {
+					// upload has already finished
+				}
+			}
+		}, "Pangolin report scan");
+		scanThread.setDaemon(true);
+		final boolean closeRun = parameters.isCloseRun();
+		try {
+			scanThread.start();
+			RunInfo runInfo = null;
+			int batches = 0;
+			int files = 0;
+			List<File> batch = new ArrayList<>();
+			File next = queue.take();
+			while (next != end) {
+				batch.add(next);
+				next = queue.take();
+				if (batch.size() >= streamingBatchSize && next != end) {
+					// more files follow, so this batch must not close the run
+					parameters.setCloseRun(false);
+					runInfo = uploadFiles(batch, buildLogger);
+					batches++;
+					files += batch.size();
+					batch = new ArrayList<>();
+				}
+			}
+			if (scanError.get() != null) {
+				throw new IOException("Could not scan workspace for report files: " + scanError.get().getMessage(), scanError.get());
+			}
+			if (!batch.isEmpty() || runInfo == null) {
+				parameters.setCloseRun(closeRun);
+				runInfo = uploadFiles(batch, buildLogger);
+				batches++;
+				files += batch.size();
+			}
+			buildLogger.info(Messages.streamingUploadLog(files, batches, scanner.getDirectoriesVisited()));
+			return runInfo;
+		} finally {
+			parameters.setCloseRun(closeRun);
+			stopped.set(true);
+			scanThread.interrupt();
+			queue.clear();
+			scanThread.join(SCAN_STOP_TIMEOUT_MILLIS);
+		}
+	}
+
+	/**
+	 * Uploads the given report files.
+	 *
+	 * @param batch
+	 *            report files
+	 * @param buildLogger
+	 *            the build logger
+	 * @return run info
+	 * @throws Exception
+	 *             the exception
+	 */
+	RunInfo uploadFiles(final List<File> batch, final BuildLogger buildLogger) throws Exception {
+		final List<File> files = Collections.unmodifiableList(batch);
+		return execute(pattern -> files, this::getRelativePath, buildLogger);
+	}
+
+	/**
+	 * Uploads report files of the given provider.
+	 *
+	 * @param relativePathResolver
+	 *            resolves path of a report file relative to the workspace
+	 */
+	private RunInfo execute(final ReportFilesProvider reportsProvider, final Function<File, String> relativePathResolver,
+			final BuildLogger buildLogger) throws Exception {
+		ReportFilesProvider filesProvider = reportsProvider;
+		final CompactingReportFilesProvider compactingProvider = compactReports ? new CompactingReportFilesProvider(filesProvider,
+				relativePathResolver, new ReportCompactor(ReportCompactor.DEFAULT_MAX_TEXT_LENGTH), buildLogger) : null;
+		if (compactingProvider != null) {
+			filesProvider = compactingProvider;
+		}
+		final MeasuringReportFilesProvider reportFilesProvider = new MeasuringReportFilesProvider(filesProvider);
+		filesProvider = reportFilesProvider;
+		final BundlingReportFilesProvider bundlingProvider = reportBundler != null && JUNIT_REPORT_FORMAT.equalsIgnoreCase(parameters.getReportFormat())
+				? new BundlingReportFilesProvider(filesProvider, reportBundler, buildLogger) : null;
+		if (bundlingProvider != null) {
+			filesProvider = bundlingProvider;
+		}
+		// remember sent report files, so failed upload can be resumed
+		final Consumer<File> uploadedFileHandler = file -> {
+			for (final File source : bundlingProvider != null ? bundlingProvider.getSources(file) : Collections.singletonList(file)) {
+				uploadedFiles.add(relativePathResolver.apply(compactingProvider != null ? compactingProvider.getSource(source) : source));
+			}
+		};
+		try {
+			final long start = System.currentTimeMillis();
+			final RunInfo runInfo = upload(filesProvider.getReportFiles(parameters.getResultPattern()), uploadedFileHandler, buildLogger);
+			logMetrics(reportFilesProvider, System.currentTimeMillis() - start, buildLogger);
+			return runInfo;
+		} finally {
+			if (compactingProvider != null) {
+				compactingProvider.cleanUp();
+			}
+			if (bundlingProvider != null) {
+				bundlingProvider.cleanUp();
+			}
+		}
+	}
+
+	/**
+	 * Uploads report files, each file is sent in its own request like
+	 * {@link TestResultsUploader} does. Uploader stores id of created test run
+	 * in parameters, so all requests add results into the same run and only
+	 * the last one closes it. Each sent file is passed to the given handler,
+	 * so upload which has failed can be resumed by the controller (see
+	 * {@link #resume(PangolinUploadResult)}) without sending the same files
+	 * again.
+	 */
+	private RunInfo upload(final List<File> files, final Consumer<File> uploadedFileHandler, final BuildLogger buildLogger) throws Exception {
+		if (files.isEmpty()) {
+			// uploader reports that no report files have been found
+			return createUploader(files).upload(parameters, buildLogger);
+		}
+		final boolean closeRun = parameters.isCloseRun();
+		RunInfo runInfo = null;
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				parameters.setCloseRun(closeRun && i == files.size() - 1);
+				runInfo = createUploader(Collections.singletonList(files.get(i))).upload(parameters, buildLogger);
+				uploadedFileHandler.accept(files.get(i));
+			}
+		} finally {
+			parameters.setCloseRun(closeRun);
+		}
+		return runInfo;
+	}
+
+	private TestResultsUploader createUploader(final List<File> files) {
+		return new TestResultsUploader(PangolinClientRegistry.THE_INSTANCE.shared(clientFactory), DefaultMessagesProvider.THE_INSTANCE,
+				pattern -> files);
+	}
+
+	/**
+	 * Sets the parallel scan flag. If set, workspace directories are scanned
+	 * for report files in parallel.
+	 *
+	 * @param parallelScan
+	 *            the new parallel scan flag
+	 */
+	public void setParallelScan(final boolean parallelScan) {
+		this.parallelScan = parallelScan;
+	}
+
+	/**
+	 * Sets the streaming upload flag. If set, report files are uploaded in
+	 * batches while the workspace is still being scanned. It is ignored if
+	 * upload of unchanged reports is skipped.
+	 *
+	 * @param streamingUpload
+	 *            the new streaming upload flag
+	 */
+	public void setStreamingUpload(final boolean streamingUpload) {
+		this.streamingUpload = streamingUpload;
+	}
+
+	/**
+	 * Sets state of live upload made by {@link PangolinLiveUploadWrapper}
+	 * during the build: already uploaded files are skipped and the rest is
+	 * added into the same test run.
+	 *
+	 * @param uploadedFiles
+	 *            paths of uploaded files relative to the workspace.
+	 * @param testRunId
+	 *            id of the test run created by live upload.
+	 */
+	public void setLiveUploadState(final Set<String> uploadedFiles, final int testRunId) {
+		this.liveUploadedFiles = new HashSet<>(uploadedFiles);
+		this.liveTestRunId = testRunId;
+	}
+
+	/**
+	 * Adds results into an existing test run instead of creating a new one,
+	 * see {@link PangolinUploadCoalescer}.
+	 *
+	 * @param testRunId
+	 *            id of the test run.
+	 */
+	void joinTestRun(final int testRunId) {
+		this.liveTestRunId = testRunId;
+	}
+
+	/**
+	 * Prepares the executor to continue upload which has failed with a
+	 * transient error: files sent before the failure are skipped and the rest
+	 * is added into the same test run.
+	 *
+	 * @param failure
+	 *            result of the failed upload.
+	 */
+	void resume(final PangolinUploadResult failure) {
+		final Set<String> files = new HashSet<>(liveUploadedFiles);
+		files.addAll(failure.getUploadedFiles());
+		liveUploadedFiles = files;
+		if (failure.getTestRunId() > 0) {
+			liveTestRunId = failure.getTestRunId();
+		}
+	}
+
+	/**
+	 * @return paths of sent report files relative to the workspace including
+	 *         files sent by live upload and by previous attempts.
+	 */
+	Set<String> getUploadedFiles() {
+		final Set<String> files = new HashSet<>(liveUploadedFiles);
+		files.addAll(uploadedFiles);
+		return files;
+	}
+
+	/**
+	 * @return id of the test run which results are added into, 0 if the run
+	 *         has not been created yet.
+	 */
+	int getTestRunId() {
+		return parameters.getTestRunId() > 0 ? parameters.getTestRunId() : liveTestRunId;
+	}
+
+	void setStreamingBatchSize(final int streamingBatchSize) {
+		this.streamingBatchSize = streamingBatchSize;
+	}
+
+	/**
+	 * Sets the compact reports flag. If set, captured output is removed from
+	 * reports on the agent before upload.
+	 *
+	 * @param compactReports
+	 *            the new compact reports flag
+	 */
+	public void setCompactReports(final boolean compactReports) {
+		this.compactReports = compactReports;
+	}
+
+	/**
+	 * Sets the bundle reports flag. If set, JUnit reports are packed into
+	 * bundles of up to {@link ReportBundler#DEFAULT_MAX_BUNDLE_FILES} files and
+	 * {@link ReportBundler#DEFAULT_MAX_BUNDLE_BYTES} bytes, each bundle is
+	 * sent in one request.
+	 *
+	 * @param bundleReports
+	 *            the new bundle reports flag
+	 */
+	public void setBundleReports(final boolean bundleReports) {
+		setReportBundler(bundleReports ? new ReportBundler(ReportBundler.DEFAULT_MAX_BUNDLE_BYTES, ReportBundler.DEFAULT_MAX_BUNDLE_FILES) : null);
+	}
+
+	/**
+	 * Sets the read archives flag. If set, report files are also read from
+	 * zip and tar archives in the workspace, see {@link ArchiveReportExtractor}.
+	 * Archives are not read in streaming mode.
+	 *
+	 * @param readArchives
+	 *            the new read archives flag
+	 */
+	public void setReadArchives(final boolean readArchives) {
+		this.readArchives = readArchives;
+	}
+
+	void setReportBundler(final ReportBundler reportBundler) {
+		this.reportBundler = reportBundler;
+	}
+
+	/**
+	 * Enables skipping of upload if report files are the same as in the
+	 * given manifest.
+	 *
+	 * @param previousManifest
+	 *            manifest of the previous upload, can be <code>null</code>.
+	 */
+	public void setSkipUnchangedUploads(final ReportFilesManifest previousManifest) {
+		this.skipUnchangedUploads = true;
+		this.previousManifest = previousManifest;
+	}
+
+	BulkUpdateParameters getParameters() {
+		return parameters;
+	}
+
+	boolean isLiveUploaded() {
+		return liveTestRunId > 0;
+	}
+
+	FilePath getWorkspace() {
+		return workspace;
+	}
+
+	private static void logMetrics(final MeasuringReportFilesProvider reportFilesProvider, final long durationMillis, final BuildLogger buildLogger) {
+		final long bytes = reportFilesProvider.getTotalBytes();
+		final long throughput = durationMillis > 0 ? bytes * 1000 / 1024 / durationMillis : 0;
+		buildLogger.info(Messages.uploadMetricsLog(reportFilesProvider.getFileCount(), bytes, durationMillis, throughput));
 	}
 
 	@Override
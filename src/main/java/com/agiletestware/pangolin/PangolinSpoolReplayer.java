@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.agiletestware.pangolin.PangolinUploadSpool.SpooledUpload;
+import com.agiletestware.pangolin.client.UrlAvailableValidator;
+import com.agiletestware.pangolin.shared.model.testresults.UploadResponse.RunInfo;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Periodically sends uploads from {@link PangolinUploadSpool} to Pangolin.
+ * Uploads are sent only if Pangolin server is reachable and its
+ * {@link PangolinCircuitBreaker} is not open, at most
+ * {@link #MAX_RUNNING_REPLAYS} at the same time. Each replay waits for a
+ * permit of {@link PangolinUploadScheduler} like uploads of builds and is
+ * sent with report settings of the spooled configuration. Report files sent by a failed
+ * attempt are not sent again. An upload which failed {@link #MAX_ATTEMPTS}
+ * times or failed with an error which is not transient is removed from the
+ * spool, the build which spooled it is marked with failed
+ * {@link PangolinUploadStatusAction}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+@Extension
+public class PangolinSpoolReplayer extends AsyncPeriodicWork {
+
+	static final int MAX_RUNNING_REPLAYS = 2;
+	static final int MAX_ATTEMPTS = 10;
+	private static final int REACHABILITY_TIMEOUT_MILLIS = 20000;
+
+	public PangolinSpoolReplayer() {
+		super("Pangolin spool replayer");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return MIN;
+	}
+
+	@Override
+	protected void execute(final TaskListener listener) throws IOException, InterruptedException {
+		final List<SpooledUpload> uploads = PangolinUploadSpool.get().list();
+		if (uploads.isEmpty()) {
+			return;
+		}
+		final GlobalConfiguration globalConfig = DefaultGlobalConfigFactory.THE_INSTANCE.create();
+		final Map<String, Boolean> reachableUrls = new HashMap<>();
+		final UrlAvailableValidator urlValidator = new UrlAvailableValidator(new JenkinsLogger(PangolinSpoolReplayer.class));
+		final List<Callable<Void>> replays = new ArrayList<>();
+		for (final SpooledUpload upload : uploads) {
+			final ResolvedBulkUpdateParameters params;
+			try {
+				params = upload.getParameters();
+			} catch (final IOException | RuntimeException ex) {
+				logger.log(Level.SEVERE, "Could not read spooled upload " + upload.getName() + ", removing it", ex);
+				PangolinUploadSpool.get().remove(upload);
+				continue;
+			}
+			if (reachableUrls.computeIfAbsent(params.getPangolinUrl(), url -> urlValidator.isUrlReachable(url, REACHABILITY_TIMEOUT_MILLIS))) {
+				replays.add(() -> {
+					replay(globalConfig, upload, params, listener);
+					return null;
+				});
+			}
+		}
+		if (replays.isEmpty()) {
+			return;
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_RUNNING_REPLAYS, replays.size()),
+				new NamingThreadFactory(new DaemonThreadFactory(), "Pangolin spool replay"));
+		try {
+			executor.invokeAll(replays);
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	private void replay(final GlobalConfiguration globalConfig, final SpooledUpload upload, final ResolvedBulkUpdateParameters params,
+			final TaskListener listener) throws IOException, InterruptedException {
+		final PangolinCircuitBreaker breaker = PangolinCircuitBreaker.forUrl(params.getPangolinUrl());
+		if (!breaker.allowRequest(globalConfig.getCircuitBreakerThreshold(), System.currentTimeMillis())) {
+			listener.getLogger().println(Messages.circuitBreakerRejectedLog(params.getPangolinUrl()));
+			return;
+		}
+		final PangolinRemoteExecutor executor = new PangolinRemoteExecutor(new FilePath(upload.getReportsDir()), params, listener);
+		upload.getSettings().apply(executor);
+		try {
+			final RunInfo runInfo;
+			try (final PangolinUploadScheduler.Permit permit = PangolinUploadScheduler.THE_INSTANCE
+					.acquire(PangolinPublisher.getQueueKey(Collections.singletonList(params)), globalConfig.getMaxConcurrentUploads())) {
+				runInfo = executor.execute(new JenkinsBuildLogger(listener));
+			}
+			breaker.recordSuccess();
+			final String runId = upload.getRunId();
+			PangolinUploadSpool.get().remove(upload);
+			listener.getLogger().println(Messages.spoolReplayedLog(upload.getName(), runId));
+			addRunLink(runId, runInfo);
+		} catch (final InterruptedException ex) {
+			throw ex;
+		} catch (final Exception ex) {
+			if (RetryPolicy.isRetryable(ex) && breaker.recordFailure(globalConfig.getCircuitBreakerThreshold(), System.currentTimeMillis())) {
+				listener.getLogger().println(Messages.circuitBreakerOpenedLog(params.getPangolinUrl(), breaker.getConsecutiveFailures(),
+						PangolinCircuitBreaker.OPEN_PERIOD_MILLIS / 1000));
+			}
+			final int attempts = upload.incrementAttempts(executor.getUploadedFiles(), executor.getTestRunId());
+			if (attempts >= MAX_ATTEMPTS || !RetryPolicy.isRetryable(ex)) {
+				final String message = Messages.spoolGaveUpLog(upload.getName(), attempts);
+				logger.log(Level.SEVERE, message, ex);
+				listener.getLogger().println(message);
+				markFailed(upload.getRunId(), message + ": " + ex.getMessage());
+				PangolinUploadSpool.get().remove(upload);
+			} else {
+				logger.log(Level.WARNING, "Could not replay spooled upload " + upload.getName() + ", attempt " + attempts, ex);
+			}
+		}
+	}
+
+	/**
+	 * Shows on the page of the build that its upload has been given up.
+	 */
+	private void markFailed(final String runId, final String message) {
+		final Run<?, ?> run = runId != null ? Run.fromExternalizableId(runId) : null;
+		if (run == null) {
+			return;
+		}
+		PangolinUploadStatusAction status = run.getAction(PangolinUploadStatusAction.class);
+		if (status == null) {
+			status = new PangolinUploadStatusAction();
+			run.addAction(status);
+		}
+		status.update(PangolinUploadStatusAction.Status.FAILED, message);
+		try {
+			run.save();
+		} catch (final IOException ex) {
+			logger.log(Level.WARNING, "Could not save build " + runId, ex);
+		}
+	}
+
+	private void addRunLink(final String runId, final RunInfo runInfo) {
+		if (runId == null || runInfo == null || runInfo.getRunUrl() == null) {
+			return;
+		}
+		final Run<?, ?> run = Run.fromExternalizableId(runId);
+		if (run == null) {
+			return;
+		}
+		run.addAction(new PangolinRunLinkAction(runInfo.getRunUrl()));
+		try {
+			run.save();
+		} catch (final IOException ex) {
+			logger.log(Level.WARNING, "Could not save build " + runId, ex);
+		}
+	}
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Merges uploads into the same TestRail run which are submitted within a
+ * short window, so results of different builds (e.g. matrix configurations
+ * or parallel builds) are added into one run instead of creating a run per
+ * upload. When the window is closed, uploads of the group are executed one
+ * after another: the first one creates the run, the others add their results
+ * into it and only the last one closes the run. Groups are uploaded by a
+ * bounded pool of the coalescer's threads, each upload uses the remote
+ * executor of its build, so report files are read from its own workspace
+ * with its own settings.<br/>
+ * The coalescer remembers jobs which have submitted uploads into each run, so
+ * the window can be closed early if no running build of these jobs is
+ * expected to join it.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinUploadCoalescer {
+
+	/** The instance. */
+	public static final PangolinUploadCoalescer THE_INSTANCE = new PangolinUploadCoalescer();
+	/** Max number of groups which are uploaded at the same time. */
+	static final int MAX_UPLOAD_THREADS = 4;
+	/** Max number of keys which jobs are remembered for. */
+	static final int MAX_KNOWN_KEYS = 1000;
+	private static final Logger LOGGER = Logger.getLogger(PangolinUploadCoalescer.class.getName());
+	private final Map<String, Group> groups = new HashMap<>();
+	private final Map<String, Set<String>> jobs = new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Set<String>> eldest) {
+			return size() > MAX_KNOWN_KEYS;
+		}
+	};
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+			new NamingThreadFactory(new DaemonThreadFactory(), "Pangolin upload coalescer"));
+	private final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_UPLOAD_THREADS, MAX_UPLOAD_THREADS, 60, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), new NamingThreadFactory(new DaemonThreadFactory(), "Pangolin coalesced upload"));
+
+	public PangolinUploadCoalescer() {
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Creates key of uploads which can be merged. It includes resolved
+	 * parameters which identify TestRail run, so uploads with different
+	 * report files, formats or test paths can be added into the same run.
+	 *
+	 * @param params
+	 *            upload parameters
+	 * @return the key
+	 */
+	public static String createKey(final BulkUpdateParameters params) {
+		return StringUtils.join(Arrays.asList(params.getPangolinUrl(), params.getTestRailUrl(), params.getTestRailUser(), params.getProject(),
+				params.getTestPlan(), params.getTestRun(), params.getConfigurationNames(), params.getMilestonePath(), params.isCloseRun()), '\n');
+	}
+
+	/**
+	 * Gets full names of jobs which builds have submitted uploads with the
+	 * given key.
+	 *
+	 * @param key
+	 *            the key, see {@link #createKey(BulkUpdateParameters)}
+	 * @return names of the jobs or <code>null</code> if no upload with the key
+	 *         has been submitted yet.
+	 */
+	public synchronized Set<String> getJobs(final String key) {
+		final Set<String> keyJobs = jobs.get(key);
+		return keyJobs == null ? null : new HashSet<>(keyJobs);
+	}
+
+	/**
+	 * Submits upload.
+	 *
+	 * @param params
+	 *            upload parameters
+	 * @param runId
+	 *            externalizable id of the build which submits the upload, its
+	 *            job is remembered for the key
+	 * @param uploader
+	 *            executes the upload when it's its turn
+	 * @param windowMillis
+	 *            how long to wait for other uploads to merge
+	 * @param pendingRuns
+	 *            ids of builds which are expected to submit uploads with the
+	 *            same key, including the given build if it has more uploads
+	 *            to submit. Builds which have already submitted uploads into
+	 *            the window are ignored. The window is closed as soon as all
+	 *            of them have submitted their uploads. <code>null</code> if
+	 *            they are unknown, so the window is closed only by timeout.
+	 * @return future result of the upload
+	 */
+	public synchronized CompletableFuture<Result> submit(final BulkUpdateParameters params, final String runId, final Uploader uploader,
+			final long windowMillis, final Collection<String> pendingRuns) {
+		final String key = createKey(params);
+		jobs.computeIfAbsent(key, k -> new HashSet<>()).add(StringUtils.substringBeforeLast(runId, "#"));
+		Group group = groups.get(key);
+		if (group == null) {
+			group = new Group();
+			groups.put(key, group);
+			final Group scheduled = group;
+			group.timeout = scheduler.schedule(() -> close(key, scheduled), windowMillis, TimeUnit.MILLISECONDS);
+		}
+		final Member member = new Member(uploader);
+		group.members.add(member);
+		group.joinedRuns.add(runId);
+		group.pendingRuns.remove(runId);
+		if (pendingRuns == null) {
+			group.unknownRuns = true;
+			return member.future;
+		}
+		for (final String pendingRun : pendingRuns) {
+			// builds which have already joined are still running, but only the submitting build can have more uploads
+			if (pendingRun.equals(runId) || !group.joinedRuns.contains(pendingRun)) {
+				group.pendingRuns.add(pendingRun);
+			}
+		}
+		if (group.pendingRuns.isEmpty() && !group.unknownRuns) {
+			close(key, group);
+		}
+		return member.future;
+	}
+
+	private synchronized void close(final String key, final Group group) {
+		if (groups.get(key) != group) {
+			return;
+		}
+		groups.remove(key);
+		group.timeout.cancel(false);
+		executor.execute(() -> upload(group.members));
+	}
+
+	private static void upload(final List<Member> members) {
+		int testRunId = 0;
+		for (int i = 0; i < members.size(); i++) {
+			final Member member = members.get(i);
+			try {
+				final PangolinUploadResult result = member.uploader.upload(testRunId, i == members.size() - 1);
+				if (result.getTestRunId() > 0) {
+					testRunId = result.getTestRunId();
+				}
+				member.future.complete(new Result(result, members.size()));
+			} catch (final Throwable ex) {
+				LOGGER.log(Level.SEVERE, "Merged upload failed", ex);
+				member.future.completeExceptionally(ex);
+			}
+		}
+	}
+
+	/**
+	 * Executes one of merged uploads.
+	 */
+	public interface Uploader {
+
+		/**
+		 * Uploads results.
+		 *
+		 * @param testRunId
+		 *            id of the run created by previous uploads of the group
+		 *            which results should be added into, 0 if the run must
+		 *            be created.
+		 * @param lastUpload
+		 *            <code>true</code> if this is the last upload of the
+		 *            group, so it can close the run.
+		 * @return result of the upload including id of the test run.
+		 * @throws Exception
+		 *             if upload has failed.
+		 */
+		PangolinUploadResult upload(int testRunId, boolean lastUpload) throws Exception;
+	}
+
+	/**
+	 * Uploads to be merged.
+	 */
+	private static final class Group {
+		private final List<Member> members = new ArrayList<>();
+		private final Set<String> joinedRuns = new HashSet<>();
+		private final Set<String> pendingRuns = new HashSet<>();
+		private boolean unknownRuns;
+		private ScheduledFuture<?> timeout;
+	}
+
+	private static final class Member {
+		private final Uploader uploader;
+		private final CompletableFuture<Result> future = new CompletableFuture<>();
+
+		private Member(final Uploader uploader) {
+			this.uploader = uploader;
+		}
+	}
+
+	/**
+	 * Result of merged upload.
+	 */
+	public static final class Result {
+		private final PangolinUploadResult uploadResult;
+		private final int mergedUploads;
+
+		Result(final PangolinUploadResult uploadResult, final int mergedUploads) {
+			this.uploadResult = uploadResult;
+			this.mergedUploads = mergedUploads;
+		}
+
+		/**
+		 * @return result of the caller's upload.
+		 */
+		public PangolinUploadResult getUploadResult() {
+			return uploadResult;
+		}
+
+		/**
+		 * @return number of uploads merged into the same run.
+		 */
+		public int getMergedUploads() {
+			return mergedUploads;
+		}
+	}
+}
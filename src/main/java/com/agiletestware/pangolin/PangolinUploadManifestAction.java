@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+
+import hudson.model.Action;
+import hudson.model.Run;
+
+/**
+ * Invisible build action which stores manifests of report files uploaded by
+ * each configuration of the build. Manifests are compared with the next
+ * build to skip upload of unchanged reports.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinUploadManifestAction implements Action, Serializable {
+
+	private static final long serialVersionUID = -6035817327498744151L;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	@Override
+	public String getIconFileName() {
+		return null;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return null;
+	}
+
+	@Override
+	public String getUrlName() {
+		return null;
+	}
+
+	/**
+	 * Creates key which identifies upload of a configuration across builds.
+	 *
+	 * @param params
+	 *            resolved upload parameters.
+	 * @return the key
+	 */
+	public static String createKey(final BulkUpdateParameters params) {
+		return StringUtils.join(Arrays.asList(params.getTestRailUrl(), params.getProject(), params.getTestPath(), params.getTestPlan(), params.getTestRun(),
+				params.getMilestonePath(), params.getConfigurationNames(), params.getReportFormat(), params.getResultPattern()), '\n');
+	}
+
+	/**
+	 * Finds entry for the given key in the given build.
+	 *
+	 * @param run
+	 *            build, can be <code>null</code>.
+	 * @param key
+	 *            the key
+	 * @return the entry or <code>null</code>
+	 */
+	public static Entry find(final Run<?, ?> run, final String key) {
+		if (run == null) {
+			return null;
+		}
+		final PangolinUploadManifestAction action = run.getAction(PangolinUploadManifestAction.class);
+		return action != null ? action.entries.get(key) : null;
+	}
+
+	/**
+	 * Adds an entry.
+	 *
+	 * @param key
+	 *            the key
+	 * @param manifest
+	 *            manifest of uploaded files
+	 * @param runUrl
+	 *            URL of TestRail run, can be <code>null</code>.
+	 */
+	public void put(final String key, final ReportFilesManifest manifest, final String runUrl) {
+		entries.put(key, new Entry(manifest, runUrl));
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	/**
+	 * Manifest of uploaded files and URL of TestRail run.
+	 */
+	public static final class Entry implements Serializable {
+
+		private static final long serialVersionUID = 1617025513944207937L;
+		private final ReportFilesManifest manifest;
+		private final String runUrl;
+
+		Entry(final ReportFilesManifest manifest, final String runUrl) {
+			this.manifest = manifest;
+			this.runUrl = runUrl;
+		}
+
+		public ReportFilesManifest getManifest() {
+			return manifest;
+		}
+
+		public String getRunUrl() {
+			return runUrl;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.init.Terminator;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Controller side queue of asynchronous uploads. Uploads are executed in
+ * background threads, so build executors are not blocked while results are
+ * being uploaded into TestRail.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public enum PangolinUploadQueue {
+
+	THE_INSTANCE;
+
+	/** How long Jenkins waits for interrupted uploads when it stops. */
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+	private static final Logger LOGGER = Logger.getLogger(PangolinUploadQueue.class.getName());
+
+	private final ThreadPoolExecutor executor = new ThreadPoolExecutor(GlobalConfig.DEFAULT_MAX_ASYNC_UPLOADS,
+			GlobalConfig.DEFAULT_MAX_ASYNC_UPLOADS, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+			new NamingThreadFactory(new DaemonThreadFactory(), "Pangolin async upload"));
+
+	/**
+	 * Adds an upload task to the queue.
+	 *
+	 * @param upload
+	 *            upload task.
+	 * @param maxRunningUploads
+	 *            max number of uploads running at the same time, see
+	 *            {@link GlobalConfiguration#getMaxAsyncUploads()}.
+	 */
+	public synchronized void submit(final Runnable upload, final int maxRunningUploads) {
+		final int size = Math.max(1, maxRunningUploads);
+		if (size > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(size);
+			executor.setCorePoolSize(size);
+		} else if (size < executor.getMaximumPoolSize()) {
+			executor.setCorePoolSize(size);
+			executor.setMaximumPoolSize(size);
+		}
+		executor.execute(upload);
+	}
+
+	/**
+	 * Interrupts running uploads when Jenkins stops and waits until they
+	 * clean up. Queued uploads are not started, they are reported as
+	 * interrupted when the build is loaded, see
+	 * {@link PangolinUploadStatusAction}.
+	 */
+	@Terminator
+	public static void shutdown() {
+		THE_INSTANCE.executor.shutdownNow();
+		try {
+			if (!THE_INSTANCE.executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				LOGGER.log(Level.WARNING, "Asynchronous uploads have not stopped in " + SHUTDOWN_TIMEOUT_SECONDS + " s");
+			}
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Result of upload of one {@link PangolinConfiguration} which is returned from
+ * an agent.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class PangolinUploadResult implements Serializable {
+
+	private static final long serialVersionUID = -2905764414093624317L;
+	private final boolean success;
+	private final String runUrl;
+	private final String errorMessage;
+	private final ReportFilesManifest manifest;
+	private final boolean skipped;
+	private final boolean transientFailure;
+	private final Set<String> uploadedFiles;
+	private final int testRunId;
+
+	private PangolinUploadResult(final boolean success, final String runUrl, final String errorMessage, final ReportFilesManifest manifest,
+			final boolean skipped, final boolean transientFailure, final Set<String> uploadedFiles, final int testRunId) {
+		this.success = success;
+		this.runUrl = runUrl;
+		this.errorMessage = errorMessage;
+		this.manifest = manifest;
+		this.skipped = skipped;
+		this.transientFailure = transientFailure;
+		this.uploadedFiles = uploadedFiles;
+		this.testRunId = testRunId;
+	}
+
+	/**
+	 * Creates result of successful upload.
+	 *
+	 * @param runUrl
+	 *            URL of TestRail run, can be <code>null</code>.
+	 * @return result.
+	 */
+	public static PangolinUploadResult success(final String runUrl) {
+		return success(runUrl, null);
+	}
+
+	/**
+	 * Creates result of successful upload.
+	 *
+	 * @param runUrl
+	 *            URL of TestRail run, can be <code>null</code>.
+	 * @param manifest
+	 *            manifest of uploaded files, can be <code>null</code>.
+	 * @return result.
+	 */
+	public static PangolinUploadResult success(final String runUrl, final ReportFilesManifest manifest) {
+		return success(runUrl, manifest, 0);
+	}
+
+	/**
+	 * Creates result of successful upload.
+	 *
+	 * @param runUrl
+	 *            URL of TestRail run, can be <code>null</code>.
+	 * @param manifest
+	 *            manifest of uploaded files, can be <code>null</code>.
+	 * @param testRunId
+	 *            id of the test run which results have been added into, 0
+	 *            if unknown.
+	 * @return result.
+	 */
+	public static PangolinUploadResult success(final String runUrl, final ReportFilesManifest manifest, final int testRunId) {
+		return new PangolinUploadResult(true, runUrl, null, manifest, false, false, Collections.emptySet(), testRunId);
+	}
+
+	/**
+	 * Creates result of upload which has been skipped because report files
+	 * have not changed since the previous build.
+	 *
+	 * @param manifest
+	 *            manifest of report files.
+	 * @return result.
+	 */
+	public static PangolinUploadResult skipped(final ReportFilesManifest manifest) {
+		return new PangolinUploadResult(true, null, null, manifest, true, false, Collections.emptySet(), 0);
+	}
+
+	/**
+	 * Creates result of failed upload.
+	 *
+	 * @param errorMessage
+	 *            error message.
+	 * @return result.
+	 */
+	public static PangolinUploadResult failure(final String errorMessage) {
+		return failure(errorMessage, false);
+	}
+
+	/**
+	 * Creates result of failed upload.
+	 *
+	 * @param errorMessage
+	 *            error message.
+	 * @param transientFailure
+	 *            <code>true</code> if upload failed because of connectivity
+	 *            problem or server error, see
+	 *            {@link RetryPolicy#isRetryable(Throwable)}.
+	 * @return result.
+	 */
+	public static PangolinUploadResult failure(final String errorMessage, final boolean transientFailure) {
+		return failure(errorMessage, transientFailure, Collections.emptySet(), 0);
+	}
+
+	/**
+	 * Creates result of upload which has failed after some report files have
+	 * been sent.
+	 *
+	 * @param errorMessage
+	 *            error message.
+	 * @param transientFailure
+	 *            <code>true</code> if upload failed because of connectivity
+	 *            problem or server error.
+	 * @param uploadedFiles
+	 *            paths of sent report files relative to the workspace.
+	 * @param testRunId
+	 *            id of the test run which sent files have been added into, 0
+	 *            if unknown.
+	 * @return result.
+	 */
+	public static PangolinUploadResult failure(final String errorMessage, final boolean transientFailure, final Set<String> uploadedFiles,
+			final int testRunId) {
+		return new PangolinUploadResult(false, null, errorMessage, null, false, transientFailure, new HashSet<>(uploadedFiles), testRunId);
+	}
+
+	public boolean isSuccess() {
+		return success;
+	}
+
+	public String getRunUrl() {
+		return runUrl;
+	}
+
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	public ReportFilesManifest getManifest() {
+		return manifest;
+	}
+
+	public boolean isSkipped() {
+		return skipped;
+	}
+
+	public boolean isTransientFailure() {
+		return transientFailure;
+	}
+
+	public Set<String> getUploadedFiles() {
+		return uploadedFiles;
+	}
+
+	public int getTestRunId() {
+		return testRunId;
+	}
+
+}
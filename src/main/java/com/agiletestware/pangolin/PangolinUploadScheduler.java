@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller-wide scheduler of uploads. It limits number of uploads running
+ * at the same time and grants free slots to waiting uploads in round-robin
+ * order of their keys (TestRail projects), so uploads of one big project do
+ * not starve uploads of other projects. Uploads with the same key are
+ * granted in FIFO order.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinUploadScheduler {
+
+	/** The instance. */
+	public static final PangolinUploadScheduler THE_INSTANCE = new PangolinUploadScheduler();
+	private static final Logger LOGGER = Logger.getLogger(PangolinUploadScheduler.class.getName());
+	/** Waiting uploads by key, iteration order is round-robin order. */
+	private final Map<String, Deque<Permit>> queues = new LinkedHashMap<>();
+	private int maxConcurrency;
+	private int running;
+	private int queueDepth;
+
+	PangolinUploadScheduler() {
+	}
+
+	/**
+	 * Waits for a free upload slot.
+	 *
+	 * @param key
+	 *            fair queuing key, e.g. TestRail project.
+	 * @param maxConcurrency
+	 *            max number of uploads running at the same time,
+	 *            <code>0</code> means no limit.
+	 * @return permit which must be closed after the upload.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting.
+	 */
+	public synchronized Permit acquire(final String key, final int maxConcurrency) throws InterruptedException {
+		this.maxConcurrency = maxConcurrency;
+		final Permit permit = new Permit(key, queueDepth);
+		queues.computeIfAbsent(key, k -> new ArrayDeque<>()).add(permit);
+		queueDepth++;
+		dispatch();
+		try {
+			while (!permit.granted) {
+				wait();
+			}
+		} catch (final InterruptedException ex) {
+			if (permit.granted) {
+				release();
+			} else {
+				remove(permit);
+			}
+			throw ex;
+		}
+		permit.waitMillis = System.currentTimeMillis() - permit.queuedAt;
+		LOGGER.log(Level.FINE, "Upload of {0} waited {1} ms, {2} uploads are running, {3} are queued",
+				new Object[] { key, permit.waitMillis, running, queueDepth });
+		return permit;
+	}
+
+	/**
+	 * @return number of uploads waiting for a free slot.
+	 */
+	public synchronized int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * @return number of running uploads.
+	 */
+	public synchronized int getRunning() {
+		return running;
+	}
+
+	private void dispatch() {
+		boolean granted = false;
+		while ((maxConcurrency <= 0 || running < maxConcurrency) && !queues.isEmpty()) {
+			final Iterator<Map.Entry<String, Deque<Permit>>> iterator = queues.entrySet().iterator();
+			final Map.Entry<String, Deque<Permit>> next = iterator.next();
+			iterator.remove();
+			final Permit permit = next.getValue().poll();
+			if (!next.getValue().isEmpty()) {
+				queues.put(next.getKey(), next.getValue());
+			}
+			permit.granted = true;
+			running++;
+			queueDepth--;
+			granted = true;
+		}
+		if (granted) {
+			notifyAll();
+		}
+	}
+
+	private void remove(final Permit permit) {
+		final Deque<Permit> queue = queues.get(permit.key);
+		if (queue != null && queue.remove(permit)) {
+			queueDepth--;
+			if (queue.isEmpty()) {
+				queues.remove(permit.key);
+			}
+		}
+	}
+
+	private synchronized void release() {
+		running--;
+		dispatch();
+	}
+
+	/**
+	 * Upload slot granted by the scheduler.
+	 */
+	public final class Permit implements AutoCloseable {
+
+		private final String key;
+		private final int queuedAhead;
+		private final long queuedAt = System.currentTimeMillis();
+		private boolean granted;
+		private boolean closed;
+		private long waitMillis;
+
+		private Permit(final String key, final int queuedAhead) {
+			this.key = key;
+			this.queuedAhead = queuedAhead;
+		}
+
+		/**
+		 * @return number of uploads which had been waiting when this one was
+		 *         queued.
+		 */
+		public int getQueuedAhead() {
+			return queuedAhead;
+		}
+
+		/**
+		 * @return time spent in the queue in milliseconds.
+		 */
+		public long getWaitMillis() {
+			return waitMillis;
+		}
+
+		@Override
+		public void close() {
+			synchronized (PangolinUploadScheduler.this) {
+				if (closed) {
+					return;
+				}
+				closed = true;
+				release();
+			}
+		}
+	}
+}
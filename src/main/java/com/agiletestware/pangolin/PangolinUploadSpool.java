@@ -0,0 +1,401 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+import com.agiletestware.pangolin.encryption.CustomSecret;
+import com.agiletestware.pangolin.encryption.DefaultCustomSecret;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+
+/**
+ * Durable spool of uploads which could not be sent to Pangolin. Each spooled
+ * upload is a directory under <code>JENKINS_HOME/pangolin-spool</code> which
+ * contains resolved upload parameters, report settings of the configuration
+ * and a copy of report files, so it survives restarts of Jenkins and does not
+ * depend on the build workspace.
+ * Spooled uploads are sent again by {@link PangolinSpoolReplayer}. Report
+ * files which have already been sent are not stored, the rest is added into
+ * the same test run.<br/>
+ * Total size of the spool is limited, the oldest uploads are evicted first.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinUploadSpool {
+
+	static final String SPOOL_DIR_NAME = "pangolin-spool";
+	static final String REQUEST_FILE_NAME = "request.xml";
+	static final String REPORTS_DIR_NAME = "reports";
+	private static final Logger LOGGER = Logger.getLogger(PangolinUploadSpool.class.getName());
+	private static PangolinUploadSpool instance;
+	private final File rootDir;
+	private final CustomSecret customSecret;
+
+	PangolinUploadSpool(final File rootDir, final CustomSecret customSecret) {
+		this.rootDir = rootDir;
+		this.customSecret = customSecret;
+	}
+
+	/**
+	 * @return spool in the Jenkins home directory.
+	 */
+	public static synchronized PangolinUploadSpool get() {
+		if (instance == null) {
+			final Jenkins jenkins = Jenkins.getInstance();
+			if (jenkins == null) {
+				throw new IllegalStateException("Jenkins has not been started, or was already shut down");
+			}
+			instance = new PangolinUploadSpool(new File(jenkins.getRootDir(), SPOOL_DIR_NAME), DefaultCustomSecret.THE_INSTANCE);
+		}
+		return instance;
+	}
+
+	/**
+	 * Adds upload to the spool. Report files matching result pattern are
+	 * copied from the workspace into the spool. If total size of the spool
+	 * exceeds the given limit, the oldest uploads are evicted.
+	 *
+	 * @param params
+	 *            resolved upload parameters
+	 * @param settings
+	 *            report settings of the configuration
+	 * @param runId
+	 *            externalizable id of the build
+	 * @param workspace
+	 *            workspace of the build
+	 * @param maxSizeBytes
+	 *            max size of the spool in bytes
+	 * @return the spooled upload or <code>null</code> if there are no report
+	 *         files or the upload alone exceeds the limit.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public SpooledUpload add(final BulkUpdateParameters params, final ReportSettings settings, final String runId, final FilePath workspace,
+			final long maxSizeBytes) throws IOException, InterruptedException {
+		return add(params, settings, runId, workspace, Collections.emptySet(), 0, maxSizeBytes);
+	}
+
+	/**
+	 * Adds upload which has failed after some report files have been sent.
+	 * Report files matching result pattern are copied from the workspace into
+	 * the spool except for files which have already been sent. If total size of the spool
+	 * exceeds the given limit, the oldest uploads are evicted.
+	 *
+	 * @param params
+	 *            resolved upload parameters
+	 * @param settings
+	 *            report settings of the configuration
+	 * @param runId
+	 *            externalizable id of the build
+	 * @param workspace
+	 *            workspace of the build
+	 * @param uploadedFiles
+	 *            paths of sent report files relative to the workspace
+	 * @param testRunId
+	 *            id of the test run which sent files have been added into, 0
+	 *            if unknown
+	 * @param maxSizeBytes
+	 *            max size of the spool in bytes
+	 * @return the spooled upload or <code>null</code> if there are no report
+	 *         files to send or the upload alone exceeds the limit.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public SpooledUpload add(final BulkUpdateParameters params, final ReportSettings settings, final String runId, final FilePath workspace,
+			final Set<String> uploadedFiles, final int testRunId, final long maxSizeBytes) throws IOException, InterruptedException {
+		final File dir = new File(rootDir, String.format("%013d-%s", System.currentTimeMillis(), UUID.randomUUID()));
+		final File reportsDir = new File(dir, REPORTS_DIR_NAME);
+		try {
+			final int copied = workspace.copyRecursiveTo(new ReportFilesDirScanner(params.getResultPattern(), settings.isReadArchives()),
+					new FilePath(reportsDir), params.getResultPattern());
+			if (copied <= removeFiles(reportsDir, uploadedFiles)) {
+				Util.deleteRecursive(dir);
+				return null;
+			}
+			final ResolvedBulkUpdateParameters parameters = new ResolvedBulkUpdateParameters(params);
+			parameters.setTestRailEncryptedPassword(null);
+			if (testRunId > 0) {
+				parameters.setTestRunId(testRunId);
+			}
+			final SpooledUploadRequest request = new SpooledUploadRequest(parameters, customSecret.getEncryptedValue(params.getTestRailEncryptedPassword()),
+					runId, settings);
+			new XmlFile(new File(dir, REQUEST_FILE_NAME)).write(request);
+		} catch (final IOException | InterruptedException | RuntimeException ex) {
+			Util.deleteRecursive(dir);
+			throw ex;
+		}
+		synchronized (this) {
+			evict(maxSizeBytes);
+		}
+		return dir.isDirectory() ? new SpooledUpload(dir) : null;
+	}
+
+	/**
+	 * @return spooled uploads, the oldest first.
+	 */
+	public synchronized List<SpooledUpload> list() {
+		final File[] dirs = rootDir.listFiles(File::isDirectory);
+		if (dirs == null) {
+			return Collections.emptyList();
+		}
+		Arrays.sort(dirs);
+		final List<SpooledUpload> uploads = new ArrayList<>();
+		for (final File dir : dirs) {
+			if (new File(dir, REQUEST_FILE_NAME).isFile()) {
+				uploads.add(new SpooledUpload(dir));
+			}
+		}
+		return uploads;
+	}
+
+	/**
+	 * Removes upload from the spool.
+	 *
+	 * @param upload
+	 *            the upload
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized void remove(final SpooledUpload upload) throws IOException {
+		Util.deleteRecursive(upload.dir);
+	}
+
+	private void evict(final long maxSizeBytes) throws IOException {
+		final List<SpooledUpload> uploads = list();
+		long totalSize = 0;
+		final long[] sizes = new long[uploads.size()];
+		for (int i = 0; i < uploads.size(); i++) {
+			sizes[i] = size(uploads.get(i).dir.toPath());
+			totalSize += sizes[i];
+		}
+		for (int i = 0; i < uploads.size() && totalSize > maxSizeBytes; i++) {
+			LOGGER.log(Level.WARNING, Messages.spoolEvictedLog(uploads.get(i).getName(), maxSizeBytes));
+			remove(uploads.get(i));
+			totalSize -= sizes[i];
+		}
+	}
+
+	/**
+	 * Removes the given files from the directory, paths which point outside
+	 * of the directory are ignored.
+	 *
+	 * @return number of removed files.
+	 */
+	private static int removeFiles(final File dir, final Set<String> paths) throws IOException {
+		final Path dirPath = dir.toPath().toAbsolutePath().normalize();
+		int removed = 0;
+		for (final String path : paths) {
+			final Path file = dirPath.resolve(path).normalize();
+			if (file.startsWith(dirPath) && Files.deleteIfExists(file)) {
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	private static long size(final Path dir) throws IOException {
+		try (final Stream<Path> paths = Files.walk(dir)) {
+			return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+		}
+	}
+
+	/**
+	 * Upload stored in the spool.
+	 */
+	public final class SpooledUpload {
+
+		private final File dir;
+
+		private SpooledUpload(final File dir) {
+			this.dir = dir;
+		}
+
+		public String getName() {
+			return dir.getName();
+		}
+
+		/**
+		 * @return directory with copies of report files.
+		 */
+		public File getReportsDir() {
+			return new File(dir, REPORTS_DIR_NAME);
+		}
+
+		/**
+		 * @return upload parameters including TestRail password.
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		public ResolvedBulkUpdateParameters getParameters() throws IOException {
+			final SpooledUploadRequest request = read();
+			final ResolvedBulkUpdateParameters params = new ResolvedBulkUpdateParameters(request.parameters);
+			params.setTestRailEncryptedPassword(customSecret.getPlainText(request.testRailEncryptedPassword));
+			return params;
+		}
+
+		/**
+		 * @return report settings of the configuration which spooled the
+		 *         upload.
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		public ReportSettings getSettings() throws IOException {
+			final ReportSettings settings = read().settings;
+			// uploads spooled by older versions have no settings
+			return settings != null ? settings : new ReportSettings(false, false, false, false);
+		}
+
+		/**
+		 * @return externalizable id of the build which spooled the upload.
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		public String getRunId() throws IOException {
+			return read().runId;
+		}
+
+		/**
+		 * Increments number of failed replay attempts.
+		 *
+		 * @return number of failed attempts
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		public int incrementAttempts() throws IOException {
+			return incrementAttempts(Collections.emptySet(), 0);
+		}
+
+		/**
+		 * Increments number of failed replay attempts and removes report files
+		 * which have been sent by the failed attempt, so the next attempt adds
+		 * only the rest into the same test run.
+		 *
+		 * @param uploadedFiles
+		 *            paths of sent report files relative to the reports
+		 *            directory
+		 * @param testRunId
+		 *            id of the test run which sent files have been added into,
+		 *            0 if unknown
+		 * @return number of failed attempts
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		public int incrementAttempts(final Set<String> uploadedFiles, final int testRunId) throws IOException {
+			final SpooledUploadRequest request = read();
+			removeFiles(getReportsDir(), uploadedFiles);
+			if (testRunId > 0) {
+				request.parameters.setTestRunId(testRunId);
+			}
+			request.attempts++;
+			new XmlFile(new File(dir, REQUEST_FILE_NAME)).write(request);
+			return request.attempts;
+		}
+
+		private SpooledUploadRequest read() throws IOException {
+			return (SpooledUploadRequest) new XmlFile(new File(dir, REQUEST_FILE_NAME)).read();
+		}
+	}
+
+	/**
+	 * Persisted part of a spooled upload. TestRail password is stored
+	 * encrypted.
+	 */
+	static final class SpooledUploadRequest {
+
+		private final ResolvedBulkUpdateParameters parameters;
+		private final String testRailEncryptedPassword;
+		private final String runId;
+		private final ReportSettings settings;
+		private int attempts;
+
+		SpooledUploadRequest(final ResolvedBulkUpdateParameters parameters, final String testRailEncryptedPassword, final String runId,
+				final ReportSettings settings) {
+			this.parameters = parameters;
+			this.testRailEncryptedPassword = testRailEncryptedPassword;
+			this.runId = runId;
+			this.settings = settings;
+		}
+	}
+
+	/**
+	 * Settings of a configuration which define how report files are read and
+	 * sent, so a spooled upload is replayed the same way as the original one.
+	 */
+	public static final class ReportSettings {
+
+		private final boolean compactReports;
+		private final boolean bundleReports;
+		private final boolean readArchives;
+		private final boolean parallelScan;
+
+		ReportSettings(final boolean compactReports, final boolean bundleReports, final boolean readArchives, final boolean parallelScan) {
+			this.compactReports = compactReports;
+			this.bundleReports = bundleReports;
+			this.readArchives = readArchives;
+			this.parallelScan = parallelScan;
+		}
+
+		/**
+		 * Creates settings of the given configuration.
+		 *
+		 * @param config
+		 *            the configuration
+		 * @return the settings
+		 */
+		public static ReportSettings of(final PangolinConfiguration config) {
+			return new ReportSettings(config.isCompactReports(), config.isBundleReports(), config.isReadArchives(), config.isParallelScan());
+		}
+
+		/**
+		 * Applies the settings to the executor.
+		 *
+		 * @param executor
+		 *            the executor
+		 */
+		public void apply(final PangolinRemoteExecutor executor) {
+			executor.setCompactReports(compactReports);
+			executor.setBundleReports(bundleReports);
+			executor.setReadArchives(readArchives);
+			executor.setParallelScan(parallelScan);
+		}
+
+		public boolean isReadArchives() {
+			return readArchives;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Util;
+import hudson.model.Action;
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Shows status of asynchronous or spooled upload of test results on the build
+ * page.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinUploadStatusAction implements RunAction2, Serializable {
+
+	private static final long serialVersionUID = 4571289736201958432L;
+	private static final Logger LOGGER = Logger.getLogger(PangolinUploadStatusAction.class.getName());
+	private volatile Status status = Status.QUEUED;
+	private volatile String message;
+
+	@Override
+	public String getIconFileName() {
+		return null;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return null;
+	}
+
+	@Override
+	public String getUrlName() {
+		return null;
+	}
+
+	@Override
+	public void onAttached(final Run<?, ?> run) {
+	}
+
+	@Override
+	public void onLoad(final Run<?, ?> run) {
+		if (!status.isFinished()) {
+			// upload has been interrupted by restart of Jenkins
+			update(Status.FAILED, Messages.asyncUploadInterrupted());
+			final File reportsDir = new File(run.getRootDir(), PangolinPublisher.ASYNC_UPLOAD_REPORTS_DIR_NAME);
+			try {
+				Util.deleteRecursive(reportsDir);
+			} catch (final IOException ex) {
+				LOGGER.log(Level.WARNING, "Could not delete " + reportsDir, ex);
+			}
+		}
+	}
+
+	/**
+	 * @return current status of the upload.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return additional message, e.g. error message, can be
+	 *         <code>null</code>.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Updates the status of the upload.
+	 *
+	 * @param status
+	 *            new status.
+	 * @param message
+	 *            additional message, can be <code>null</code>.
+	 */
+	public void update(final Status status, final String message) {
+		this.status = status;
+		this.message = message;
+	}
+
+	/**
+	 * Status of asynchronous upload.
+	 *
+	 * @author Sergey Oplavin
+	 *
+	 */
+	public enum Status {
+		QUEUED(false) {
+			@Override
+			public String getDisplayName() {
+				return Messages.asyncUploadStatusQueued();
+			}
+		},
+		RUNNING(false) {
+			@Override
+			public String getDisplayName() {
+				return Messages.asyncUploadStatusRunning();
+			}
+		},
+		DONE(true) {
+			@Override
+			public String getDisplayName() {
+				return Messages.asyncUploadStatusDone();
+			}
+		},
+		FAILED(true) {
+			@Override
+			public String getDisplayName() {
+				return Messages.asyncUploadStatusFailed();
+			}
+		};
+
+		private final boolean finished;
+
+		private Status(final boolean finished) {
+			this.finished = finished;
+		}
+
+		/**
+		 * @return <code>true</code> if upload is not running anymore.
+		 */
+		public boolean isFinished() {
+			return finished;
+		}
+
+		/**
+		 * @return display name of the status.
+		 */
+		public abstract String getDisplayName();
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Packs many small JUnit reports into bundles: each bundle is a single
+ * report with <code>testsuites</code> root element which contains test
+ * suites of all bundled reports. Pangolin client sends every report file in
+ * a separate request, so bundling reduces number of requests.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class ReportBundler implements Serializable {
+
+	private static final long serialVersionUID = 4471236125012098846L;
+	/** Default max size of a bundle in bytes. */
+	public static final long DEFAULT_MAX_BUNDLE_BYTES = 10L * 1024 * 1024;
+	/** Default max number of reports in a bundle. */
+	public static final int DEFAULT_MAX_BUNDLE_FILES = 500;
+	private static final String ENCODING = "UTF-8";
+	private static final String TEST_SUITES = "testsuites";
+
+	private final long maxBundleBytes;
+	private final int maxBundleFiles;
+
+	/**
+	 * Instantiates a new report bundler.
+	 *
+	 * @param maxBundleBytes
+	 *            max total size of reports in a bundle, a bigger report
+	 *            forms its own bundle.
+	 * @param maxBundleFiles
+	 *            max number of reports in a bundle.
+	 */
+	public ReportBundler(final long maxBundleBytes, final int maxBundleFiles) {
+		this.maxBundleBytes = maxBundleBytes;
+		this.maxBundleFiles = maxBundleFiles;
+	}
+
+	/**
+	 * Splits reports into bundles, order of reports is preserved.
+	 *
+	 * @param files
+	 *            the reports
+	 * @return the bundles
+	 */
+	public List<List<File>> split(final List<File> files) {
+		final List<List<File>> bundles = new ArrayList<>();
+		List<File> bundle = new ArrayList<>();
+		long bundleBytes = 0;
+		for (final File file : files) {
+			final long length = file.length();
+			if (!bundle.isEmpty() && (bundle.size() >= maxBundleFiles || bundleBytes + length > maxBundleBytes)) {
+				bundles.add(bundle);
+				bundle = new ArrayList<>();
+				bundleBytes = 0;
+			}
+			bundle.add(file);
+			bundleBytes += length;
+		}
+		if (!bundle.isEmpty()) {
+			bundles.add(bundle);
+		}
+		return bundles;
+	}
+
+	/**
+	 * Writes reports into a single report. Test suites of a report with
+	 * <code>testsuites</code> root are copied without the root element.
+	 *
+	 * @param sources
+	 *            the reports
+	 * @param target
+	 *            the target file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws XMLStreamException
+	 *             if a source is not a valid XML file
+	 */
+	public void merge(final List<File> sources, final File target) throws IOException, XMLStreamException {
+		final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+		try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+			final XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(out, ENCODING);
+			try {
+				writer.add(eventFactory.createStartDocument(ENCODING, "1.0"));
+				writer.add(eventFactory.createStartElement(new QName(TEST_SUITES), null, null));
+				for (final File source : sources) {
+					try (final InputStream in = new BufferedInputStream(new FileInputStream(source))) {
+						final XMLEventReader reader = inputFactory.createXMLEventReader(in);
+						try {
+							copySuites(reader, writer);
+						} finally {
+							reader.close();
+						}
+					}
+				}
+				writer.add(eventFactory.createEndElement(new QName(TEST_SUITES), null));
+				writer.add(eventFactory.createEndDocument());
+			} finally {
+				writer.close();
+			}
+		}
+	}
+
+	private static void copySuites(final XMLEventReader reader, final XMLEventWriter writer) throws XMLStreamException {
+		int depth = 0;
+		boolean suitesRoot = false;
+		while (reader.hasNext()) {
+			final XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				depth++;
+				if (depth == 1 && TEST_SUITES.equals(event.asStartElement().getName().getLocalPart())) {
+					suitesRoot = true;
+					continue;
+				}
+			} else if (event.isEndElement()) {
+				depth--;
+				if (depth == 0 && suitesRoot) {
+					continue;
+				}
+			} else if (depth == 0 || depth == 1 && suitesRoot && event.isCharacters()) {
+				// prolog, comments outside of root and whitespace between
+				// suites
+				continue;
+			}
+			writer.add(event);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Removes verbose content from JUnit, NUnit and TRX reports using streaming
+ * StAX parser: captured standard output and error are dropped, failure
+ * messages and stack traces are truncated. Structure of the report (test
+ * names, statuses, durations) is preserved, so Pangolin server processes
+ * the compacted report the same way as the original one.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class ReportCompactor {
+
+	/** Default max length of failure messages and stack traces. */
+	public static final int DEFAULT_MAX_TEXT_LENGTH = 4096;
+	private static final String ENCODING = "UTF-8";
+	private static final String TRUNCATION_MARK = "...";
+	/** Elements which are removed with all their content. */
+	private static final Set<String> DROPPED_ELEMENTS = Collections
+			.unmodifiableSet(new HashSet<>(Arrays.asList("system-out", "system-err", "output", "StdOut", "StdErr", "DebugTrace")));
+	/** Elements which text content and attributes are truncated. */
+	private static final Set<String> TRUNCATED_ELEMENTS = Collections
+			.unmodifiableSet(new HashSet<>(Arrays.asList("failure", "error", "skipped", "message", "stack-trace", "Message", "StackTrace")));
+
+	private final int maxTextLength;
+
+	/**
+	 * Instantiates a new report compactor.
+	 *
+	 * @param maxTextLength
+	 *            max length of failure messages and stack traces.
+	 */
+	public ReportCompactor(final int maxTextLength) {
+		this.maxTextLength = maxTextLength;
+	}
+
+	/**
+	 * Writes compacted copy of the source report into the target file.
+	 *
+	 * @param source
+	 *            the source report
+	 * @param target
+	 *            the target file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws XMLStreamException
+	 *             if source is not a valid XML file
+	 */
+	public void compact(final File source, final File target) throws IOException, XMLStreamException {
+		final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+		try (final InputStream in = new BufferedInputStream(new FileInputStream(source));
+				final OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+			final XMLEventReader reader = inputFactory.createXMLEventReader(in);
+			final XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(out, ENCODING);
+			try {
+				copy(reader, writer, eventFactory);
+			} finally {
+				writer.close();
+				reader.close();
+			}
+		}
+	}
+
+	private void copy(final XMLEventReader reader, final XMLEventWriter writer, final XMLEventFactory eventFactory) throws XMLStreamException {
+		// depth inside of a dropped element, 0 means that we are not in a
+		// dropped element
+		int droppedDepth = 0;
+		// depth inside of a truncated element
+		int truncatedDepth = 0;
+		int remainingText = 0;
+		while (reader.hasNext()) {
+			final XMLEvent event = reader.nextEvent();
+			if (droppedDepth > 0) {
+				if (event.isStartElement()) {
+					droppedDepth++;
+				} else if (event.isEndElement()) {
+					droppedDepth--;
+				}
+				continue;
+			}
+			if (event.isStartDocument()) {
+				// output is always written in UTF-8
+				writer.add(eventFactory.createStartDocument(ENCODING, ((StartDocument) event).getVersion()));
+				continue;
+			}
+			if (event.isStartElement()) {
+				final StartElement startElement = event.asStartElement();
+				final String name = startElement.getName().getLocalPart();
+				if (DROPPED_ELEMENTS.contains(name)) {
+					droppedDepth = 1;
+					continue;
+				}
+				final boolean truncated = TRUNCATED_ELEMENTS.contains(name);
+				if (truncatedDepth > 0 || truncated) {
+					truncatedDepth++;
+				}
+				if (truncated) {
+					remainingText = maxTextLength;
+					writer.add(truncateAttributes(startElement, eventFactory));
+					continue;
+				}
+			} else if (event.isEndElement()) {
+				if (truncatedDepth > 0) {
+					truncatedDepth--;
+				}
+			} else if (event.isCharacters() && truncatedDepth > 0) {
+				final Characters characters = event.asCharacters();
+				final String text = characters.getData();
+				if (text.length() > remainingText) {
+					if (remainingText > 0) {
+						writer.add(createCharacters(eventFactory, characters, text.substring(0, remainingText) + TRUNCATION_MARK));
+						remainingText = 0;
+					}
+					continue;
+				}
+				remainingText -= text.length();
+			}
+			writer.add(event);
+		}
+	}
+
+	private XMLEvent truncateAttributes(final StartElement element, final XMLEventFactory eventFactory) {
+		boolean changed = false;
+		final List<Attribute> attributes = new ArrayList<>();
+		final Iterator<?> iterator = element.getAttributes();
+		while (iterator.hasNext()) {
+			final Attribute attribute = (Attribute) iterator.next();
+			final String value = attribute.getValue();
+			if (value.length() > maxTextLength) {
+				attributes.add(eventFactory.createAttribute(attribute.getName(), value.substring(0, maxTextLength) + TRUNCATION_MARK));
+				changed = true;
+			} else {
+				attributes.add(attribute);
+			}
+		}
+		return changed ? eventFactory.createStartElement(element.getName(), attributes.iterator(), element.getNamespaces()) : element;
+	}
+
+	private static XMLEvent createCharacters(final XMLEventFactory eventFactory, final Characters original, final String text) {
+		return original.isCData() ? eventFactory.createCData(text) : eventFactory.createCharacters(text);
+	}
+
+}
@@ -0,0 +1,353 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+/**
+ * Finds files matching Ant patterns using {@link Files#walkFileTree}. It has
+ * the same matching rules as {@link hudson.FilePath#list(String)} (including
+ * Ant default excludes), but does not descend into directories which cannot
+ * match any pattern, e.g. only <code>build/test-results</code> is visited for
+ * <code>build/test-results/**&#47;*.xml</code>. Directories from
+ * {@link #HEAVY_DIRECTORIES} are skipped unless a pattern refers to them
+ * explicitly.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class ReportFileScanner {
+
+	/** Directories which usually contain many files and no reports. */
+	public static final Set<String> HEAVY_DIRECTORIES = Collections
+			.unmodifiableSet(new HashSet<>(Arrays.asList("node_modules", "bower_components", ".gradle", ".m2", ".idea")));
+	private final List<String> includes = new ArrayList<>();
+	private final String[] excludes = DirectoryScanner.getDefaultExcludes();
+	private final Set<String> explicitDirectories = new HashSet<>();
+	private final AtomicInteger directoriesVisited = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pattern
+	 *            Ant patterns separated by comma or space.
+	 */
+	public ReportFileScanner(final String pattern) {
+		final StringTokenizer tokenizer = new StringTokenizer(pattern, ", ", false);
+		while (tokenizer.hasMoreTokens()) {
+			String include = tokenizer.nextToken().replace('/', File.separatorChar).replace('\\', File.separatorChar);
+			if (include.endsWith(File.separator)) {
+				include += "**";
+			}
+			includes.add(include);
+			explicitDirectories.addAll(Arrays.asList(include.split("\\" + File.separator)));
+		}
+	}
+
+	/**
+	 * Scans the given directory in the current thread.
+	 *
+	 * @param baseDir
+	 *            base directory, patterns are relative to it.
+	 * @return matching files sorted by relative path.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public List<File> scan(final File baseDir) throws IOException {
+		return scan(baseDir, false);
+	}
+
+	/**
+	 * Scans the given directory.
+	 *
+	 * @param baseDir
+	 *            base directory, patterns are relative to it.
+	 * @param parallel
+	 *            if <code>true</code>, directories are scanned in parallel in
+	 *            a {@link ForkJoinPool} with a thread per processor.
+	 * @return matching files sorted by relative path, so the result does not
+	 *         depend on the scan mode.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public List<File> scan(final File baseDir, final boolean parallel) throws IOException {
+		if (!baseDir.isDirectory()) {
+			throw new IOException("Directory does not exist: " + baseDir);
+		}
+		directoriesVisited.set(0);
+		final List<String> matches;
+		if (parallel) {
+			matches = scanParallel(baseDir.toPath());
+		} else {
+			matches = new ArrayList<>();
+			scanSequential(baseDir.toPath(), matches::add);
+		}
+		Collections.sort(matches);
+		final List<File> files = new ArrayList<>(matches.size());
+		for (final String match : matches) {
+			files.add(new File(baseDir, match));
+		}
+		return files;
+	}
+
+	/**
+	 * Scans the given directory in the current thread and passes each
+	 * matching file to the consumer as soon as it is found. Files are passed
+	 * in the order of directory traversal, not sorted. Scan stops if the
+	 * current thread is interrupted.
+	 *
+	 * @param baseDir
+	 *            base directory, patterns are relative to it.
+	 * @param consumer
+	 *            consumer of matching files.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void scan(final File baseDir, final Consumer<File> consumer) throws IOException {
+		if (!baseDir.isDirectory()) {
+			throw new IOException("Directory does not exist: " + baseDir);
+		}
+		directoriesVisited.set(0);
+		scanSequential(baseDir.toPath(), relativePath -> consumer.accept(new File(baseDir, relativePath)));
+	}
+
+	/**
+	 * Finds archives which can contain matching entries, see
+	 * {@link ArchiveReportExtractor}. An archive is treated as a directory,
+	 * so it is found if a pattern can match paths inside of it.
+	 *
+	 * @param baseDir
+	 *            base directory, patterns are relative to it.
+	 * @return relative paths of archives sorted.
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public List<String> findArchives(final File baseDir) throws IOException {
+		if (!baseDir.isDirectory()) {
+			throw new IOException("Directory does not exist: " + baseDir);
+		}
+		final List<String> archives = new ArrayList<>();
+		final Path basePath = baseDir.toPath();
+		Files.walkFileTree(basePath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+				return dir.equals(basePath) || shouldVisitDirectory(basePath.relativize(dir).toString()) ? FileVisitResult.CONTINUE
+						: FileVisitResult.SKIP_SUBTREE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+				final String relativePath = basePath.relativize(file).toString();
+				if (attrs.isRegularFile() && ArchiveReportExtractor.isArchive(relativePath) && shouldVisitDirectory(relativePath)) {
+					archives.add(relativePath);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(archives);
+		return archives;
+	}
+
+	/**
+	 * @return number of directories visited by the last scan.
+	 */
+	public int getDirectoriesVisited() {
+		return directoriesVisited.get();
+	}
+
+	private List<String> scanParallel(final Path basePath) {
+		final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		try {
+			return pool.invoke(new DirectoryScanTask(basePath, basePath, Collections.emptySet()));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void scanSequential(final Path basePath, final Consumer<String> matches) throws IOException {
+		Files.walkFileTree(basePath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+				if (Thread.currentThread().isInterrupted()) {
+					throw new InterruptedIOException("Scan of " + basePath + " has been interrupted");
+				}
+				if (dir.equals(basePath) || shouldVisitDirectory(basePath.relativize(dir).toString())) {
+					directoriesVisited.incrementAndGet();
+					return FileVisitResult.CONTINUE;
+				}
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+				final String relativePath = basePath.relativize(file).toString();
+				if (attrs.isRegularFile() && matches(relativePath)) {
+					matches.accept(relativePath);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+				// e.g. symbolic link loop or access denied, Ant scanner ignores such files too
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Checks whether the directory has to be visited.
+	 *
+	 * @param relativePath
+	 *            path of the directory relative to the base directory.
+	 * @return <code>true</code> if files of the directory can match a
+	 *         pattern.
+	 */
+	boolean shouldVisitDirectory(final String relativePath) {
+		final String name = new File(relativePath).getName();
+		if (HEAVY_DIRECTORIES.contains(name) && !explicitDirectories.contains(name) || isExcluded(relativePath)) {
+			return false;
+		}
+		for (final String include : includes) {
+			if (SelectorUtils.matchPatternStart(include, relativePath)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the file matches patterns.
+	 *
+	 * @param relativePath
+	 *            path of the file relative to the base directory.
+	 * @return <code>true</code> if the file matches.
+	 */
+	boolean matches(final String relativePath) {
+		return isIncluded(relativePath) && !isExcluded(relativePath);
+	}
+
+	private boolean isIncluded(final String relativePath) {
+		for (final String include : includes) {
+			if (SelectorUtils.matchPath(include, relativePath)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isExcluded(final String relativePath) {
+		for (final String exclude : excludes) {
+			if (SelectorUtils.matchPath(exclude.replace('/', File.separatorChar), relativePath)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Scans one directory and forks a task for each subdirectory. Symbolic
+	 * links are followed, a link to an ancestor directory is ignored.
+	 */
+	private final class DirectoryScanTask extends RecursiveTask<List<String>> {
+
+		private static final long serialVersionUID = 2871593213404758924L;
+		private final Path basePath;
+		private final Path dir;
+		private final Set<Object> ancestors;
+
+		private DirectoryScanTask(final Path basePath, final Path dir, final Set<Object> ancestors) {
+			this.basePath = basePath;
+			this.dir = dir;
+			this.ancestors = ancestors;
+		}
+
+		@Override
+		protected List<String> compute() {
+			final List<String> matches = new ArrayList<>();
+			final Set<Object> path = new HashSet<>(ancestors);
+			try {
+				path.add(getKey(dir, Files.readAttributes(dir, BasicFileAttributes.class)));
+			} catch (final IOException ex) {
+				return matches;
+			}
+			directoriesVisited.incrementAndGet();
+			final List<DirectoryScanTask> subtasks = new ArrayList<>();
+			try (final DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+				for (final Path entry : entries) {
+					final BasicFileAttributes attrs;
+					try {
+						attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+					} catch (final IOException ex) {
+						// e.g. broken link or access denied, Ant scanner ignores such files too
+						continue;
+					}
+					final String relativePath = basePath.relativize(entry).toString();
+					if (attrs.isDirectory()) {
+						if (shouldVisitDirectory(relativePath) && !path.contains(getKey(entry, attrs))) {
+							final DirectoryScanTask subtask = new DirectoryScanTask(basePath, entry, path);
+							subtask.fork();
+							subtasks.add(subtask);
+						}
+					} else if (attrs.isRegularFile() && matches(relativePath)) {
+						matches.add(relativePath);
+					}
+				}
+			} catch (final IOException ex) {
+				// directory cannot be read, skip it as sequential scan does
+			}
+			for (final DirectoryScanTask subtask : subtasks) {
+				matches.addAll(subtask.join());
+			}
+			return matches;
+		}
+
+		private Object getKey(final Path path, final BasicFileAttributes attrs) throws IOException {
+			return attrs.fileKey() != null ? attrs.fileKey() : path.toRealPath();
+		}
+	}
+}
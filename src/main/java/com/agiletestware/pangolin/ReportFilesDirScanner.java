@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import hudson.util.DirScanner;
+import hudson.util.FileVisitor;
+
+/**
+ * Selects report files matching result pattern and archives which can contain
+ * matching entries (see {@link ArchiveReportExtractor}), so they can be copied
+ * by {@link hudson.FilePath#copyRecursiveTo(DirScanner, hudson.FilePath, String)}
+ * with the same paths relative to the workspace.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class ReportFilesDirScanner extends DirScanner {
+
+	private static final long serialVersionUID = 6203714980582334117L;
+	private final String pattern;
+	private final boolean readArchives;
+
+	/**
+	 * Instantiates a new report files dir scanner.
+	 *
+	 * @param pattern
+	 *            result pattern
+	 * @param readArchives
+	 *            if <code>true</code>, archives which can contain matching
+	 *            entries are selected as well.
+	 */
+	public ReportFilesDirScanner(final String pattern, final boolean readArchives) {
+		this.pattern = pattern;
+		this.readArchives = readArchives;
+	}
+
+	@Override
+	public void scan(final File dir, final FileVisitor visitor) throws IOException {
+		final ReportFileScanner scanner = new ReportFileScanner(pattern);
+		final Set<String> paths = new TreeSet<>();
+		for (final File file : scanner.scan(dir)) {
+			paths.add(dir.toPath().relativize(file.toPath()).toString());
+		}
+		if (readArchives) {
+			paths.addAll(scanner.findArchives(dir));
+		}
+		for (final String path : paths) {
+			visitor.visit(new File(dir, path), path.replace(File.separatorChar, '/'));
+		}
+	}
+}
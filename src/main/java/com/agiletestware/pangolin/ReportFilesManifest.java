@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import hudson.Util;
+
+/**
+ * Content hashes of report files matched by a result pattern. It is used to
+ * detect that report files have not changed since the previous build.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class ReportFilesManifest implements Serializable {
+
+	private static final long serialVersionUID = 5530129164393311095L;
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final int BUFFER_SIZE = 8192;
+	/** Relative path of a report file -> hash of its content. */
+	private final SortedMap<String, String> hashes;
+
+	ReportFilesManifest(final SortedMap<String, String> hashes) {
+		this.hashes = hashes;
+	}
+
+	/**
+	 * Creates manifest of the given files.
+	 *
+	 * @param files
+	 *            report files.
+	 * @param relativePathResolver
+	 *            resolves path of a file in the manifest, e.g. path of a file
+	 *            read from an archive.
+	 * @return the manifest
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static ReportFilesManifest create(final List<File> files, final Function<File, String> relativePathResolver) throws IOException {
+		final SortedMap<String, String> hashes = new TreeMap<>();
+		for (final File file : files) {
+			hashes.put(relativePathResolver.apply(file), hash(file));
+		}
+		return new ReportFilesManifest(hashes);
+	}
+
+	private static String hash(final File file) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (final NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		try (final InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return Util.toHexString(digest.digest());
+	}
+
+	/**
+	 * @return hashes of files, key is a relative path of the file.
+	 */
+	public SortedMap<String, String> getHashes() {
+		return Collections.unmodifiableSortedMap(hashes);
+	}
+
+	public boolean isEmpty() {
+		return hashes.isEmpty();
+	}
+
+	@Override
+	public int hashCode() {
+		return hashes.hashCode();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ReportFilesManifest)) {
+			return false;
+		}
+		return hashes.equals(((ReportFilesManifest) obj).hashes);
+	}
+
+}
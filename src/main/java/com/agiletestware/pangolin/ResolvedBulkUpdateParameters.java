@@ -0,0 +1,301 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.Serializable;
+
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+
+import hudson.EnvVars;
+
+/**
+ * Snapshot of {@link BulkUpdateParameters} with all environment variables
+ * already resolved. It is created once on Jenkins controller and sent to an
+ * agent instead of {@link BulkUpdateEnvSpecificParameters}, so the whole
+ * {@link EnvVars} map is not serialized and values are not expanded again on
+ * each call of a getter.<br/>
+ * Setters are required by {@link BulkUpdateParameters} interface (e.g.
+ * uploader stores test run id between uploads), they modify this snapshot
+ * only.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class ResolvedBulkUpdateParameters implements BulkUpdateParameters, Serializable {
+
+	private static final long serialVersionUID = -1729730658744920914L;
+	private String pangolinUrl;
+	private String testRailUrl;
+	private String testRailUser;
+	private String testRailEncryptedPassword;
+	private String customFields;
+	private String project;
+	private String reportFormat;
+	private String testPath;
+	private int timeOut;
+	private String milestonePath;
+	private String testPlan;
+	private String testRun;
+	private String customResultFields;
+	private String configurationNames;
+	private String resultPattern;
+	private boolean closeRun;
+	private String caseNameToIdMappings;
+	private boolean disableGrouping;
+	private int testRunId;
+
+	/**
+	 * Creates a snapshot of the given parameters.
+	 *
+	 * @param params
+	 *            parameters, e.g. {@link BulkUpdateEnvSpecificParameters}.
+	 *            Each getter is called exactly once.
+	 */
+	public ResolvedBulkUpdateParameters(final BulkUpdateParameters params) {
+		this.pangolinUrl = params.getPangolinUrl();
+		this.testRailUrl = params.getTestRailUrl();
+		this.testRailUser = params.getTestRailUser();
+		this.testRailEncryptedPassword = params.getTestRailEncryptedPassword();
+		this.customFields = params.getCustomFields();
+		this.project = params.getProject();
+		this.reportFormat = params.getReportFormat();
+		this.testPath = params.getTestPath();
+		this.timeOut = params.getTimeOut();
+		this.milestonePath = params.getMilestonePath();
+		this.testPlan = params.getTestPlan();
+		this.testRun = params.getTestRun();
+		this.customResultFields = params.getCustomResultFields();
+		this.configurationNames = params.getConfigurationNames();
+		this.resultPattern = params.getResultPattern();
+		this.closeRun = params.isCloseRun();
+		this.caseNameToIdMappings = params.getCaseNameToIdMappings();
+		this.disableGrouping = params.isDisableGrouping();
+		this.testRunId = params.getTestRunId();
+	}
+
+	/**
+	 * Resolves environment variables in the given parameters.
+	 *
+	 * @param params
+	 *            parameters
+	 * @param envVars
+	 *            environment variables
+	 * @return resolved parameters
+	 */
+	public static ResolvedBulkUpdateParameters resolve(final BulkUpdateParameters params, final EnvVars envVars) {
+		return new ResolvedBulkUpdateParameters(new BulkUpdateEnvSpecificParameters(params, envVars));
+	}
+
+	@Override
+	public String getPangolinUrl() {
+		return pangolinUrl;
+	}
+
+	@Override
+	public void setPangolinUrl(final String pangolinUrl) {
+		this.pangolinUrl = pangolinUrl;
+	}
+
+	@Override
+	public String getTestRailUrl() {
+		return testRailUrl;
+	}
+
+	@Override
+	public void setTestRailUrl(final String testRailUrl) {
+		this.testRailUrl = testRailUrl;
+	}
+
+	@Override
+	public String getTestRailUser() {
+		return testRailUser;
+	}
+
+	@Override
+	public void setTestRailUser(final String testRailUser) {
+		this.testRailUser = testRailUser;
+	}
+
+	@Override
+	public String getTestRailEncryptedPassword() {
+		return testRailEncryptedPassword;
+	}
+
+	@Override
+	public void setTestRailEncryptedPassword(final String testRailEncryptedPassword) {
+		this.testRailEncryptedPassword = testRailEncryptedPassword;
+	}
+
+	@Override
+	public String getCustomFields() {
+		return customFields;
+	}
+
+	@Override
+	public void setCustomFields(final String customFields) {
+		this.customFields = customFields;
+	}
+
+	@Override
+	public String getProject() {
+		return project;
+	}
+
+	@Override
+	public void setProject(final String project) {
+		this.project = project;
+	}
+
+	@Override
+	public String getReportFormat() {
+		return reportFormat;
+	}
+
+	@Override
+	public void setReportFormat(final String reportFormat) {
+		this.reportFormat = reportFormat;
+	}
+
+	@Override
+	public String getTestPath() {
+		return testPath;
+	}
+
+	@Override
+	public void setTestPath(final String testPath) {
+		this.testPath = testPath;
+	}
+
+	@Override
+	public int getTimeOut() {
+		return timeOut;
+	}
+
+	@Override
+	public void setTimeOut(final int timeOut) {
+		this.timeOut = timeOut;
+	}
+
+	@Override
+	public String getMilestonePath() {
+		return milestonePath;
+	}
+
+	@Override
+	public void setMilestonePath(final String milestonePath) {
+		this.milestonePath = milestonePath;
+	}
+
+	@Override
+	public String getTestPlan() {
+		return testPlan;
+	}
+
+	@Override
+	public void setTestPlan(final String testPlan) {
+		this.testPlan = testPlan;
+	}
+
+	@Override
+	public String getTestRun() {
+		return testRun;
+	}
+
+	@Override
+	public void setTestRun(final String testRun) {
+		this.testRun = testRun;
+	}
+
+	@Override
+	public String getCustomResultFields() {
+		return customResultFields;
+	}
+
+	@Override
+	public void setCustomResultFields(final String customResultFields) {
+		this.customResultFields = customResultFields;
+	}
+
+	@Override
+	public String getConfigurationNames() {
+		return configurationNames;
+	}
+
+	@Override
+	public void setConfigurationNames(final String configurationNames) {
+		this.configurationNames = configurationNames;
+	}
+
+	@Override
+	public String getResultPattern() {
+		return resultPattern;
+	}
+
+	@Override
+	public void setResultPattern(final String resultPattern) {
+		this.resultPattern = resultPattern;
+	}
+
+	@Override
+	public boolean isCloseRun() {
+		return closeRun;
+	}
+
+	@Override
+	public void setCloseRun(final boolean closeRun) {
+		this.closeRun = closeRun;
+	}
+
+	@Override
+	public String getCaseNameToIdMappings() {
+		return caseNameToIdMappings;
+	}
+
+	@Override
+	public void setCaseNameToIdMappings(final String caseNameToIdMappings) {
+		this.caseNameToIdMappings = caseNameToIdMappings;
+	}
+
+	@Override
+	public boolean isDisableGrouping() {
+		return disableGrouping;
+	}
+
+	@Override
+	public void setDisableGrouping(final boolean disableGrouping) {
+		this.disableGrouping = disableGrouping;
+	}
+
+	@Override
+	public int getTestRunId() {
+		return testRunId;
+	}
+
+	@Override
+	public void setTestRunId(final int testRunId) {
+		this.testRunId = testRunId;
+	}
+
+	@Override
+	public String toString() {
+		return "PangolinParameters PangolinURL: " + pangolinUrl + ", TestRail URL: " + testRailUrl + ", TestRail User: " + testRailUser
+				+ ", TestRail password: *******, TimeOut= " + timeOut + ", Project= " + project + ", Test Path= " + testPath + ", Report Format= "
+				+ reportFormat + ", Test Run= " + testRun + ", Test Plan= " + testPlan + ", Milestone Path= " + milestonePath + ", Custom Fields= "
+				+ customFields + ", Custom Result Fields= " + customResultFields + ", Result Pattern=" + resultPattern + ", Close Run=" + closeRun
+				+ ", Disable Grouping=" + disableGrouping;
+	}
+
+}
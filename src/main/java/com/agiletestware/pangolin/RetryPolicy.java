@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy of uploads: exponential backoff with jitter. Delay before
+ * retry <code>n</code> (starting from 0) is a random value between a half and
+ * the whole of <code>min(maxDelay, baseDelay * 2^n)</code>, so builds which
+ * failed at the same moment do not retry at the same moment. Only transient
+ * errors are retried, see {@link #isRetryable(Throwable)}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class RetryPolicy implements Serializable {
+
+	private static final long serialVersionUID = 3468013934398851283L;
+	/** Policy without retries. */
+	public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0);
+	/** Max delay between retries. */
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 5 * 60 * 1000L;
+	private static final int MAX_SHIFT = 30;
+	private static final int MAX_CAUSES = 10;
+	private final int maxRetries;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxRetries
+	 *            max number of retries after the first failed attempt.
+	 * @param baseDelayMillis
+	 *            delay before the first retry.
+	 * @param maxDelayMillis
+	 *            max delay between retries.
+	 */
+	public RetryPolicy(final int maxRetries, final long baseDelayMillis, final long maxDelayMillis) {
+		this.maxRetries = Math.max(maxRetries, 0);
+		this.baseDelayMillis = Math.max(baseDelayMillis, 0);
+		this.maxDelayMillis = Math.max(maxDelayMillis, 0);
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	/**
+	 * Calculates delay before the given retry.
+	 *
+	 * @param retry
+	 *            number of retry, starting from 0.
+	 * @return delay in milliseconds.
+	 */
+	public long getDelayMillis(final int retry) {
+		final long ceiling = baseDelayMillis << Math.min(retry, MAX_SHIFT);
+		final long delay = ceiling < baseDelayMillis || ceiling > maxDelayMillis ? maxDelayMillis : ceiling;
+		final long half = delay / 2;
+		return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+	}
+
+	/**
+	 * Checks whether an upload which failed with the given error can succeed
+	 * if the request is sent again: network errors (connection refused or
+	 * reset, unknown host, timeouts) and HTTP errors 5xx, 408 and 429. Status
+	 * of HTTP error is taken from exceptions of HTTP client which expose it
+	 * by <code>code()</code> method (e.g. <code>retrofit2.HttpException</code>).
+	 * Other errors, e.g. invalid credentials, unknown project or errors of
+	 * reading reports in the workspace, are not retryable.
+	 *
+	 * @param error
+	 *            the error
+	 * @return <code>true</code> if the error is transient.
+	 */
+	public static boolean isRetryable(final Throwable error) {
+		Throwable cause = error;
+		for (int i = 0; cause != null && i < MAX_CAUSES; i++) {
+			if (cause instanceof SocketException || cause instanceof SocketTimeoutException || cause instanceof UnknownHostException) {
+				return true;
+			}
+			final int status = getHttpStatus(cause);
+			if (status >= 500 && status < 600 || status == 408 || status == 429) {
+				return true;
+			}
+			cause = cause.getCause();
+		}
+		return false;
+	}
+
+	/**
+	 * @return HTTP status of the given error or -1 if it does not have one.
+	 */
+	private static int getHttpStatus(final Throwable error) {
+		try {
+			final Method code = error.getClass().getMethod("code");
+			return code.getReturnType() == int.class ? (Integer) code.invoke(error) : -1;
+		} catch (final ReflectiveOperationException | SecurityException ex) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import hudson.tasks.test.TabulatedResult;
+import hudson.tasks.test.TestObject;
+import hudson.tasks.test.TestResult;
+
+/**
+ * Writes test results already parsed by Jenkins (e.g. by <code>junit</code>
+ * step) into a JUnit report, so they can be uploaded without reading report
+ * files from the workspace. Each test case becomes a
+ * <code>testcase</code> element of a <code>testsuite</code> named after its
+ * parent (test class for JUnit results).
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public final class TestResultReportWriter {
+
+	private static final String ENCODING = "UTF-8";
+
+	private TestResultReportWriter() {
+	}
+
+	/**
+	 * Writes the report.
+	 *
+	 * @param result
+	 *            root of test results
+	 * @param target
+	 *            the target file
+	 * @return number of written test cases
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws XMLStreamException
+	 *             if the report can't be written
+	 */
+	public static int write(final TestResult result, final File target) throws IOException, XMLStreamException {
+		final Map<String, List<TestResult>> suites = new LinkedHashMap<>();
+		collectCases(result, suites);
+		int cases = 0;
+		try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+			final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+			try {
+				writer.writeStartDocument(ENCODING, "1.0");
+				writer.writeStartElement("testsuites");
+				for (final Map.Entry<String, List<TestResult>> suite : suites.entrySet()) {
+					writeSuite(writer, suite.getKey(), suite.getValue());
+					cases += suite.getValue().size();
+				}
+				writer.writeEndElement();
+				writer.writeEndDocument();
+			} finally {
+				writer.close();
+			}
+		}
+		return cases;
+	}
+
+	private static void collectCases(final TestResult result, final Map<String, List<TestResult>> suites) {
+		if (result instanceof TabulatedResult) {
+			for (final TestResult child : ((TabulatedResult) result).getChildren()) {
+				collectCases(child, suites);
+			}
+			return;
+		}
+		final TestObject parent = result.getParent();
+		final String suiteName = parent != null ? parent.getFullName() : "";
+		suites.computeIfAbsent(suiteName, name -> new ArrayList<>()).add(result);
+	}
+
+	private static void writeSuite(final XMLStreamWriter writer, final String name, final List<TestResult> cases) throws XMLStreamException {
+		int failures = 0;
+		int skipped = 0;
+		float time = 0;
+		for (final TestResult testCase : cases) {
+			failures += testCase.getFailCount() > 0 ? 1 : 0;
+			skipped += testCase.getSkipCount() > 0 ? 1 : 0;
+			time += testCase.getDuration();
+		}
+		writer.writeStartElement("testsuite");
+		writer.writeAttribute("name", name);
+		writer.writeAttribute("tests", String.valueOf(cases.size()));
+		writer.writeAttribute("failures", String.valueOf(failures));
+		writer.writeAttribute("skipped", String.valueOf(skipped));
+		writer.writeAttribute("time", formatTime(time));
+		for (final TestResult testCase : cases) {
+			writer.writeStartElement("testcase");
+			writer.writeAttribute("classname", name);
+			writer.writeAttribute("name", testCase.getName());
+			writer.writeAttribute("time", formatTime(testCase.getDuration()));
+			if (testCase.getFailCount() > 0) {
+				writer.writeStartElement("failure");
+				writer.writeAttribute("message", nullToEmpty(testCase.getErrorDetails()));
+				writer.writeCharacters(nullToEmpty(testCase.getErrorStackTrace()));
+				writer.writeEndElement();
+			} else if (testCase.getSkipCount() > 0) {
+				writer.writeEmptyElement("skipped");
+			}
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+	}
+
+	private static String formatTime(final float seconds) {
+		return String.format(Locale.ENGLISH, "%.3f", seconds);
+	}
+
+	private static String nullToEmpty(final String value) {
+		return value != null ? value : "";
+	}
+}
@@ -2,15 +2,14 @@ package com.agiletestware.pangolin.report;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 
 import com.agiletestware.pangolin.GlobalConfiguration;
 import com.agiletestware.pangolin.Messages;
+import com.agiletestware.pangolin.PangolinEncryptedPassword;
 import com.agiletestware.pangolin.client.PangolinClient;
 import com.agiletestware.pangolin.encryption.CustomSecret;
-import com.agiletestware.pangolin.retrofit.ConnectionConfig;
 import com.agiletestware.pangolin.shared.model.report.RunReportConfiguration;
 
 import hudson.AbortException;
@@ -41,7 +40,7 @@ public enum DefaultRunReportConfigurationFactory implements RunReportConfigurati
 		if (StringUtils.isEmpty(user)) {
 			user = globalConfig.getTestRailUserName();
 		}
-		final String password = getPassword(buildStep.getTestRailPassword(), globalConfig.getTestRailPasswordPlain(), secret, globalConfig, client);
+		final String password = getPassword(buildStep, globalConfig.getTestRailPasswordPlain(), secret, globalConfig, client);
 
 		final String[] templateIds = reportTemplateIds.split("\n");
 		final List<RunReportConfiguration> configs = new ArrayList<>(templateIds.length);
@@ -58,17 +57,18 @@ public enum DefaultRunReportConfigurationFactory implements RunReportConfigurati
 		return configs;
 	}
 
-	private String getPassword(final String taskPassword, final String globalPassword, final CustomSecret secret, final GlobalConfiguration globalConfig,
-			final PangolinClient client) throws Exception {
+	private String getPassword(final RunReportPostBuildStep buildStep, final String globalPassword, final CustomSecret secret,
+			final GlobalConfiguration globalConfig, final PangolinClient client) throws Exception {
+		final String taskPassword = buildStep.getTestRailPassword();
 		if (StringUtils.isEmpty(taskPassword)) {
 			return globalPassword;
 		}
 		if (secret == null) {
 			return taskPassword;
 		}
-		final String plain = secret.getPlainText(taskPassword);
-		return client.getEncryptedPassword(plain,
-				new ConnectionConfig(globalConfig.getPangolinUrl(), TimeUnit.MINUTES.toMillis(globalConfig.getUploadTimeOut())));
+		final PangolinEncryptedPassword savedPassword = buildStep.getPangolinEncryptedPassword();
+		final String encryptedPassword = savedPassword != null ? savedPassword.getEncryptedPassword(globalConfig.getPangolinUrl(), secret) : null;
+		return encryptedPassword != null ? encryptedPassword : PangolinEncryptedPassword.encrypt(secret.getPlainText(taskPassword), globalConfig, client);
 	}
 
 }
@@ -0,0 +1,176 @@
+package com.agiletestware.pangolin.report;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.agiletestware.pangolin.shared.model.report.RunReportConfiguration;
+
+/**
+ * Controller-wide cache of recently run TestRail reports. Identical
+ * concurrent requests (same resolved {@link RunReportConfiguration}) share
+ * one call to Pangolin and its result. If report interval is set, a report
+ * template is run at most once per interval for each TestRail URL and
+ * project, builds which finish within the interval get URL of the same report
+ * instead of running it again, and result of a call is also reused by
+ * identical requests for a short time after the call has finished. Without
+ * interval only requests which arrive while the call is running share it.
+ * Failed calls are not cached.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class RunReportCache {
+
+	/**
+	 * How long result of a call is reused by identical requests after it has
+	 * finished, applies only if report interval is set.
+	 */
+	public static final long DEFAULT_RESULT_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	/** The instance. */
+	public static final RunReportCache THE_INSTANCE = new RunReportCache(DEFAULT_RESULT_TTL_MILLIS, System::currentTimeMillis);
+	private final ConcurrentMap<RunReportConfiguration, CompletableFuture<Entry>> calls = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Entry> intervalEntries = new ConcurrentHashMap<>();
+	private final long resultTtlMillis;
+	private final LongSupplier clock;
+
+	RunReportCache(final long resultTtlMillis, final LongSupplier clock) {
+		this.resultTtlMillis = resultTtlMillis;
+		this.clock = clock;
+	}
+
+	/**
+	 * Runs the report or returns URL of the same report which is being run or
+	 * has been run recently.
+	 *
+	 * @param config
+	 *            the report configuration
+	 * @param intervalMillis
+	 *            how long the report URL is reused for the same TestRail URL,
+	 *            project and template, <code>0</code> disables reuse within
+	 *            interval.
+	 * @param runner
+	 *            runs the report and returns its URL
+	 * @return the report
+	 * @throws Exception
+	 *             if the report could not be run.
+	 */
+	public Report run(final RunReportConfiguration config, final long intervalMillis, final Callable<String> runner) throws Exception {
+		if (intervalMillis > 0) {
+			final Entry entry = intervalEntries.get(createIntervalKey(config));
+			if (entry != null && entry.expiresAt > clock.getAsLong()) {
+				return new Report(entry.reportUrl, true);
+			}
+		}
+		while (true) {
+			final CompletableFuture<Entry> call = calls.get(config);
+			if (call != null) {
+				final boolean inFlight = !call.isDone();
+				final Entry entry = await(call);
+				if (entry != null && (inFlight || entry.expiresAt > clock.getAsLong())) {
+					return new Report(entry.reportUrl, true);
+				}
+				// expired or failed, the first caller which removes it runs the report
+				calls.remove(config, call);
+				continue;
+			}
+			final CompletableFuture<Entry> running = new CompletableFuture<>();
+			if (calls.putIfAbsent(config, running) != null) {
+				continue;
+			}
+			try {
+				final String reportUrl = runner.call();
+				final long now = clock.getAsLong();
+				if (intervalMillis > 0) {
+					running.complete(new Entry(reportUrl, now + resultTtlMillis));
+					if (reportUrl != null) {
+						intervalEntries.put(createIntervalKey(config), new Entry(reportUrl, now + intervalMillis));
+					}
+				} else {
+					// without interval the result is shared only with requests which waited for it
+					running.complete(new Entry(reportUrl, now));
+					calls.remove(config, running);
+				}
+				removeExpired(now);
+				return new Report(reportUrl, false);
+			} catch (final Exception ex) {
+				calls.remove(config, running);
+				running.complete(null);
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached reports.
+	 */
+	public void invalidateAll() {
+		calls.clear();
+		intervalEntries.clear();
+	}
+
+	int size() {
+		return calls.size() + intervalEntries.size();
+	}
+
+	private void removeExpired(final long now) {
+		calls.values().removeIf(call -> {
+			final Entry entry = call.getNow(null);
+			return entry != null && entry.expiresAt <= now;
+		});
+		intervalEntries.values().removeIf(entry -> entry.expiresAt <= now);
+	}
+
+	private static Entry await(final CompletableFuture<Entry> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (final ExecutionException ex) {
+			return null;
+		}
+	}
+
+	private static String createIntervalKey(final RunReportConfiguration config) {
+		return config.getUrl() + '\n' + config.getProject() + '\n' + config.getReportTemplateNameOrId();
+	}
+
+	/**
+	 * Report returned by the cache.
+	 */
+	public static final class Report {
+
+		private final String reportUrl;
+		private final boolean reused;
+
+		Report(final String reportUrl, final boolean reused) {
+			this.reportUrl = reportUrl;
+			this.reused = reused;
+		}
+
+		public String getReportUrl() {
+			return reportUrl;
+		}
+
+		/**
+		 * @return <code>true</code> if the report has been run by another
+		 *         request.
+		 */
+		public boolean isReused() {
+			return reused;
+		}
+	}
+
+	private static final class Entry {
+
+		private final String reportUrl;
+		private final long expiresAt;
+
+		Entry(final String reportUrl, final long expiresAt) {
+			this.reportUrl = reportUrl;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -4,6 +4,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,8 +26,9 @@ import com.agiletestware.pangolin.DefaultGlobalConfigFactory;
 import com.agiletestware.pangolin.GlobalConfigFactory;
 import com.agiletestware.pangolin.GlobalConfiguration;
 import com.agiletestware.pangolin.Messages;
+import com.agiletestware.pangolin.PangolinClientRegistry;
+import com.agiletestware.pangolin.PangolinEncryptedPassword;
 import com.agiletestware.pangolin.client.DefaultPangolinClientFactory;
-import com.agiletestware.pangolin.client.DefaultRetrofitFactory;
 import com.agiletestware.pangolin.client.PangolinClient;
 import com.agiletestware.pangolin.client.PangolinClientFactory;
 import com.agiletestware.pangolin.encryption.CustomSecret;
@@ -44,7 +50,9 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
 import jenkins.tasks.SimpleBuildStep;
 import net.sf.json.JSONObject;
 
@@ -66,7 +74,9 @@ public class RunReportPostBuildStep extends Notifier implements SimpleBuildStep
 	private String testRailProject;
 	private String testRailUserName;
 	private String testRailPassword;
+	private PangolinEncryptedPassword pangolinEncryptedPassword;
 	private String reportTemplateIds;
+	private int maxParallelReports = 1;
 
 	@DataBoundConstructor
 	public RunReportPostBuildStep() {
@@ -107,6 +117,7 @@ public class RunReportPostBuildStep extends Notifier implements SimpleBuildStep
 
 	@DataBoundSetter
 	public void setTestRailPassword(final String testRailPassword) {
+		this.pangolinEncryptedPassword = null;
 		final String password = Util.fixEmptyAndTrim(testRailPassword);
 		if (customSecret != null) {
 			this.testRailPassword = password != null ? customSecret.getEncryptedValue(password) : null;
@@ -115,6 +126,32 @@ public class RunReportPostBuildStep extends Notifier implements SimpleBuildStep
 		}
 	}
 
+	/**
+	 * @return TestRail password encrypted by Pangolin when the job was saved,
+	 *         can be <code>null</code>.
+	 */
+	public PangolinEncryptedPassword getPangolinEncryptedPassword() {
+		return pangolinEncryptedPassword;
+	}
+
+	/**
+	 * Encrypts TestRail password using Pangolin server, so it is not
+	 * encrypted on each build. If Pangolin is not available, the password is
+	 * encrypted at build time.
+	 */
+	void encryptPasswordForPangolin() {
+		this.pangolinEncryptedPassword = null;
+		if (customSecret == null || testRailPassword == null) {
+			return;
+		}
+		try {
+			this.pangolinEncryptedPassword = PangolinEncryptedPassword.create(customSecret.getPlainText(testRailPassword), globalConfigFactory.create(),
+					PangolinClientRegistry.THE_INSTANCE.get(pangolinClientFactory), customSecret);
+		} catch (final Exception ex) {
+			LOGGER.log(Level.WARNING, "Could not encrypt TestRail password, it will be encrypted at build time. Error: " + ex.getMessage(), ex);
+		}
+	}
+
 	public String getReportTemplateIds() {
 		return reportTemplateIds;
 	}
@@ -124,6 +161,22 @@ public class RunReportPostBuildStep extends Notifier implements SimpleBuildStep
 		this.reportTemplateIds = reportTemplateIds;
 	}
 
+	public int getMaxParallelReports() {
+		return maxParallelReports;
+	}
+
+	/**
+	 * Sets the maximum number of reports which are run concurrently. Values
+	 * less than 2 mean that reports are run one after another.
+	 *
+	 * @param maxParallelReports
+	 *            the new max parallel reports
+	 */
+	@DataBoundSetter
+	public void setMaxParallelReports(final int maxParallelReports) {
+		this.maxParallelReports = maxParallelReports;
+	}
+
 	@Override
 	public void perform(final Run<?, ?> run, final FilePath workspace, final Launcher launcher, final TaskListener listener)
 			throws InterruptedException, IOException {
@@ -131,20 +184,28 @@ public class RunReportPostBuildStep extends Notifier implements SimpleBuildStep
 		try {
 			final GlobalConfiguration globalConfig = globalConfigFactory.create();
 			GlobalConfigValidator.validate(globalConfig);
-			final PangolinClient pangolinClient = pangolinClientFactory.create(DefaultRetrofitFactory.THE_INSTANCE);
+			final PangolinClient pangolinClient = PangolinClientRegistry.THE_INSTANCE.get(pangolinClientFactory);
 			final ConnectionConfig connectionConfig = new ConnectionConfig(globalConfig.getPangolinUrl(),
 					TimeUnit.MINUTES.toMillis(globalConfig.getUploadTimeOut()));
 
 			final List<RunReportConfiguration> configurations = reportConfigFactory.create(globalConfig, this, pangolinClient, customSecret);
-			final List<String> resultUrls = new ArrayList<>(configurations.size());
+			final long reportIntervalMillis = TimeUnit.MINUTES.toMillis(globalConfig.getReportInterval());
+			final List<Callable<String>> reports = new ArrayList<>(configurations.size());
 			for (final RunReportConfiguration config : configurations) {
-				listener.getLogger().println(Messages.runReportStartReport(config.getReportTemplateNameOrId()));
-				final String reportUrl = pangolinClient.runReport(config, connectionConfig).getReportUrl();
-				resultUrls.add(reportUrl);
-				listener.getLogger().println(Messages.runReportEndReport(reportUrl));
+				reports.add(() -> runReport(pangolinClient, config, connectionConfig, reportIntervalMillis, listener));
+			}
+			final List<String> resultUrls = new ArrayList<>(configurations.size());
+			final Exception error = runReports(reports, resultUrls);
+			// links to successful reports are added even if other reports have failed
+			if (!resultUrls.isEmpty()) {
+				run.addAction(new RunReportLinkAction(resultUrls));
+			}
+			if (error != null) {
+				throw error;
 			}
-			run.addAction(new RunReportLinkAction(resultUrls));
 			listener.getLogger().println(Messages.runReportFinishLog());
+		} catch (final InterruptedException ex) {
+			throw ex;
 		} catch (final Exception ex) {
 			LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
 			throw new AbortException(Messages.runReportsGeneralError(ex.getMessage() + "\n" + ExceptionUtils.getStackTrace(ex)));
@@ -152,6 +213,81 @@ public class RunReportPostBuildStep extends Notifier implements SimpleBuildStep
 
 	}
 
+	/**
+	 * Runs reports, at most {@link #maxParallelReports} at the same time.
+	 *
+	 * @param reports
+	 *            the reports
+	 * @param resultUrls
+	 *            receives URLs of successful reports in the order of reports
+	 * @return error of the first failed report with errors of other failed
+	 *         reports suppressed, or <code>null</code> if all reports have
+	 *         succeeded.
+	 */
+	private Exception runReports(final List<Callable<String>> reports, final List<String> resultUrls) throws InterruptedException {
+		final int threads = Math.min(Math.max(maxParallelReports, 1), reports.size());
+		Exception error = null;
+		if (threads <= 1) {
+			for (final Callable<String> report : reports) {
+				try {
+					resultUrls.add(report.call());
+				} catch (final InterruptedException ex) {
+					throw ex;
+				} catch (final Exception ex) {
+					error = addError(error, ex);
+				}
+			}
+			return error;
+		}
+		final ExecutorService executorService = Executors.newFixedThreadPool(threads,
+				new NamingThreadFactory(new DaemonThreadFactory(), "Pangolin report"));
+		try {
+			for (final Future<String> future : executorService.invokeAll(reports)) {
+				try {
+					resultUrls.add(future.get());
+				} catch (final ExecutionException ex) {
+					error = addError(error, ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+				}
+			}
+			return error;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static Exception addError(final Exception error, final Exception ex) {
+		if (error == null) {
+			return ex;
+		}
+		error.addSuppressed(ex);
+		return error;
+	}
+
+	/**
+	 * Runs the report or reuses URL of the same report which is being run by
+	 * another build or has been run recently.
+	 */
+	private static String runReport(final PangolinClient pangolinClient, final RunReportConfiguration config, final ConnectionConfig connectionConfig,
+			final long reportIntervalMillis, final TaskListener listener) throws Exception {
+		final String reportName = config.getReportTemplateNameOrId();
+		final long start = System.currentTimeMillis();
+		try {
+			final RunReportCache.Report report = RunReportCache.THE_INSTANCE.run(config, reportIntervalMillis, () -> {
+				listener.getLogger().println(Messages.runReportStartReport(reportName));
+				return pangolinClient.runReport(config, connectionConfig).getReportUrl();
+			});
+			if (report.isReused()) {
+				listener.getLogger().println(Messages.runReportReusedReport(reportName, report.getReportUrl()));
+			} else {
+				listener.getLogger().println(Messages.runReportEndReport(reportName, System.currentTimeMillis() - start, report.getReportUrl()));
+			}
+			return report.getReportUrl();
+		} catch (final Exception ex) {
+			listener.getLogger().println(Messages.runReportFailedReport(reportName, System.currentTimeMillis() - start, ex.getMessage()));
+			throw ex;
+		}
+	}
+
 	@Override
 	public BuildStepMonitor getRequiredMonitorService() {
 		return BuildStepMonitor.NONE;
@@ -181,6 +317,7 @@ public class RunReportPostBuildStep extends Notifier implements SimpleBuildStep
 		public RunReportPostBuildStep newInstance(final StaplerRequest req, final JSONObject formData) throws FormException {
 			final RunReportPostBuildStep step = (RunReportPostBuildStep) super.newInstance(req, formData);
 			step.customSecret = DefaultCustomSecret.THE_INSTANCE;
+			step.encryptPasswordForPangolin();
 			return step;
 		}
 
@@ -194,6 +331,18 @@ public class RunReportPostBuildStep extends Notifier implements SimpleBuildStep
 			return PangolinUtility.validateRequiredField(reportTemplateIds);
 		}
 
+		public FormValidation doCheckMaxParallelReports(@QueryParameter final String maxParallelReports) {
+			final String value = Util.fixEmptyAndTrim(maxParallelReports);
+			if (value == null) {
+				return FormValidation.ok();
+			}
+			try {
+				return Integer.parseInt(value) > 0 ? FormValidation.ok() : FormValidation.error(Messages.maxParallelReportsShouldBePositive());
+			} catch (final NumberFormatException ex) {
+				return FormValidation.error(Messages.maxParallelReportsShouldBePositive());
+			}
+		}
+
 	}
 
 }
@@ -17,12 +17,16 @@ package com.agiletestware.pangolin.validator;
 
 import java.text.MessageFormat;
 
+import com.agiletestware.pangolin.PangolinHealthMonitor;
+import com.agiletestware.pangolin.PangolinHealthMonitor.EndpointStatus;
 import com.agiletestware.pangolin.client.UrlAvailableValidator;
 
 import hudson.util.FormValidation;
 
 /**
- * Validates that given URL is not empty and available (sends GET request).
+ * Validates that given URL is not empty and available. Uses the fresh status
+ * from {@link PangolinHealthMonitor} if there is one, otherwise sends GET
+ * request.
  *
  * @author Ayman Ben Amor
  * @author Sergey Oplavin
@@ -53,7 +57,10 @@ public class CustomUrlAvailableValidator implements Validator<String, Long> {
 		if (FormValidation.Kind.OK != validation.kind) {
 			return validation;
 		}
-		return urlAvailableValidator.isUrlReachable(value, timeout == null ? 0 : timeout.intValue()) ? FormValidation.ok()
+		final EndpointStatus status = PangolinHealthMonitor.getStatus(value, System.currentTimeMillis());
+		final boolean reachable = status != null ? status.isReachable()
+				: urlAvailableValidator.isUrlReachable(value, timeout == null ? 0 : timeout.intValue());
+		return reachable ? FormValidation.ok()
 				: FormValidation.error(MessageFormat.format(errorMessageFormat, value));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ArchiveReportExtractor}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class ArchiveReportExtractorTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void isArchive() {
+		assertEquals(true, ArchiveReportExtractor.isArchive("results.zip"));
+		assertEquals(true, ArchiveReportExtractor.isArchive("results.TAR.GZ"));
+		assertEquals(true, ArchiveReportExtractor.isArchive("results.tgz"));
+		assertEquals(true, ArchiveReportExtractor.isArchive("results.tar"));
+		assertEquals(false, ArchiveReportExtractor.isArchive("results.xml"));
+	}
+
+	@Test
+	public void extractZip() throws Exception {
+		final File workspace = tempFolder.newFolder("workspace");
+		final File archive = new File(workspace, "build" + File.separator + "results.zip");
+		archive.getParentFile().mkdirs();
+		try (final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+			for (final String name : Arrays.asList("junit/TEST-a.xml", "junit/output.txt", "../TEST-outside.xml", "./TEST-b.xml")) {
+				zip.putNextEntry(new ZipEntry(name));
+				zip.write(name.getBytes(StandardCharsets.UTF_8));
+				zip.closeEntry();
+			}
+		}
+		final ReportFileScanner scanner = new ReportFileScanner("build/**/TEST-*.xml");
+		assertEquals(Arrays.asList("build" + File.separator + "results.zip"), scanner.findArchives(workspace));
+		final Path target = tempFolder.newFolder("target").toPath();
+		final List<File> files = ArchiveReportExtractor.extract(archive, "build" + File.separator + "results.zip", scanner, target);
+		assertEquals(Arrays.asList("build/results.zip/TEST-b.xml", "build/results.zip/junit/TEST-a.xml"), getRelativePaths(target, files));
+		assertEquals("junit/TEST-a.xml", new String(Files.readAllBytes(files.get(1).toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void extractTarGz() throws Exception {
+		final File archive = tempFolder.newFile("results.tar.gz");
+		try (final TarOutputStream tar = new TarOutputStream(new GZIPOutputStream(new FileOutputStream(archive)))) {
+			final byte[] content = "<testsuite/>".getBytes(StandardCharsets.UTF_8);
+			final TarEntry entry = new TarEntry("junit/TEST-c.xml");
+			entry.setSize(content.length);
+			tar.putNextEntry(entry);
+			tar.write(content);
+			tar.closeEntry();
+		}
+		final ReportFileScanner scanner = new ReportFileScanner("**/*.xml");
+		assertEquals(Arrays.asList("results.tar.gz"), scanner.findArchives(tempFolder.getRoot()));
+		final Path target = tempFolder.newFolder("target").toPath();
+		final List<File> files = ArchiveReportExtractor.extract(archive, "results.tar.gz", scanner, target);
+		assertEquals(Arrays.asList("results.tar.gz/junit/TEST-c.xml"), getRelativePaths(target, files));
+		assertEquals("<testsuite/>", new String(Files.readAllBytes(files.get(0).toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void findArchives_notMatchingPattern() throws Exception {
+		tempFolder.newFile("results.zip");
+		assertEquals(new ArrayList<>(), new ReportFileScanner("build/**/*.xml").findArchives(tempFolder.getRoot()));
+	}
+
+	private static List<String> getRelativePaths(final Path baseDir, final List<File> files) throws IOException {
+		final List<String> paths = new ArrayList<>();
+		for (final File file : files) {
+			paths.add(baseDir.relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+		}
+		return paths;
+	}
+}
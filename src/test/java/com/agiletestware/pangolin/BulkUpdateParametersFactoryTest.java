@@ -20,6 +20,8 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -68,6 +70,7 @@ public class BulkUpdateParametersFactoryTest {
 
 	@Before
 	public void setUp() {
+		EncryptedPasswordCache.THE_INSTANCE.invalidateAll();
 		customSecret = mock(CustomSecret.class);
 		when(customSecret.getEncryptedValue(TEST_RAIL_PASSWORD)).thenReturn(ENCRYPTED_PASSWORD);
 		when(customSecret.getPlainText(ENCRYPTED_PASSWORD)).thenReturn(TEST_RAIL_PASSWORD);
@@ -92,6 +95,29 @@ public class BulkUpdateParametersFactoryTest {
 		assertParams(params, TEST_RAIL_USERNAME, ENCRYPTED_PASSWORD_OVERRIDING);
 	}
 
+	@Test
+	public void testCreateWithPasswordEncryptedOnSave() throws Exception {
+		final PangolinClient client = mock(PangolinClient.class);
+		when(client.getEncryptedPassword(eq(TEST_RAIL_PASSWORD_OVERRIDING), any())).thenReturn(ENCRYPTED_PASSWORD_OVERRIDING);
+		when(customSecret.getEncryptedValue(ENCRYPTED_PASSWORD_OVERRIDING)).thenReturn("protected");
+		when(customSecret.getPlainText("protected")).thenReturn(ENCRYPTED_PASSWORD_OVERRIDING);
+		final GlobalConfig globalConfig = createGlobalConfigMock();
+		final PangolinPublisher publisher = new PangolinPublisher(TEST_RAIL_PROJECT, null, TEST_RAIL_PASSWORD_OVERRIDING,
+				createPangolinConfiguration(true), () -> globalConfig, (c) -> client, customSecret);
+		publisher.encryptPasswordForPangolin();
+		assertEquals(PANGOLIN_URL, publisher.getPangolinEncryptedPassword().getPangolinUrl());
+		verify(client, times(1)).getEncryptedPassword(eq(TEST_RAIL_PASSWORD_OVERRIDING), any());
+		EncryptedPasswordCache.THE_INSTANCE.invalidateAll();
+		final BulkUpdateParameters params = BulkUpdateParametersFactory.create(globalConfig, createPangolinConfiguration(true).get(0), publisher,
+				(c) -> client, customSecret);
+		assertEquals(ENCRYPTED_PASSWORD_OVERRIDING, params.getTestRailEncryptedPassword());
+		verify(client, times(1)).getEncryptedPassword(eq(TEST_RAIL_PASSWORD_OVERRIDING), any());
+		// Pangolin URL has changed since the job was saved
+		when(globalConfig.getPangolinUrl()).thenReturn("http://otherhost");
+		BulkUpdateParametersFactory.create(globalConfig, createPangolinConfiguration(true).get(0), publisher, (c) -> client, customSecret);
+		verify(client, times(2)).getEncryptedPassword(eq(TEST_RAIL_PASSWORD_OVERRIDING), any());
+	}
+
 	@Test
 	public void testCreateWithTestRailUserNameFromConfiguration() throws Exception {
 		final PangolinClient client = mock(PangolinClient.class);
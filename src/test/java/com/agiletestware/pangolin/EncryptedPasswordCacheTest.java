@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link EncryptedPasswordCache}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class EncryptedPasswordCacheTest {
+
+	private final AtomicLong now = new AtomicLong(1000);
+	private final EncryptedPasswordCache cache = new EncryptedPasswordCache(100, now::get);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	public void getCached() throws Exception {
+		assertEquals("encrypted1", cache.get("url", "password", this::load));
+		assertEquals("encrypted1", cache.get("url", "password", this::load));
+		assertEquals("encrypted2", cache.get("otherUrl", "password", this::load));
+		assertEquals("encrypted3", cache.get("url", "otherPassword", this::load));
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	public void getExpired() throws Exception {
+		assertEquals("encrypted1", cache.get("url", "password", this::load));
+		now.addAndGet(99);
+		assertEquals("encrypted1", cache.get("url", "password", this::load));
+		now.addAndGet(1);
+		assertEquals("encrypted2", cache.get("url", "password", this::load));
+	}
+
+	@Test
+	public void invalidateAll() throws Exception {
+		assertEquals("encrypted1", cache.get("url", "password", this::load));
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+		assertEquals("encrypted2", cache.get("url", "password", this::load));
+	}
+
+	@Test
+	public void getFailedIsNotCached() throws Exception {
+		try {
+			cache.get("url", "password", () -> {
+				throw new IllegalStateException("Pangolin is down");
+			});
+			fail("Exception expected");
+		} catch (final IllegalStateException ex) {
+			assertEquals("Pangolin is down", ex.getMessage());
+		}
+		assertEquals(0, cache.size());
+		assertEquals("encrypted1", cache.get("url", "password", this::load));
+	}
+
+	@Test(timeout = 10000)
+	public void getErrorReleasesWaiters() throws Exception {
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Future<String> failed = executor.submit(() -> cache.get("url", "password", () -> {
+				loading.countDown();
+				release.await();
+				throw new NoClassDefFoundError("retrofit2/Retrofit");
+			}));
+			loading.await();
+			executor.submit(() -> {
+				// let this thread wait for the failing load
+				Thread.sleep(100);
+				release.countDown();
+				return null;
+			});
+			assertEquals("encrypted1", cache.get("url", "password", this::load));
+			try {
+				failed.get();
+				fail("Error expected");
+			} catch (final ExecutionException ex) {
+				assertEquals(NoClassDefFoundError.class, ex.getCause().getClass());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void getConcurrentMissesLoadOnce() throws Exception {
+		final int threads = 8;
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> cache.get("url", "password", () -> {
+					loading.countDown();
+					release.await();
+					return load();
+				})));
+			}
+			loading.await();
+			// let other threads reach the cache
+			Thread.sleep(100);
+			release.countDown();
+			for (final Future<String> result : results) {
+				assertEquals("encrypted1", result.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(1, loads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private String load() {
+		return "encrypted" + loads.incrementAndGet();
+	}
+}
@@ -17,10 +17,13 @@ package com.agiletestware.pangolin;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -35,6 +38,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.kohsuke.stapler.StaplerRequest;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -42,11 +46,13 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import com.agiletestware.pangolin.validator.CustomUrlAvailableValidator;
 
 import hudson.model.AbstractProject;
+import hudson.model.Failure;
 import hudson.security.ACL;
 import hudson.security.Permission;
 import hudson.util.FormValidation;
 import hudson.util.Secret;
 import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
 
 /**
  * Tests for{ @link GlobalConfig}.
@@ -152,6 +158,29 @@ public class GlobalConfigTest {
 				globalConfig.doCheckTestRailUser(createAbstractProjectMock(), "  ").toString());
 	}
 
+	@Test
+	public void doCheckNegativeSettings() {
+		assertEquals(FormValidation.Kind.OK, globalConfig.doCheckMaxConcurrentUploads("0").kind);
+		assertEquals(FormValidation.Kind.OK, globalConfig.doCheckRetryDelay("5").kind);
+		assertEquals(FormValidation.Kind.ERROR, globalConfig.doCheckUploadRetries("-1").kind);
+		assertEquals(FormValidation.Kind.ERROR, globalConfig.doCheckCoalescingWindow("-10").kind);
+	}
+
+	@Test
+	public void configureRejectsNegativeSettings() throws Exception {
+		for (final String setting : GlobalConfig.NON_NEGATIVE_SETTINGS) {
+			final JSONObject json = new JSONObject();
+			json.put(setting, "-1");
+			try {
+				globalConfig.configure(mock(StaplerRequest.class), json);
+				fail("Negative " + setting + " was accepted");
+			} catch (final Failure ex) {
+				assertEquals(Messages.negativeSettingValue(setting, -1), ex.getMessage());
+			}
+		}
+		verify(globalConfig, never()).save();
+	}
+
 	@SuppressWarnings("rawtypes")
 	private AbstractProject createAbstractProjectMock() {
 		return mock(AbstractProject.class);
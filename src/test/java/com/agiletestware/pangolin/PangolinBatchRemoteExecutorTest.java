@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.agiletestware.pangolin.client.BuildLogger;
+
+import hudson.model.TaskListener;
+
+/**
+ * Tests for {@link PangolinBatchRemoteExecutor}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinBatchRemoteExecutorTest {
+
+	private final TaskListener listener = mock(TaskListener.class);
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	@Before
+	public void setUp() {
+		when(listener.getLogger()).thenReturn(new PrintStream(out, true));
+	}
+
+	@Test
+	public void call_sequential() throws Exception {
+		final PangolinBatchRemoteExecutor batchExecutor = new PangolinBatchRemoteExecutor(listener, 1);
+		batchExecutor.add(createExecutor("url1", null));
+		batchExecutor.add(createExecutor(null, new IllegalStateException("oops")));
+		batchExecutor.add(createExecutor("url3", null));
+		final List<PangolinUploadResult> results = batchExecutor.call();
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isSuccess());
+		assertEquals("url1", results.get(0).getRunUrl());
+		assertFalse(results.get(1).isSuccess());
+		assertNull(results.get(1).getRunUrl());
+		assertEquals(Messages.uploadErrorMessage() + "oops", results.get(1).getErrorMessage());
+		assertEquals("url3", results.get(2).getRunUrl());
+		assertTrue(out.toString().contains(Messages.uploadErrorMessage() + "oops"));
+		// failIfUploadFailed flag is applied on the controller after the last retry
+		assertFalse(out.toString().contains(Messages.logFailIfUploadFalse()));
+	}
+
+	@Test
+	public void call_transientFailureKeepsUploadState() throws Exception {
+		final PangolinBatchRemoteExecutor batchExecutor = new PangolinBatchRemoteExecutor(listener, 1);
+		final PangolinRemoteExecutor executor = createExecutor(null, new SocketException("Connection reset"));
+		when(executor.getUploadedFiles()).thenReturn(Collections.singleton("reports/report1.xml"));
+		when(executor.getTestRunId()).thenReturn(7);
+		batchExecutor.add(executor);
+		batchExecutor.add(createExecutor(null, new IllegalStateException("Project not found")));
+		final List<PangolinUploadResult> results = batchExecutor.call();
+		assertTrue(results.get(0).isTransientFailure());
+		assertEquals(Collections.singleton("reports/report1.xml"), results.get(0).getUploadedFiles());
+		assertEquals(7, results.get(0).getTestRunId());
+		assertFalse(results.get(1).isTransientFailure());
+		assertTrue(results.get(1).getUploadedFiles().isEmpty());
+	}
+
+	@Test
+	public void call_parallel_logIsNotInterleaved() throws Exception {
+		final PangolinBatchRemoteExecutor batchExecutor = new PangolinBatchRemoteExecutor(listener, 3);
+		for (int i = 0; i < 3; i++) {
+			batchExecutor.add(createLoggingExecutor("upload" + i, 20 * (3 - i)));
+		}
+		final List<PangolinUploadResult> results = batchExecutor.call();
+		assertEquals(3, results.size());
+		final String lineSeparator = System.lineSeparator();
+		final StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 3; i++) {
+			assertEquals("upload" + i, results.get(i).getRunUrl());
+			expected.append("upload").append(i).append(" start").append(lineSeparator).append("upload").append(i).append(" end").append(lineSeparator);
+		}
+		assertEquals(expected.toString(), out.toString());
+	}
+
+	private PangolinRemoteExecutor createExecutor(final String runUrl, final Exception error) throws Exception {
+		final PangolinRemoteExecutor executor = mock(PangolinRemoteExecutor.class);
+		if (error != null) {
+			when(executor.upload(any(BuildLogger.class))).thenThrow(error);
+		} else {
+			when(executor.upload(any(BuildLogger.class))).thenReturn(PangolinUploadResult.success(runUrl));
+		}
+		return executor;
+	}
+
+	private PangolinRemoteExecutor createLoggingExecutor(final String name, final long sleepMillis) throws Exception {
+		final PangolinRemoteExecutor executor = mock(PangolinRemoteExecutor.class);
+		when(executor.upload(any(BuildLogger.class))).then(a -> {
+			final BuildLogger logger = a.getArgument(0);
+			logger.info(name + " start");
+			Thread.sleep(sleepMillis);
+			logger.info(name + " end");
+			return PangolinUploadResult.success(name);
+		});
+		return executor;
+	}
+}
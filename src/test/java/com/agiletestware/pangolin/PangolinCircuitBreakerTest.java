@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.agiletestware.pangolin.PangolinCircuitBreaker.State;
+
+/**
+ * Tests for {@link PangolinCircuitBreaker}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinCircuitBreakerTest {
+
+	private static final long OPEN = PangolinCircuitBreaker.OPEN_PERIOD_MILLIS;
+
+	@Test
+	public void opensAfterThreshold() {
+		final PangolinCircuitBreaker breaker = new PangolinCircuitBreaker("url");
+		assertFalse(breaker.recordFailure(3, 0));
+		assertFalse(breaker.recordFailure(3, 0));
+		assertTrue(breaker.allowRequest(3, 0));
+		assertTrue(breaker.recordFailure(3, 0));
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest(3, OPEN - 1));
+	}
+
+	@Test
+	public void successResetsFailures() {
+		final PangolinCircuitBreaker breaker = new PangolinCircuitBreaker("url");
+		breaker.recordFailure(2, 0);
+		breaker.recordSuccess();
+		assertFalse(breaker.recordFailure(2, 0));
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void halfOpenAllowsOneTrial() {
+		final PangolinCircuitBreaker breaker = new PangolinCircuitBreaker("url");
+		breaker.recordFailure(1, 0);
+		assertTrue(breaker.allowRequest(1, OPEN));
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest(1, OPEN + 1));
+		assertTrue(breaker.recordFailure(1, OPEN + 1));
+		assertFalse(breaker.allowRequest(1, 2 * OPEN));
+		assertTrue(breaker.allowRequest(1, 2 * OPEN + 1));
+		breaker.recordSuccess();
+		assertEquals(State.CLOSED, breaker.getState());
+		assertEquals(0, breaker.getConsecutiveFailures());
+		assertTrue(breaker.allowRequest(1, 2 * OPEN + 2));
+	}
+
+	@Test
+	public void disabled() {
+		final PangolinCircuitBreaker breaker = new PangolinCircuitBreaker("url");
+		for (int i = 0; i < 10; i++) {
+			assertFalse(breaker.recordFailure(0, 0));
+		}
+		assertTrue(breaker.allowRequest(0, 0));
+	}
+}
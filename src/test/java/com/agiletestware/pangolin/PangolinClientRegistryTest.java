@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.agiletestware.pangolin.client.DefaultPangolinClientFactory;
+import com.agiletestware.pangolin.client.PangolinClient;
+import com.agiletestware.pangolin.client.PangolinClientFactory;
+
+/**
+ * Tests for {@link PangolinClientRegistry}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinClientRegistryTest {
+
+	private final PangolinClientRegistry registry = PangolinClientRegistry.THE_INSTANCE;
+
+	@After
+	public void tearDown() {
+		registry.clear();
+	}
+
+	@Test
+	public void getReusesClient() {
+		final PangolinClientFactory factory = mockFactory();
+		final PangolinClient client = registry.get(factory);
+		assertSame(client, registry.get(factory));
+		assertSame(client, registry.shared(factory).create(null));
+		verify(factory, times(1)).create(any());
+	}
+
+	@Test
+	public void getClientPerFactory() {
+		final PangolinClientFactory factory1 = mockFactory();
+		final PangolinClientFactory factory2 = mockFactory();
+		assertNotSame(registry.get(factory1), registry.get(factory2));
+		assertEquals(2, registry.getSize());
+	}
+
+	@Test
+	public void getSharesDefaultClientWithDeserializedFactory() throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(DefaultPangolinClientFactory.THE_INSTANCE);
+		}
+		final PangolinClientFactory deserialized;
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized = (PangolinClientFactory) in.readObject();
+		}
+		assertSame(registry.get(DefaultPangolinClientFactory.THE_INSTANCE), registry.get(deserialized));
+		assertEquals(1, registry.getSize());
+	}
+
+	@Test
+	public void clear() {
+		final PangolinClientFactory factory = mockFactory();
+		final PangolinClient client = registry.get(factory);
+		registry.clear();
+		assertEquals(0, registry.getSize());
+		assertNotSame(client, registry.get(factory));
+		verify(factory, times(2)).create(any());
+	}
+
+	private static PangolinClientFactory mockFactory() {
+		final PangolinClientFactory factory = mock(PangolinClientFactory.class);
+		when(factory.create(any())).thenAnswer(invocation -> mock(PangolinClient.class));
+		return factory;
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.agiletestware.pangolin.PangolinHealthMonitor.EndpointStatus;
+import com.agiletestware.pangolin.client.UrlAvailableValidator;
+import com.agiletestware.pangolin.validator.CustomUrlAvailableValidator;
+
+import hudson.util.FormValidation;
+
+/**
+ * Tests for {@link PangolinHealthMonitor}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinHealthMonitorTest {
+
+	private static final String URL = "http://pangolin:9999";
+
+	@After
+	public void tearDown() {
+		PangolinHealthMonitor.clear();
+	}
+
+	@Test
+	public void getStatus() {
+		PangolinHealthMonitor.record(URL, true, 15, 1000);
+		final EndpointStatus status = PangolinHealthMonitor.getStatus(" " + URL + " ", 1000);
+		assertEquals(URL, status.getUrl());
+		assertTrue(status.isReachable());
+		assertEquals(15, status.getLatencyMillis());
+		assertEquals(1000, status.getCheckedAt());
+		assertFalse(PangolinHealthMonitor.isDown(URL, 1000));
+	}
+
+	@Test
+	public void recordTrimsUrl() {
+		PangolinHealthMonitor.record(" " + URL + " ", false, 20000, 1000);
+		assertEquals(URL, PangolinHealthMonitor.getStatus(URL, 1000).getUrl());
+		assertTrue(PangolinHealthMonitor.isDown(URL, 1000));
+	}
+
+	@Test
+	public void probe() {
+		final UrlAvailableValidator urlValidator = mock(UrlAvailableValidator.class);
+		when(urlValidator.isUrlReachable(eq(URL), anyInt())).thenReturn(true);
+		final EndpointStatus status = PangolinHealthMonitor.probe(URL + " ", urlValidator, 100);
+		assertEquals(URL, status.getUrl());
+		assertTrue(status.isReachable());
+		assertEquals(status.getUrl(), PangolinHealthMonitor.getStatus(URL, status.getCheckedAt()).getUrl());
+	}
+
+	@Test
+	public void validationUsesFreshStatus() {
+		final UrlAvailableValidator urlValidator = mock(UrlAvailableValidator.class);
+		final CustomUrlAvailableValidator validator = new CustomUrlAvailableValidator("empty", "{0} is unreachable", urlValidator);
+		PangolinHealthMonitor.record(URL, false, 20000, System.currentTimeMillis());
+		final FormValidation validation = validator.validate(URL, 20000L);
+		assertEquals(FormValidation.Kind.ERROR, validation.kind);
+		PangolinHealthMonitor.record(URL, true, 15, System.currentTimeMillis());
+		assertEquals(FormValidation.Kind.OK, validator.validate(URL, 20000L).kind);
+		verify(urlValidator, never()).isUrlReachable(eq(URL), anyInt());
+	}
+
+	@Test
+	public void validationProbesWithoutFreshStatus() {
+		final UrlAvailableValidator urlValidator = mock(UrlAvailableValidator.class);
+		when(urlValidator.isUrlReachable(eq(URL), anyInt())).thenReturn(true);
+		final CustomUrlAvailableValidator validator = new CustomUrlAvailableValidator("empty", "{0} is unreachable", urlValidator);
+		assertEquals(FormValidation.Kind.OK, validator.validate(URL, 20000L).kind);
+		verify(urlValidator).isUrlReachable(URL, 20000);
+		assertNull(PangolinHealthMonitor.getStatus(URL, System.currentTimeMillis()));
+	}
+
+	@Test
+	public void isDown() {
+		PangolinHealthMonitor.record(URL, false, 20000, 1000);
+		assertTrue(PangolinHealthMonitor.isDown(URL, 1000));
+		assertFalse(PangolinHealthMonitor.isDown("http://other:9999", 1000));
+		assertFalse(PangolinHealthMonitor.isDown(null, 1000));
+	}
+
+	@Test
+	public void getStatusExpired() {
+		PangolinHealthMonitor.record(URL, false, 20000, 1000);
+		assertTrue(PangolinHealthMonitor.isDown(URL, 1000 + PangolinHealthMonitor.STATUS_TTL_MILLIS - 1));
+		assertNull(PangolinHealthMonitor.getStatus(URL, 1000 + PangolinHealthMonitor.STATUS_TTL_MILLIS));
+		assertFalse(PangolinHealthMonitor.isDown(URL, 1000 + PangolinHealthMonitor.STATUS_TTL_MILLIS));
+	}
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.agiletestware.pangolin.client.PangolinClientFactory;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParametersImpl;
+import com.agiletestware.pangolin.shared.model.testresults.UploadResponse.RunInfo;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+
+/**
+ * Tests for {@link PangolinLiveUploadSession}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinLiveUploadSessionTest {
+
+	private static final long QUIET_PERIOD = 100;
+	private static final byte[] REPORT = "<testsuite/>".getBytes(StandardCharsets.UTF_8);
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	private final TaskListener listener = mock(TaskListener.class);
+	private BulkUpdateParameters params;
+	private PangolinRemoteExecutor executor;
+
+	@Before
+	public void setUp() throws Exception {
+		when(listener.getLogger()).thenReturn(mock(PrintStream.class));
+		params = new BulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		params.setCloseRun(true);
+		executor = spy(new PangolinRemoteExecutor(new FilePath(tempFolder.getRoot()), params, listener, mock(PangolinClientFactory.class)));
+		doReturn(new RunInfo(7, "url")).when(executor).uploadFiles(anyList(), any());
+	}
+
+	@Test
+	public void uploadCompletedAfterQuietPeriod() throws Exception {
+		final PangolinLiveUploadSession session = createSession(1);
+		final File file1 = newReport("report1.xml", session, 0);
+		final File file2 = newReport("report2.xml", session, 0);
+		session.uploadCompleted(QUIET_PERIOD - 1);
+		verify(executor, never()).uploadFiles(anyList(), any());
+		session.uploadCompleted(QUIET_PERIOD);
+		verify(executor).uploadFiles(eq(Arrays.asList(file1)), any());
+		// the newest complete file is held back for the final upload
+		verify(executor, never()).uploadFiles(eq(Arrays.asList(file2)), any());
+		assertEquals(Collections.singleton("report1.xml"), session.stop().getUploadedFiles());
+	}
+
+	@Test
+	public void uploadCompletedHoldsBackFilesBeingWritten() throws Exception {
+		final PangolinLiveUploadSession session = createSession(1);
+		final File file1 = newReport("report1.xml", session, 0);
+		final File file2 = newReport("report2.xml", session, 0);
+		final File file3 = newReport("report3.xml", session, 0);
+		// report1.xml is still being written
+		session.fileChanged(file1.toPath(), QUIET_PERIOD - 20);
+		session.uploadCompleted(QUIET_PERIOD);
+		verify(executor).uploadFiles(eq(Arrays.asList(file2)), any());
+		verify(executor, never()).uploadFiles(eq(Arrays.asList(file1)), any());
+		session.uploadCompleted(2 * QUIET_PERIOD - 20);
+		verify(executor).uploadFiles(eq(Arrays.asList(file3)), any());
+		verify(executor, never()).uploadFiles(eq(Arrays.asList(file1)), any());
+		assertEquals(new HashSet<>(Arrays.asList("report2.xml", "report3.xml")), session.stop().getUploadedFiles());
+	}
+
+	@Test
+	public void uploadCompletedInBatches() throws Exception {
+		final PangolinLiveUploadSession session = createSession(2);
+		final File[] files = new File[5];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = newReport("report" + i + ".xml", session, 0);
+		}
+		session.uploadCompleted(QUIET_PERIOD);
+		verify(executor).uploadFiles(eq(Arrays.asList(files[0], files[1])), any());
+		verify(executor).uploadFiles(eq(Arrays.asList(files[2], files[3])), any());
+		verify(executor, never()).uploadFiles(eq(Arrays.asList(files[4])), any());
+		// uploaded files are not uploaded again
+		session.fileChanged(files[0].toPath(), QUIET_PERIOD);
+		session.uploadCompleted(2 * QUIET_PERIOD);
+		verify(executor).uploadFiles(eq(Arrays.asList(files[0], files[1])), any());
+		assertEquals(4, session.stop().getUploadedFiles().size());
+	}
+
+	@Test
+	public void failedBatchKeepsSentFiles() throws Exception {
+		final PangolinLiveUploadSession session = createSession(2);
+		final File file1 = newReport("report1.xml", session, 0);
+		final File file2 = newReport("report2.xml", session, 0);
+		newReport("report3.xml", session, 0);
+		doThrow(new IOException("Connection reset")).when(executor).uploadFiles(eq(Arrays.asList(file1, file2)), any());
+		doReturn(Collections.singleton("report1.xml")).when(executor).getUploadedFiles();
+		try {
+			session.uploadCompleted(QUIET_PERIOD);
+			fail("Upload has not failed");
+		} catch (final IOException ex) {
+			assertEquals("Connection reset", ex.getMessage());
+		}
+		assertEquals(Collections.singleton("report1.xml"), session.stop().getUploadedFiles());
+	}
+
+	@Test
+	public void shouldWatch() {
+		params.setResultPattern("build/test-results/**/*.xml");
+		final PangolinLiveUploadSession session = createSession(1);
+		final File root = tempFolder.getRoot();
+		assertTrue(session.shouldWatch(root.toPath()));
+		assertTrue(session.shouldWatch(new File(root, "build").toPath()));
+		assertTrue(session.shouldWatch(new File(root, "build/test-results/unit").toPath()));
+		assertFalse(session.shouldWatch(new File(root, "src").toPath()));
+		assertFalse(session.shouldWatch(new File(root, "build/classes").toPath()));
+		assertFalse(session.shouldWatch(new File(root, "node_modules").toPath()));
+	}
+
+	@Test
+	public void sessionDoesNotCloseRun() {
+		createSession(1);
+		assertFalse(params.isCloseRun());
+	}
+
+	@Test
+	public void startAndStop() throws Exception {
+		final CountDownLatch uploaded = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			params.setTestRunId(7);
+			uploaded.countDown();
+			return new RunInfo(7, "url");
+		}).when(executor).uploadFiles(anyList(), any());
+		final String id = new PangolinLiveUploadSession.Start(executor, listener, 1, 0).call();
+		// files can be written before the session has started to watch the workspace, so write them until upload starts
+		for (int i = 0; i < 100 && !uploaded.await(100, TimeUnit.MILLISECONDS); i++) {
+			Files.write(new File(tempFolder.getRoot(), "report1.xml").toPath(), REPORT);
+			Files.write(new File(tempFolder.getRoot(), "report2.xml").toPath(), REPORT);
+		}
+		verify(executor).uploadFiles(argThat(batch -> batch.size() == 1), any());
+		final PangolinLiveUploadSession.State state = new PangolinLiveUploadSession.Stop(id).call();
+		assertNotNull(state);
+		assertEquals(1, state.getUploadedFiles().size());
+		assertEquals(7, state.getTestRunId());
+	}
+
+	private PangolinLiveUploadSession createSession(final int batchSize) {
+		return new PangolinLiveUploadSession(executor, new JenkinsBuildLogger(listener), batchSize, QUIET_PERIOD);
+	}
+
+	private File newReport(final String name, final PangolinLiveUploadSession session, final long now) throws IOException {
+		final File file = tempFolder.newFile(name);
+		session.fileChanged(file.toPath(), now);
+		return file;
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import com.agiletestware.pangolin.client.PangolinClientFactory;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParametersImpl;
+import com.agiletestware.pangolin.shared.model.testresults.UploadResponse.RunInfo;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DescribableList;
+import jenkins.tasks.SimpleBuildWrapper;
+
+/**
+ * Tests for {@link PangolinLiveUploadWrapper}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinLiveUploadWrapperTest {
+
+	private static final byte[] REPORT = "<testsuite/>".getBytes(StandardCharsets.UTF_8);
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	private final TaskListener listener = mock(TaskListener.class);
+	private final PrintStream log = mock(PrintStream.class);
+	private final Launcher launcher = mock(Launcher.class);
+	private FilePath workspace;
+
+	@Before
+	public void setUp() {
+		when(listener.getLogger()).thenReturn(log);
+		workspace = new FilePath(tempFolder.getRoot());
+	}
+
+	@Test
+	public void setUpWithoutPublisher() throws Exception {
+		final SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+		new PangolinLiveUploadWrapper().setUp(context, mock(Run.class), workspace, launcher, listener, new EnvVars());
+		verify(log).println(Messages.liveUploadNoPublisherLog());
+		assertNull(context.getDisposer());
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void setUpAndTearDown() throws Exception {
+		final BulkUpdateParameters params = new BulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		params.setProject("project");
+		final PangolinRemoteExecutor executor = spy(new PangolinRemoteExecutor(workspace, params, listener, mock(PangolinClientFactory.class)));
+		final CountDownLatch uploaded = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			params.setTestRunId(7);
+			uploaded.countDown();
+			return new RunInfo(7, "url");
+		}).when(executor).uploadFiles(anyList(), any());
+		final PangolinPublisher publisher = mock(PangolinPublisher.class);
+		final AbstractBuild build = mock(AbstractBuild.class);
+		final AbstractProject project = mock(AbstractProject.class);
+		final DescribableList publishers = mock(DescribableList.class);
+		when(build.getParent()).thenReturn(project);
+		when(project.getPublishersList()).thenReturn(publishers);
+		when(publishers.get(PangolinPublisher.class)).thenReturn(publisher);
+		when(publisher.createLiveUploadExecutors(build, workspace, listener)).thenReturn(Collections.singletonList(executor));
+
+		final PangolinLiveUploadWrapper wrapper = new PangolinLiveUploadWrapper();
+		wrapper.setBatchSize(1);
+		wrapper.setQuietPeriod(0);
+		final SimpleBuildWrapper.Context context = new SimpleBuildWrapper.Context();
+		wrapper.setUp(context, build, workspace, launcher, listener, new EnvVars());
+		assertNotNull(context.getDisposer());
+		// files can be written before the session has started to watch the workspace, so write them until upload starts
+		for (int i = 0; i < 100 && !uploaded.await(100, TimeUnit.MILLISECONDS); i++) {
+			Files.write(new File(tempFolder.getRoot(), "report1.xml").toPath(), REPORT);
+			Files.write(new File(tempFolder.getRoot(), "report2.xml").toPath(), REPORT);
+		}
+
+		context.getDisposer().tearDown(build, workspace, launcher, listener);
+		final ArgumentCaptor<PangolinLiveUploadAction> actionCaptor = ArgumentCaptor.forClass(PangolinLiveUploadAction.class);
+		verify(build).addAction(actionCaptor.capture());
+		when(build.getAction(PangolinLiveUploadAction.class)).thenReturn(actionCaptor.getValue());
+		final PangolinLiveUploadSession.State state = PangolinLiveUploadAction.find(build, PangolinUploadManifestAction.createKey(params));
+		assertNotNull(state);
+		assertEquals(7, state.getTestRunId());
+		assertEquals(1, state.getUploadedFiles().size());
+	}
+
+	@Test
+	public void setters() {
+		final PangolinLiveUploadWrapper wrapper = new PangolinLiveUploadWrapper();
+		wrapper.setBatchSize(0);
+		wrapper.setQuietPeriod(-1);
+		assertEquals(50, wrapper.getBatchSize());
+		assertEquals(5, wrapper.getQuietPeriod());
+		wrapper.setBatchSize(10);
+		wrapper.setQuietPeriod(0);
+		assertEquals(10, wrapper.getBatchSize());
+		assertEquals(0, wrapper.getQuietPeriod());
+	}
+}
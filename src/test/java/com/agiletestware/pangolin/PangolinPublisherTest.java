@@ -16,18 +16,31 @@
 package com.agiletestware.pangolin;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -36,7 +49,9 @@ import org.junit.rules.TemporaryFolder;
 
 import com.agiletestware.pangolin.client.PangolinClient;
 import com.agiletestware.pangolin.client.PangolinClientFactory;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
 import com.agiletestware.pangolin.encryption.CustomSecret;
+import com.agiletestware.pangolin.retrofit.ConnectionConfig;
 
 import hudson.AbortException;
 import hudson.EnvVars;
@@ -70,11 +85,76 @@ public class PangolinPublisherTest {
 
 	@Before
 	public void setUp() {
+		EncryptedPasswordCache.THE_INSTANCE.invalidateAll();
 		customSecret = mock(CustomSecret.class);
 		when(customSecret.getEncryptedValue("password")).thenReturn("encryptedPassword");
 		when(customSecret.getPlainText("encryptedPassword")).thenReturn("password");
 	}
 
+	@After
+	public void tearDown() {
+		PangolinClientRegistry.THE_INSTANCE.clear();
+		EncryptedPasswordCache.THE_INSTANCE.invalidateAll();
+	}
+
+	@Test
+	public void encryptPasswordForPangolinTest() throws Exception {
+		final PangolinClient client = mockEncryptingClient();
+		final PangolinPublisher publisher = new PangolinPublisher("testRailProject", "testRailUserName", TEST_RAIL_PASSWORD,
+				createPangolinConfiguration(true), globalConfigFactory, (c) -> client, customSecret);
+		publisher.encryptPasswordForPangolin();
+		final PangolinEncryptedPassword encryptedPassword = publisher.getPangolinEncryptedPassword();
+		assertEquals("url", encryptedPassword.getPangolinUrl());
+		assertEquals("pangolinEncrypted", encryptedPassword.getEncryptedPassword("url", customSecret));
+		verify(client).getEncryptedPassword(TEST_RAIL_PASSWORD, new ConnectionConfig("url", PangolinEncryptedPassword.SAVE_TIMEOUT_MILLIS));
+	}
+
+	@Test
+	public void encryptPasswordForPangolinBypassesCacheTest() throws Exception {
+		EncryptedPasswordCache.THE_INSTANCE.get("url", TEST_RAIL_PASSWORD, () -> "cachedEncrypted");
+		final PangolinClient client = mockEncryptingClient();
+		final PangolinPublisher publisher = new PangolinPublisher("testRailProject", "testRailUserName", TEST_RAIL_PASSWORD,
+				createPangolinConfiguration(true), globalConfigFactory, (c) -> client, customSecret);
+		publisher.encryptPasswordForPangolin();
+		assertEquals("pangolinEncrypted", publisher.getPangolinEncryptedPassword().getEncryptedPassword("url", customSecret));
+		verify(client).getEncryptedPassword(TEST_RAIL_PASSWORD, new ConnectionConfig("url", PangolinEncryptedPassword.SAVE_TIMEOUT_MILLIS));
+	}
+
+	@Test
+	public void encryptPasswordForPangolinFailedTest() throws Exception {
+		final PangolinClient client = mock(PangolinClient.class);
+		when(client.getEncryptedPassword(eq(TEST_RAIL_PASSWORD), any())).thenThrow(new IllegalStateException("Pangolin is down"));
+		final PangolinPublisher publisher = new PangolinPublisher("testRailProject", "testRailUserName", TEST_RAIL_PASSWORD,
+				createPangolinConfiguration(true), globalConfigFactory, (c) -> client, customSecret);
+		publisher.encryptPasswordForPangolin();
+		assertNull(publisher.getPangolinEncryptedPassword());
+	}
+
+	@Test
+	public void setTestRailPasswordClearsEncryptedPasswordTest() throws Exception {
+		final PangolinClient client = mockEncryptingClient();
+		final PangolinPublisher publisher = new PangolinPublisher("testRailProject", "testRailUserName", TEST_RAIL_PASSWORD,
+				createPangolinConfiguration(true), globalConfigFactory, (c) -> client, customSecret);
+		publisher.encryptPasswordForPangolin();
+		assertNotNull(publisher.getPangolinEncryptedPassword());
+		publisher.setTestRailPassword("otherPassword");
+		assertNull(publisher.getPangolinEncryptedPassword());
+	}
+
+	@Test
+	public void encryptedPasswordPangolinUrlChangedTest() throws Exception {
+		final PangolinClient client = mockEncryptingClient();
+		when(client.getEncryptedPassword(eq(TEST_RAIL_PASSWORD), eq(new ConnectionConfig("otherUrl", 0)))).thenReturn("otherPangolinEncrypted");
+		final PangolinPublisher publisher = new PangolinPublisher("testRailProject", "testRailUserName", TEST_RAIL_PASSWORD,
+				createPangolinConfiguration(true), globalConfigFactory, (c) -> client, customSecret);
+		publisher.encryptPasswordForPangolin();
+		assertNull(publisher.getPangolinEncryptedPassword().getEncryptedPassword("otherUrl", customSecret));
+		// password is encrypted at build time by the new Pangolin server
+		final BulkUpdateParameters params = BulkUpdateParametersFactory.create(new GlobalConfigFactoryImpl("otherUrl").create(),
+				publisher.getConfigs().get(0), publisher, (c) -> client, customSecret);
+		assertEquals("otherPangolinEncrypted", params.getTestRailEncryptedPassword());
+	}
+
 	@Test
 	public void getConfigsTest() {
 		final PangolinPublisher pangolinPublisher = new PangolinPublisher("project", "user", "password",
@@ -92,12 +172,117 @@ public class PangolinPublisherTest {
 		final Launcher launcher = mock(Launcher.class);
 		final VirtualChannel channel = mock(VirtualChannel.class);
 		when(launcher.getChannel()).thenReturn(channel);
+		when(channel.call(any())).thenReturn(Collections.singletonList(PangolinUploadResult.success("runUrl")));
 		final TaskListener listener = mock(TaskListener.class);
 		when(listener.getLogger()).thenReturn(System.out);
 		final PangolinPublisher pangolinPublisher = new PangolinPublisher("testRailProject", "testRailUserName", "testRailPassword",
 				createPangolinConfiguration(true), globalConfigFactory, clientFactory, customSecret);
 		pangolinPublisher.perform(run, new FilePath(tempFolder.newFile()), launcher, listener);
 		verify(channel).call(any());
+		assertEquals("runUrl", run.getAction(PangolinRunLinkAction.class).getTestRailRunUrl());
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testPerformParallel() throws Exception {
+		final PangolinClient client = mock(PangolinClient.class);
+		when(client.getEncryptedPassword(eq(TEST_RAIL_PASSWORD), any())).thenReturn(ENCRYPTED_PASSWORD);
+		final PangolinClientFactory clientFactory = (c) -> client;
+		final RunImpl run = new RunImpl(mock(Job.class), mock(EnvVars.class));
+		final Launcher launcher = mock(Launcher.class);
+		final VirtualChannel channel = mock(VirtualChannel.class);
+		when(launcher.getChannel()).thenReturn(channel);
+		when(channel.call(any())).thenReturn(Arrays.asList(PangolinUploadResult.success("runUrl"), PangolinUploadResult.success("runUrl"),
+				PangolinUploadResult.success("runUrl")));
+		final TaskListener listener = mock(TaskListener.class);
+		when(listener.getLogger()).thenReturn(System.out);
+		final List<PangolinConfiguration> configs = createPangolinConfiguration(true);
+		configs.addAll(createPangolinConfiguration(true));
+		configs.addAll(createPangolinConfiguration(true));
+		final PangolinPublisher pangolinPublisher = new PangolinPublisher("testRailProject", "testRailUserName", "testRailPassword",
+				configs, globalConfigFactory, clientFactory, customSecret);
+		pangolinPublisher.setMaxParallelUploads(2);
+		pangolinPublisher.perform(run, new FilePath(tempFolder.newFile()), launcher, listener);
+		verify(channel, times(1)).call(any());
+	}
+
+	@Test
+	public void testPerformParallelFailFlagTrue() throws Exception {
+		final List<PangolinConfiguration> configs = createPangolinConfiguration(false);
+		configs.addAll(createPangolinConfiguration(true));
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			createPerformFail(configs, 2, out);
+		} catch (final AbortException ex) {
+			assertEquals(Messages.logFailIfUploadTrue(), ex.getMessage());
+			final String log = out.toString();
+			assertTrue(log.indexOf(Messages.logFailIfUploadFalse()) < log.indexOf(Messages.logFailIfUploadTrue()));
+			return;
+		}
+		fail("AbortException is expected");
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testPerformAsync() throws Exception {
+		final PangolinClient client = mock(PangolinClient.class);
+		when(client.getEncryptedPassword(eq(TEST_RAIL_PASSWORD), any())).thenReturn(ENCRYPTED_PASSWORD);
+		final PangolinClientFactory clientFactory = (c) -> client;
+		final RunImpl run = new RunImpl(mock(Job.class), new EnvVars(), tempFolder.newFolder());
+		final File workspace = tempFolder.newFolder();
+		assertTrue(new File(workspace, "resultPattern").createNewFile());
+		final Launcher launcher = mock(Launcher.class);
+		final Launcher localLauncher = mock(Launcher.class);
+		final VirtualChannel channel = mock(VirtualChannel.class);
+		when(localLauncher.getChannel()).thenReturn(channel);
+		when(channel.call(any())).thenReturn(Collections.singletonList(PangolinUploadResult.success("runUrl")));
+		final TaskListener listener = mock(TaskListener.class);
+		when(listener.getLogger()).thenReturn(System.out);
+		final PangolinPublisher pangolinPublisher = spy(new PangolinPublisher("testRailProject", "testRailUserName", "testRailPassword",
+				createPangolinConfiguration(true), globalConfigFactory, clientFactory, customSecret));
+		doReturn(localLauncher).when(pangolinPublisher).createLocalLauncher(any());
+		pangolinPublisher.setAsyncUpload(true);
+		pangolinPublisher.perform(run, new FilePath(workspace), launcher, listener);
+		final PangolinUploadStatusAction status = run.getAction(PangolinUploadStatusAction.class);
+		assertNotNull(status);
+		final long deadline = System.currentTimeMillis() + 10000;
+		while (!status.getStatus().isFinished() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(PangolinUploadStatusAction.Status.DONE, status.getStatus());
+		assertEquals("runUrl", run.getAction(PangolinRunLinkAction.class).getTestRailRunUrl());
+		// reports are uploaded from their copy on the controller, not from the agent
+		verify(launcher, never()).getChannel();
+		assertFalse(new File(run.getRootDir(), PangolinPublisher.ASYNC_UPLOAD_REPORTS_DIR_NAME).exists());
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testPerformLogsFailFlagAfterLastRetry() throws Exception {
+		final GlobalConfiguration globalConfig = globalConfigFactory.create();
+		when(globalConfig.getUploadRetries()).thenReturn(1);
+		final PangolinClient client = mock(PangolinClient.class);
+		when(client.getEncryptedPassword(eq(TEST_RAIL_PASSWORD), any())).thenReturn(ENCRYPTED_PASSWORD);
+		final RunImpl run = new RunImpl(mock(Job.class), mock(EnvVars.class));
+		final Launcher launcher = mock(Launcher.class);
+		final VirtualChannel channel = mock(VirtualChannel.class);
+		when(launcher.getChannel()).thenReturn(channel);
+		when(channel.call(any())).thenReturn(Collections.singletonList(PangolinUploadResult.failure("502 Bad Gateway", true)));
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final TaskListener listener = mock(TaskListener.class);
+		when(listener.getLogger()).thenReturn(new PrintStream(out, true));
+		final PangolinPublisher pangolinPublisher = new PangolinPublisher("testRailProject", "testRailUserName", "testRailPassword",
+				createPangolinConfiguration(true), () -> globalConfig, (c) -> client, customSecret);
+		try {
+			pangolinPublisher.perform(run, new FilePath(tempFolder.newFile()), launcher, listener);
+			fail("AbortException is expected");
+		} catch (final AbortException ex) {
+			assertEquals(Messages.logFailIfUploadTrue(), ex.getMessage());
+		}
+		verify(channel, times(2)).call(any());
+		final String log = out.toString();
+		assertEquals(log.indexOf(Messages.logFailIfUploadTrue()), log.lastIndexOf(Messages.logFailIfUploadTrue()));
+		assertTrue(log.indexOf(Messages.uploadRetryLog("502 Bad Gateway", 0, 1, 1)) < log.indexOf(Messages.logFailIfUploadTrue()));
 	}
 
 	@Test
@@ -147,6 +332,7 @@ public class PangolinPublisherTest {
 		final Launcher launcher = mock(Launcher.class);
 		final VirtualChannel channel = mock(VirtualChannel.class);
 		when(launcher.getChannel()).thenReturn(channel);
+		when(channel.call(any())).thenReturn(Collections.singletonList(PangolinUploadResult.success("runUrl")));
 		final TaskListener listener = mock(TaskListener.class);
 		when(listener.getLogger()).thenReturn(System.out);
 		final PangolinPublisher pangolinPublisher = new PangolinPublisher("testRailProject", "", testRailPasswordFromJenkinsfile,
@@ -173,6 +359,12 @@ public class PangolinPublisherTest {
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private void createPerformFail(final boolean failOnFailure, final ByteArrayOutputStream out)
 			throws Exception {
+		createPerformFail(createPangolinConfiguration(failOnFailure), 1, out);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void createPerformFail(final List<PangolinConfiguration> configs, final int maxParallelUploads, final ByteArrayOutputStream out)
+			throws Exception {
 		final RunImpl run = new RunImpl(mock(Job.class), mock(EnvVars.class));
 		final Launcher launcher = mock(Launcher.class);
 		final TaskListener listener = mock(TaskListener.class);
@@ -180,10 +372,19 @@ public class PangolinPublisherTest {
 		when(listener.getLogger()).thenReturn(stream);
 		when(launcher.getChannel()).thenThrow(NullPointerException.class);
 		final PangolinPublisher pangolinPublisher = new PangolinPublisher("testRailProject", "testRailUserName", "testRailPassword",
-				createPangolinConfiguration(failOnFailure), globalConfigFactory, mock(PangolinClientFactory.class), customSecret);
+				configs, globalConfigFactory, mock(PangolinClientFactory.class), customSecret);
+		pangolinPublisher.setMaxParallelUploads(maxParallelUploads);
 		pangolinPublisher.perform(run, new FilePath(tempFolder.newFile()), launcher, listener);
 	}
 
+	private PangolinClient mockEncryptingClient() throws Exception {
+		final PangolinClient client = mock(PangolinClient.class);
+		when(client.getEncryptedPassword(eq(TEST_RAIL_PASSWORD), any())).thenReturn("pangolinEncrypted");
+		when(customSecret.getEncryptedValue("pangolinEncrypted")).thenReturn("protectedPangolinEncrypted");
+		when(customSecret.getPlainText("protectedPangolinEncrypted")).thenReturn("pangolinEncrypted");
+		return client;
+	}
+
 	private static class GlobalConfigFactoryImpl implements GlobalConfigFactory {
 		private final String url;
 
@@ -214,11 +415,26 @@ public class PangolinPublisherTest {
 
 		private final JobT job;
 		private final EnvVars envVars;
+		private final File rootDir;
 
 		protected RunImpl(final JobT job, final EnvVars envVars) throws IOException {
+			this(job, envVars, null);
+		}
+
+		protected RunImpl(final JobT job, final EnvVars envVars, final File rootDir) throws IOException {
 			super(job);
 			this.job = job;
 			this.envVars = envVars;
+			this.rootDir = rootDir;
+		}
+
+		@Override
+		public File getRootDir() {
+			return rootDir;
+		}
+
+		@Override
+		public synchronized void save() throws IOException {
 		}
 
 		@Override
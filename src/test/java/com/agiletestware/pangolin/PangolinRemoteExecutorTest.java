@@ -17,17 +17,29 @@ package com.agiletestware.pangolin;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -90,6 +102,7 @@ public class PangolinRemoteExecutorTest {
 		verify(client).sendResultsToTestrail(eq(params), eq(Arrays.asList(file1)), any());
 		verify(client).sendResultsToTestrail(eq(params), eq(Arrays.asList(file2)), any());
 		verify(log, times(2)).println("Results have been added to run: url");
+		verify(log).println(startsWith("Pangolin: Uploaded 2 report file(s), 0 bytes in "));
 	}
 
 	@Test
@@ -101,6 +114,209 @@ public class PangolinRemoteExecutorTest {
 		new PangolinRemoteExecutor(new FilePath(tempFolder.getRoot()), params, listener).execute();
 	}
 
+	@Test
+	public void executeStreamingTest() throws Exception {
+		final PangolinClientFactory clientFactory = mock(PangolinClientFactory.class);
+		final PangolinClient client = mock(PangolinClient.class);
+		final BulkUpdateParameters params = createBulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		params.setCloseRun(true);
+		final List<Boolean> closeRunFlags = new ArrayList<>();
+		final List<File> uploadedFiles = new ArrayList<>();
+		when(client.sendResultsToTestrail(any(), any(), any())).then(a -> {
+			closeRunFlags.add(params.isCloseRun());
+			uploadedFiles.addAll(a.getArgument(1));
+			return new UploadResponse(Arrays.asList(new RunInfo(1, "url")));
+		});
+		when(clientFactory.create(any())).thenReturn(client);
+		final List<File> files = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			files.add(tempFolder.newFile("report" + i + ".xml"));
+		}
+		final PangolinRemoteExecutor executor = new PangolinRemoteExecutor(new FilePath(tempFolder.getRoot()), params, listener, clientFactory);
+		executor.setStreamingUpload(true);
+		executor.setStreamingBatchSize(2);
+		assertEquals("url", executor.execute().getRunUrl());
+		assertEquals(new HashSet<>(files), new HashSet<>(uploadedFiles));
+		assertEquals(5, uploadedFiles.size());
+		assertEquals(Boolean.TRUE, closeRunFlags.get(closeRunFlags.size() - 1));
+		assertFalse(closeRunFlags.subList(0, closeRunFlags.size() - 1).contains(Boolean.TRUE));
+		assertTrue(params.isCloseRun());
+		verify(log).println("Pangolin: Uploaded 5 report file(s) in 3 batch(es) while scanning, 1 directories visited");
+	}
+
+	@Test
+	public void executeStreamingFailedUploadStopsScanTest() throws Exception {
+		final PangolinClientFactory clientFactory = mock(PangolinClientFactory.class);
+		final PangolinClient client = mock(PangolinClient.class);
+		final BulkUpdateParameters params = createBulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		when(client.sendResultsToTestrail(any(), any(), any())).thenThrow(new IllegalStateException("Project not found"));
+		when(clientFactory.create(any())).thenReturn(client);
+		for (int i = 0; i < 10; i++) {
+			tempFolder.newFile("report" + i + ".xml");
+		}
+		final PangolinRemoteExecutor executor = new PangolinRemoteExecutor(new FilePath(tempFolder.getRoot()), params, listener, clientFactory);
+		executor.setStreamingUpload(true);
+		executor.setStreamingBatchSize(1);
+		try {
+			executor.execute();
+			fail("Exception expected");
+		} catch (final Exception ex) {
+			// upload of the first batch has failed
+		}
+		verify(client).sendResultsToTestrail(any(), any(), any());
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			assertFalse(thread.getName().equals("Pangolin report scan") && thread.isAlive());
+		}
+	}
+
+	@Test
+	public void executeBundledTest() throws Exception {
+		final PangolinClientFactory clientFactory = mock(PangolinClientFactory.class);
+		final PangolinClient client = mock(PangolinClient.class);
+		final List<List<File>> requests = new ArrayList<>();
+		final List<String> bundles = new ArrayList<>();
+		when(client.sendResultsToTestrail(any(), any(), any())).then(a -> {
+			final List<File> files = a.getArgument(1);
+			requests.add(files);
+			for (final File file : files) {
+				bundles.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+			}
+			return new UploadResponse(Arrays.asList(new RunInfo(1, "url")));
+		});
+		when(clientFactory.create(any())).thenReturn(client);
+		final BulkUpdateParameters params = createBulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		for (int i = 0; i < 5; i++) {
+			Files.write(tempFolder.newFile("report" + i + ".xml").toPath(),
+					("<testsuite name=\"s" + i + "\"/>").getBytes(StandardCharsets.UTF_8));
+		}
+		final PangolinRemoteExecutor executor = new PangolinRemoteExecutor(new FilePath(tempFolder.getRoot()), params, listener, clientFactory);
+		executor.setReportBundler(new ReportBundler(1000, 2));
+		assertEquals("url", executor.execute().getRunUrl());
+		assertEquals(3, requests.size());
+		assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites><testsuite name=\"s0\"></testsuite>"
+				+ "<testsuite name=\"s1\"></testsuite></testsuites>", bundles.get(0));
+		assertEquals("<testsuite name=\"s4\"/>", bundles.get(2));
+		verify(log).println("Pangolin: Bundled 5 report file(s) into 3 upload(s)");
+		verify(log).println(startsWith("Pangolin: Uploaded 5 report file(s)"));
+	}
+
+	@Test
+	public void executeAfterLiveUploadTest() throws Exception {
+		final PangolinClientFactory clientFactory = mock(PangolinClientFactory.class);
+		final PangolinClient client = mock(PangolinClient.class);
+		final BulkUpdateParameters params = createBulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		final List<Integer> testRunIds = new ArrayList<>();
+		final List<File> uploadedFiles = new ArrayList<>();
+		when(client.sendResultsToTestrail(any(), any(), any())).then(a -> {
+			testRunIds.add(params.getTestRunId());
+			uploadedFiles.addAll(a.getArgument(1));
+			return new UploadResponse(Arrays.asList(new RunInfo(42, "url")));
+		});
+		when(clientFactory.create(any())).thenReturn(client);
+		tempFolder.newFolder("live");
+		tempFolder.newFile("live/report1.xml");
+		tempFolder.newFile("live/report2.xml");
+		final File remaining = tempFolder.newFile("live/report3.xml");
+		final PangolinRemoteExecutor executor = new PangolinRemoteExecutor(new FilePath(tempFolder.getRoot()), params, listener, clientFactory);
+		executor.setLiveUploadState(new HashSet<>(Arrays.asList("live/report1.xml", "live/report2.xml")), 42);
+		assertTrue(executor.isLiveUploaded());
+		assertEquals("url", executor.execute().getRunUrl());
+		assertEquals(Arrays.asList(remaining), uploadedFiles);
+		assertEquals(Arrays.asList(42), testRunIds);
+		verify(log).println("Pangolin: 1 report file(s) remain to upload, 2 file(s) have been uploaded during the build");
+	}
+
+	@Test
+	public void resumeSendsOnlyRemainingFilesTest() throws Exception {
+		final PangolinClientFactory clientFactory = mock(PangolinClientFactory.class);
+		final PangolinClient client = mock(PangolinClient.class);
+		final File file1 = tempFolder.newFile("report1.xml");
+		final File file2 = tempFolder.newFile("report2.xml");
+		when(client.sendResultsToTestrail(any(), eq(Arrays.asList(file1)), any())).thenReturn(new UploadResponse(Arrays.asList(new RunInfo(1, "url"))));
+		when(client.sendResultsToTestrail(any(), eq(Arrays.asList(file2)), any())).thenThrow(new RuntimeException("503 Service Unavailable"))
+				.thenReturn(new UploadResponse(Arrays.asList(new RunInfo(1, "url"))));
+		when(clientFactory.create(any())).thenReturn(client);
+		final BulkUpdateParameters params = createBulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		final PangolinRemoteExecutor executor = new PangolinRemoteExecutor(new FilePath(tempFolder.getRoot()), params, listener, clientFactory);
+		try {
+			executor.execute();
+			fail("Exception expected");
+		} catch (final Exception ex) {
+			assertEquals(new HashSet<>(Arrays.asList("report1.xml")), executor.getUploadedFiles());
+		}
+		executor.resume(PangolinUploadResult.failure("503", true, executor.getUploadedFiles(), 7));
+		assertEquals("url", executor.execute().getRunUrl());
+		assertEquals(7, params.getTestRunId());
+		verify(client, times(1)).sendResultsToTestrail(any(), eq(Arrays.asList(file1)), any());
+		verify(client, times(2)).sendResultsToTestrail(any(), eq(Arrays.asList(file2)), any());
+	}
+
+	@Test
+	public void uploadSkipsUnchangedReportsTest() throws Exception {
+		final PangolinClientFactory clientFactory = mock(PangolinClientFactory.class);
+		final PangolinClient client = mock(PangolinClient.class);
+		when(client.sendResultsToTestrail(any(), any(), any())).thenReturn(new UploadResponse(Arrays.asList(new RunInfo(1, "url"))));
+		when(clientFactory.create(any())).thenReturn(client);
+		final BulkUpdateParameters params = createBulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		tempFolder.newFile("report1.xml");
+		final FilePath workspace = new FilePath(tempFolder.getRoot());
+		final PangolinRemoteExecutor firstExecutor = new PangolinRemoteExecutor(workspace, params, listener, clientFactory);
+		firstExecutor.setSkipUnchangedUploads(null);
+		final PangolinUploadResult first = firstExecutor.upload(new JenkinsBuildLogger(listener));
+		assertFalse(first.isSkipped());
+		assertEquals("url", first.getRunUrl());
+
+		final PangolinRemoteExecutor secondExecutor = new PangolinRemoteExecutor(workspace, params, listener, clientFactory);
+		secondExecutor.setSkipUnchangedUploads(first.getManifest());
+		final PangolinUploadResult second = secondExecutor.upload(new JenkinsBuildLogger(listener));
+		assertTrue(second.isSkipped());
+		assertEquals(first.getManifest(), second.getManifest());
+		verify(client, times(1)).sendResultsToTestrail(any(), any(), any());
+		verify(log).println("Pangolin: Report files matching **/*.xml have not changed since the previous successful build, upload is skipped");
+		// each upload scans the workspace once
+		verify(log, times(2)).println(startsWith("Pangolin: Found 1 report file(s) matching **/*.xml"));
+	}
+
+	@Test
+	public void uploadArchiveEntriesWithSameNameTest() throws Exception {
+		final PangolinClientFactory clientFactory = mock(PangolinClientFactory.class);
+		final PangolinClient client = mock(PangolinClient.class);
+		final List<String> uploadedFiles = new ArrayList<>();
+		when(client.sendResultsToTestrail(any(), any(), any())).then(a -> {
+			for (final File file : a.<List<File>> getArgument(1)) {
+				uploadedFiles.add(file.getPath());
+			}
+			return new UploadResponse(Arrays.asList(new RunInfo(1, "url")));
+		});
+		when(clientFactory.create(any())).thenReturn(client);
+		final BulkUpdateParameters params = createBulkUpdateParametersImpl();
+		params.setResultPattern("**/*.xml");
+		writeZip(new File(tempFolder.getRoot(), "a.zip"), "junit/TEST-a.xml");
+		writeZip(new File(tempFolder.getRoot(), "b.zip"), "junit/TEST-a.xml");
+		final PangolinRemoteExecutor executor = new PangolinRemoteExecutor(new FilePath(tempFolder.getRoot()), params, listener, clientFactory);
+		executor.setReadArchives(true);
+		executor.setCompactReports(true);
+		executor.setSkipUnchangedUploads(null);
+		final PangolinUploadResult result = executor.upload(new JenkinsBuildLogger(listener));
+		assertEquals(2, new HashSet<>(uploadedFiles).size());
+		assertEquals(Arrays.asList("a.zip/junit/TEST-a.xml", "b.zip/junit/TEST-a.xml"), new ArrayList<>(result.getManifest().getHashes().keySet()));
+		assertEquals(new HashSet<>(Arrays.asList("a.zip/junit/TEST-a.xml", "b.zip/junit/TEST-a.xml")), executor.getUploadedFiles());
+	}
+
+	private static void writeZip(final File archive, final String entryName) throws IOException {
+		try (final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+			zip.putNextEntry(new ZipEntry(entryName));
+			zip.write("<testsuite name=\"s\"/>".getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+	}
+
 	private BulkUpdateParameters createBulkUpdateParametersImpl() {
 		final BulkUpdateParameters params = new BulkUpdateParametersImpl();
 		params.setReportFormat("JUNIT");
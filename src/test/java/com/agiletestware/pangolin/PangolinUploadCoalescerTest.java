@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParametersImpl;
+
+/**
+ * Tests for {@link PangolinUploadCoalescer}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinUploadCoalescerTest {
+
+	private static final long LONG_WINDOW = 60000;
+	private final List<String> uploads = Collections.synchronizedList(new ArrayList<>());
+	private final PangolinUploadCoalescer coalescer = new PangolinUploadCoalescer();
+
+	@Test(timeout = 10000)
+	public void mergeUploadsIntoSameRun() throws Exception {
+		final CompletableFuture<PangolinUploadCoalescer.Result> first = coalescer.submit(createParameters("run", "a/*.xml"), "job#1",
+				createUploader("a", 42), LONG_WINDOW, Arrays.asList("job#2"));
+		final CompletableFuture<PangolinUploadCoalescer.Result> other = coalescer.submit(createParameters("other", "c/*.xml"), "job#1",
+				createUploader("c", 7), LONG_WINDOW, Collections.emptyList());
+		assertEquals("url 7", other.get().getUploadResult().getRunUrl());
+		assertEquals(1, other.get().getMergedUploads());
+		assertFalse(first.isDone());
+		final CompletableFuture<PangolinUploadCoalescer.Result> second = coalescer.submit(createParameters("run", "b/*.xml"), "job#2",
+				createUploader("b", 0), LONG_WINDOW, Arrays.asList("job#1"));
+		assertEquals("url 42", first.get().getUploadResult().getRunUrl());
+		assertEquals("url 42", second.get().getUploadResult().getRunUrl());
+		assertEquals(2, first.get().getMergedUploads());
+		assertEquals(2, second.get().getMergedUploads());
+		assertTrue(uploads.containsAll(Arrays.asList("c 0 last", "a 0", "b 42 last")));
+		assertEquals(3, uploads.size());
+	}
+
+	@Test(timeout = 10000)
+	public void windowEndsAfterTimeout() throws Exception {
+		final CompletableFuture<PangolinUploadCoalescer.Result> future = coalescer.submit(createParameters("run", "a/*.xml"), "job#1",
+				createUploader("a", 42), 100, Arrays.asList("job#2"));
+		assertEquals("url 42", future.get().getUploadResult().getRunUrl());
+		assertEquals(Arrays.asList("a 0 last"), uploads);
+	}
+
+	@Test(timeout = 10000)
+	public void failedUploadDoesNotStopGroup() throws Exception {
+		final CompletableFuture<PangolinUploadCoalescer.Result> failed = coalescer.submit(createParameters("run", "a/*.xml"), "job#1",
+				(testRunId, lastUpload) -> {
+					throw new IOException("502 Bad Gateway");
+				}, LONG_WINDOW, Arrays.asList("job#2"));
+		final CompletableFuture<PangolinUploadCoalescer.Result> second = coalescer.submit(createParameters("run", "b/*.xml"), "job#2",
+				createUploader("b", 42), LONG_WINDOW, Collections.emptyList());
+		try {
+			failed.get();
+		} catch (final ExecutionException ex) {
+			assertEquals("502 Bad Gateway", ex.getCause().getMessage());
+		}
+		assertTrue(failed.isCompletedExceptionally());
+		assertEquals("url 42", second.get().getUploadResult().getRunUrl());
+		assertEquals(Arrays.asList("b 0 last"), uploads);
+	}
+
+	@Test(timeout = 10000)
+	public void unknownRunsWaitForTimeout() throws Exception {
+		final CompletableFuture<PangolinUploadCoalescer.Result> first = coalescer.submit(createParameters("run", "a/*.xml"), "folder/job#1",
+				createUploader("a", 42), 200, null);
+		final CompletableFuture<PangolinUploadCoalescer.Result> second = coalescer.submit(createParameters("run", "b/*.xml"), "other#3",
+				createUploader("b", 0), 200, Collections.emptyList());
+		assertFalse(second.isDone());
+		assertEquals("url 42", first.get().getUploadResult().getRunUrl());
+		assertEquals("url 42", second.get().getUploadResult().getRunUrl());
+		assertEquals(Arrays.asList("a 0", "b 42 last"), uploads);
+	}
+
+	@Test
+	public void getJobs() {
+		final String key = PangolinUploadCoalescer.createKey(createParameters("run", "a/*.xml"));
+		assertNull(coalescer.getJobs(key));
+		coalescer.submit(createParameters("run", "a/*.xml"), "folder/job#1", createUploader("a", 42), LONG_WINDOW, Arrays.asList("other#3"));
+		coalescer.submit(createParameters("run", "b/*.xml"), "other#3", createUploader("b", 0), LONG_WINDOW, Collections.emptyList());
+		assertEquals(new HashSet<>(Arrays.asList("folder/job", "other")), coalescer.getJobs(key));
+	}
+
+	@Test
+	public void keyIgnoresReportSettings() {
+		final BulkUpdateParameters otherFormat = createParameters("run", "b/*.xml");
+		otherFormat.setReportFormat("NUNIT");
+		otherFormat.setTestPath("Master\\Other");
+		assertEquals(PangolinUploadCoalescer.createKey(createParameters("run", "a/*.xml")), PangolinUploadCoalescer.createKey(otherFormat));
+		final BulkUpdateParameters closing = createParameters("run", "a/*.xml");
+		closing.setCloseRun(true);
+		assertFalse(PangolinUploadCoalescer.createKey(createParameters("run", "a/*.xml")).equals(PangolinUploadCoalescer.createKey(closing)));
+	}
+
+	/**
+	 * Creates uploader which records its call and returns the given id of
+	 * the test run, or the id passed by the coalescer if the given one is 0.
+	 */
+	private PangolinUploadCoalescer.Uploader createUploader(final String name, final int createdRunId) {
+		return (testRunId, lastUpload) -> {
+			uploads.add(name + " " + testRunId + (lastUpload ? " last" : ""));
+			final int runId = testRunId > 0 ? testRunId : createdRunId;
+			return PangolinUploadResult.success("url " + runId, null, runId);
+		};
+	}
+
+	private static BulkUpdateParameters createParameters(final String testRun, final String resultPattern) {
+		final BulkUpdateParameters params = new BulkUpdateParametersImpl();
+		params.setPangolinUrl("http://localhost:9090");
+		params.setProject("project");
+		params.setTestPlan("plan");
+		params.setTestRun(testRun);
+		params.setResultPattern(resultPattern);
+		params.setReportFormat("JUNIT");
+		return params;
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PangolinUploadScheduler}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinUploadSchedulerTest {
+
+	private final PangolinUploadScheduler scheduler = new PangolinUploadScheduler();
+	private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+	@Test(timeout = 10000)
+	public void fairQueuing() throws Exception {
+		final PangolinUploadScheduler.Permit first = scheduler.acquire("A", 1);
+		final CountDownLatch done = new CountDownLatch(4);
+		final List<Thread> threads = new ArrayList<>();
+		for (final String name : new String[] { "A1", "A2", "A3", "B1" }) {
+			threads.add(startUpload(name, done));
+			waitForQueueDepth(threads.size());
+		}
+		assertEquals(1, scheduler.getRunning());
+		first.close();
+		done.await();
+		assertEquals(Collections.emptyList(), threadsAlive(threads));
+		assertEquals(Arrays.asList("A1", "B1", "A2", "A3"), order);
+		assertEquals(0, scheduler.getRunning());
+		assertEquals(0, scheduler.getQueueDepth());
+	}
+
+	@Test(timeout = 10000)
+	public void noLimit() throws Exception {
+		final PangolinUploadScheduler.Permit first = scheduler.acquire("A", 0);
+		final PangolinUploadScheduler.Permit second = scheduler.acquire("A", 0);
+		assertEquals(2, scheduler.getRunning());
+		first.close();
+		first.close();
+		second.close();
+		assertEquals(0, scheduler.getRunning());
+	}
+
+	@Test(timeout = 10000)
+	public void interruptedWhileWaiting() throws Exception {
+		final PangolinUploadScheduler.Permit first = scheduler.acquire("A", 1);
+		final Thread thread = startUpload("A1", new CountDownLatch(1));
+		waitForQueueDepth(1);
+		thread.interrupt();
+		thread.join();
+		assertEquals(0, scheduler.getQueueDepth());
+		first.close();
+		assertEquals(0, scheduler.getRunning());
+		assertFalse(order.contains("A1"));
+	}
+
+	private Thread startUpload(final String name, final CountDownLatch done) {
+		final Thread thread = new Thread(() -> {
+			try (final PangolinUploadScheduler.Permit permit = scheduler.acquire(name.substring(0, 1), 1)) {
+				order.add(name);
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} finally {
+				done.countDown();
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private void waitForQueueDepth(final int depth) throws InterruptedException {
+		while (scheduler.getQueueDepth() != depth) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static List<Thread> threadsAlive(final List<Thread> threads) throws InterruptedException {
+		final List<Thread> alive = new ArrayList<>();
+		for (final Thread thread : threads) {
+			thread.join(1000);
+			if (thread.isAlive()) {
+				alive.add(thread);
+			}
+		}
+		return alive;
+	}
+}
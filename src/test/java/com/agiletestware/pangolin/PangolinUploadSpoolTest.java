@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.agiletestware.pangolin.PangolinUploadSpool.ReportSettings;
+import com.agiletestware.pangolin.PangolinUploadSpool.SpooledUpload;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParametersImpl;
+import com.agiletestware.pangolin.encryption.CustomSecret;
+
+import hudson.FilePath;
+
+/**
+ * Tests for {@link PangolinUploadSpool}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class PangolinUploadSpoolTest {
+
+	private static final ReportSettings SETTINGS = new ReportSettings(false, false, false, false);
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+	private File workspace;
+	private PangolinUploadSpool spool;
+
+	@Before
+	public void setUp() throws IOException {
+		workspace = tempFolder.newFolder("workspace");
+		final CustomSecret customSecret = mock(CustomSecret.class);
+		when(customSecret.getEncryptedValue("password")).thenReturn("encrypted");
+		when(customSecret.getPlainText("encrypted")).thenReturn("password");
+		spool = new PangolinUploadSpool(tempFolder.newFolder("spool"), customSecret);
+	}
+
+	@Test
+	public void addAndRead() throws Exception {
+		writeReport("reports/report1.xml", 10);
+		writeReport("other.txt", 10);
+		final SpooledUpload upload = spool.add(createParameters(), SETTINGS, "job#1", new FilePath(workspace), 1024);
+
+		final List<SpooledUpload> uploads = spool.list();
+		assertEquals(1, uploads.size());
+		assertEquals(upload.getName(), uploads.get(0).getName());
+		assertTrue(new File(upload.getReportsDir(), "reports/report1.xml").isFile());
+		assertFalse(new File(upload.getReportsDir(), "other.txt").exists());
+		final ResolvedBulkUpdateParameters params = upload.getParameters();
+		assertEquals("password", params.getTestRailEncryptedPassword());
+		assertEquals("project", params.getProject());
+		assertEquals("job#1", upload.getRunId());
+		final String request = new String(Files.readAllBytes(new File(upload.getReportsDir().getParentFile(), PangolinUploadSpool.REQUEST_FILE_NAME)
+				.toPath()), StandardCharsets.UTF_8);
+		assertFalse(request.contains(">password<"));
+		assertEquals(1, upload.incrementAttempts());
+		assertEquals(2, upload.incrementAttempts());
+
+		spool.remove(upload);
+		assertTrue(spool.list().isEmpty());
+	}
+
+	@Test
+	public void addSkipsUploadedFiles() throws Exception {
+		writeReport("reports/report1.xml", 10);
+		writeReport("reports/report2.xml", 10);
+		final SpooledUpload upload = spool.add(createParameters(), SETTINGS, "job#1", new FilePath(workspace),
+				new HashSet<>(Arrays.asList("reports/report1.xml", "../" + PangolinUploadSpool.REQUEST_FILE_NAME)), 7, 1024);
+
+		assertFalse(new File(upload.getReportsDir(), "reports/report1.xml").exists());
+		assertTrue(new File(upload.getReportsDir(), "reports/report2.xml").isFile());
+		assertEquals(7, upload.getParameters().getTestRunId());
+
+		assertEquals(1, upload.incrementAttempts(Collections.singleton("reports/report2.xml"), 8));
+		assertFalse(new File(upload.getReportsDir(), "reports/report2.xml").exists());
+		assertEquals(8, upload.getParameters().getTestRunId());
+	}
+
+	@Test
+	public void addKeepsReportSettings() throws Exception {
+		writeReport("reports/report1.xml", 10);
+		writeReport("reports/archive/results.zip", 10);
+		writeReport("reports/archive/other.txt", 10);
+		final BulkUpdateParameters params = createParameters();
+		params.setResultPattern("reports/**/*.xml");
+		final SpooledUpload upload = spool.add(params, new ReportSettings(true, false, true, true), "job#1", new FilePath(workspace), 1024);
+
+		assertTrue(new File(upload.getReportsDir(), "reports/report1.xml").isFile());
+		assertTrue(new File(upload.getReportsDir(), "reports/archive/results.zip").isFile());
+		assertFalse(new File(upload.getReportsDir(), "reports/archive/other.txt").exists());
+		final PangolinRemoteExecutor executor = mock(PangolinRemoteExecutor.class);
+		spool.list().get(0).getSettings().apply(executor);
+		verify(executor).setCompactReports(true);
+		verify(executor).setBundleReports(false);
+		verify(executor).setReadArchives(true);
+		verify(executor).setParallelScan(true);
+	}
+
+	@Test
+	public void addWithAllFilesUploaded() throws Exception {
+		writeReport("reports/report1.xml", 10);
+		assertNull(spool.add(createParameters(), SETTINGS, "job#1", new FilePath(workspace), Collections.singleton("reports/report1.xml"), 7, 1024));
+		assertTrue(spool.list().isEmpty());
+	}
+
+	@Test
+	public void addWithoutReports() throws Exception {
+		assertNull(spool.add(createParameters(), SETTINGS, "job#1", new FilePath(workspace), 1024));
+		assertTrue(spool.list().isEmpty());
+	}
+
+	@Test
+	public void evictOldest() throws Exception {
+		writeReport("reports/report1.xml", 600);
+		final SpooledUpload first = spool.add(createParameters(), SETTINGS, "job#1", new FilePath(workspace), 4096);
+		Thread.sleep(5);
+		final SpooledUpload second = spool.add(createParameters(), SETTINGS, "job#2", new FilePath(workspace), 4096);
+		Thread.sleep(5);
+		final SpooledUpload third = spool.add(createParameters(), SETTINGS, "job#3", new FilePath(workspace), size(first) + size(second) + 100);
+
+		final List<SpooledUpload> uploads = spool.list();
+		assertEquals(2, uploads.size());
+		assertEquals(second.getName(), uploads.get(0).getName());
+		assertEquals(third.getName(), uploads.get(1).getName());
+	}
+
+	@Test
+	public void uploadLargerThanSpoolIsNotSpooled() throws Exception {
+		writeReport("reports/report1.xml", 2048);
+		assertNull(spool.add(createParameters(), SETTINGS, "job#1", new FilePath(workspace), 1024));
+		assertTrue(spool.list().isEmpty());
+	}
+
+	private void writeReport(final String path, final int size) throws IOException {
+		final File file = new File(workspace, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), new byte[size]);
+	}
+
+	private static long size(final SpooledUpload upload) {
+		final File dir = upload.getReportsDir().getParentFile();
+		return new File(dir, PangolinUploadSpool.REQUEST_FILE_NAME).length() + new File(upload.getReportsDir(), "reports/report1.xml").length();
+	}
+
+	private static BulkUpdateParameters createParameters() {
+		final BulkUpdateParameters params = new BulkUpdateParametersImpl();
+		params.setPangolinUrl("http://localhost:9090");
+		params.setTestRailEncryptedPassword("password");
+		params.setProject("project");
+		params.setResultPattern("reports/*.xml");
+		params.setReportFormat("JUNIT");
+		return params;
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ReportBundler}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class ReportBundlerTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void split_byFileCount() throws Exception {
+		final File a = createReport("<testsuite/>");
+		final File b = createReport("<testsuite/>");
+		final File c = createReport("<testsuite/>");
+		assertEquals(Arrays.asList(Arrays.asList(a, b), Arrays.asList(c)), new ReportBundler(1000, 2).split(Arrays.asList(a, b, c)));
+	}
+
+	@Test
+	public void split_bySize() throws Exception {
+		final File small = createReport("<testsuite/>");
+		final File big = createReport("<testsuite name=\"a long name of the suite\"/>");
+		final File last = createReport("<testsuite/>");
+		assertEquals(Arrays.asList(Arrays.asList(small), Arrays.asList(big), Arrays.asList(last)),
+				new ReportBundler(30, 10).split(Arrays.asList(small, big, last)));
+	}
+
+	@Test
+	public void merge() throws Exception {
+		final File suite = createReport("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- comment -->\n"
+				+ "<testsuite name=\"a\"><testcase name=\"t1\"/></testsuite>\n");
+		final File suites = createReport("<testsuites>\n  <testsuite name=\"b\"><testcase name=\"t2\"><failure message=\"m\">&lt;trace</failure>"
+				+ "</testcase></testsuite>\n  <testsuite name=\"c\"/>\n</testsuites>");
+		final File target = tempFolder.newFile();
+		new ReportBundler(1000, 10).merge(Arrays.asList(suite, suites), target);
+		final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites>"
+				+ "<testsuite name=\"a\"><testcase name=\"t1\"></testcase></testsuite>"
+				+ "<testsuite name=\"b\"><testcase name=\"t2\"><failure message=\"m\">&lt;trace</failure></testcase></testsuite>"
+				+ "<testsuite name=\"c\"></testsuite></testsuites>";
+		assertEquals(expected, new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test(expected = XMLStreamException.class)
+	public void merge_notXml() throws Exception {
+		new ReportBundler(1000, 10).merge(Arrays.asList(createReport("<testsuite/>"), createReport("not xml")), tempFolder.newFile());
+	}
+
+	private File createReport(final String content) throws IOException {
+		final File file = tempFolder.newFile();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ReportCompactor}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class ReportCompactorTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final ReportCompactor compactor = new ReportCompactor(10);
+
+	@Test
+	public void compact_junit() throws Exception {
+		final String report = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+				+ "<testsuite name=\"suite\"><testcase name=\"a\">"
+				+ "<failure message=\"" + StringUtils.repeat("m", 20) + "\">" + StringUtils.repeat("t", 20) + "</failure>"
+				+ "<system-out>verbose <b>output</b></system-out></testcase>"
+				+ "<testcase name=\"b\"/><system-err>errors</system-err></testsuite>";
+		final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+				+ "<testsuite name=\"suite\"><testcase name=\"a\">"
+				+ "<failure message=\"mmmmmmmmmm...\">tttttttttt...</failure>"
+				+ "</testcase><testcase name=\"b\"></testcase></testsuite>";
+		assertEquals(expected, compact(report));
+	}
+
+	@Test
+	public void compact_nunit() throws Exception {
+		final String report = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+				+ "<test-run><test-case name=\"a\"><failure><message>short</message>"
+				+ "<stack-trace>" + StringUtils.repeat("s", 15) + "</stack-trace></failure>"
+				+ "<output>output</output></test-case></test-run>";
+		final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+				+ "<test-run><test-case name=\"a\"><failure><message>short</message>"
+				+ "<stack-trace>ssssssssss...</stack-trace></failure>"
+				+ "</test-case></test-run>";
+		assertEquals(expected, compact(report));
+	}
+
+	@Test(expected = XMLStreamException.class)
+	public void compact_notXml() throws Exception {
+		compact("not xml");
+	}
+
+	private String compact(final String report) throws IOException, XMLStreamException {
+		final File source = tempFolder.newFile();
+		Files.write(source.toPath(), report.getBytes(StandardCharsets.UTF_8));
+		final File target = tempFolder.newFile();
+		compactor.compact(source, target);
+		return new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8);
+	}
+}
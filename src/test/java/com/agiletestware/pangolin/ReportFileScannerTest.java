@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ReportFileScanner}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class ReportFileScannerTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Before
+	public void setUp() throws IOException {
+		for (final String path : new String[] { "build/test-results/a.xml", "build/test-results/sub/b.xml", "build/other/c.xml", "d.xml",
+				"build/test-results/e.txt", "src/build/test-results/f.xml", "node_modules/x/test-results/g.xml", ".git/h.xml" }) {
+			final File file = new File(tempFolder.getRoot(), path);
+			file.getParentFile().mkdirs();
+			assertTrue(file.createNewFile());
+		}
+	}
+
+	@Test
+	public void scanWithPrefix() throws IOException {
+		assertEquals(Arrays.asList("build/test-results/a.xml", "build/test-results/sub/b.xml"), scan("build/test-results/**/*.xml"));
+	}
+
+	@Test
+	public void scanAll() throws IOException {
+		assertEquals(Arrays.asList("build/other/c.xml", "build/test-results/a.xml", "build/test-results/sub/b.xml", "d.xml",
+				"src/build/test-results/f.xml"), scan("**/*.xml"));
+	}
+
+	@Test
+	public void scanSeveralPatterns() throws IOException {
+		assertEquals(Arrays.asList("build/test-results/a.xml", "d.xml", "src/build/test-results/f.xml"), scan("**/test-results/*.xml, d.xml"));
+		assertEquals(Arrays.asList("build/other/c.xml", "d.xml"), scan("build/other/*.xml d.xml"));
+	}
+
+	@Test
+	public void scanDirectoryPattern() throws IOException {
+		assertEquals(Arrays.asList("build/other/c.xml", "build/test-results/a.xml", "build/test-results/e.txt", "build/test-results/sub/b.xml"),
+				scan("build/"));
+	}
+
+	@Test
+	public void scanHeavyDirectoryNamedInPattern() throws IOException {
+		assertEquals(Arrays.asList("node_modules/x/test-results/g.xml"), scan("node_modules/**/*.xml"));
+	}
+
+	@Test
+	public void shouldVisitDirectory() {
+		final ReportFileScanner scanner = new ReportFileScanner("build/test-results/**/*.xml");
+		assertTrue(scanner.shouldVisitDirectory("build"));
+		assertTrue(scanner.shouldVisitDirectory(path("build/test-results/sub")));
+		assertFalse(scanner.shouldVisitDirectory("src"));
+		assertFalse(scanner.shouldVisitDirectory(path("build/other")));
+		assertFalse(new ReportFileScanner("**/*.xml").shouldVisitDirectory(".git"));
+	}
+
+	@Test
+	public void scanParallel() throws IOException {
+		for (final String pattern : new String[] { "build/test-results/**/*.xml", "**/*.xml", "build/", "**/test-results/*.xml, d.xml" }) {
+			final ReportFileScanner scanner = new ReportFileScanner(pattern);
+			final List<File> sequential = scanner.scan(tempFolder.getRoot(), false);
+			final int directoriesVisited = scanner.getDirectoriesVisited();
+			assertEquals(sequential, scanner.scan(tempFolder.getRoot(), true));
+			assertEquals(directoriesVisited, scanner.getDirectoriesVisited());
+		}
+		final ReportFileScanner scanner = new ReportFileScanner("build/test-results/**/*.xml");
+		scanner.scan(tempFolder.getRoot(), true);
+		assertEquals(4, scanner.getDirectoriesVisited());
+	}
+
+	@Test(expected = IOException.class)
+	public void scanMissingDirectory() throws IOException {
+		new ReportFileScanner("*.xml").scan(new File(tempFolder.getRoot(), "missing"));
+	}
+
+	private List<String> scan(final String pattern) throws IOException {
+		final List<String> paths = new ArrayList<>();
+		for (final File file : new ReportFileScanner(pattern).scan(tempFolder.getRoot())) {
+			paths.add(tempFolder.getRoot().toURI().relativize(file.toURI()).getPath());
+		}
+		return paths;
+	}
+
+	private static String path(final String path) {
+		return path.replace('/', File.separatorChar);
+	}
+}
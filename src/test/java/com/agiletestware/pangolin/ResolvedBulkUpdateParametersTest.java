@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.junit.Test;
+
+import com.agiletestware.pangolin.client.upload.BulkUpdateParameters;
+import com.agiletestware.pangolin.client.upload.BulkUpdateParametersImpl;
+
+import hudson.EnvVars;
+
+/**
+ * Tests for {@link ResolvedBulkUpdateParameters}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class ResolvedBulkUpdateParametersTest {
+
+	@Test
+	public void resolve() {
+		final BulkUpdateParameters params = new BulkUpdateParametersImpl();
+		params.setPangolinUrl("http://${HOST}:9090");
+		params.setTestRailUrl("http://${HOST}/testrail");
+		params.setTestRailUser("${USER}");
+		params.setTestRailEncryptedPassword("${PASSWORD}");
+		params.setProject("${PROJECT}");
+		params.setTestPath("master\\${BUILD_NUMBER}");
+		params.setTestRun("run ${BUILD_NUMBER}");
+		params.setResultPattern("**/${BUILD_NUMBER}/*.xml");
+		params.setReportFormat("JUNIT");
+		params.setTimeOut(42);
+		params.setCloseRun(true);
+		final EnvVars envVars = new EnvVars("HOST", "server", "USER", "user", "PASSWORD", "pwd", "PROJECT", "proj", "BUILD_NUMBER", "17");
+
+		final ResolvedBulkUpdateParameters resolved = ResolvedBulkUpdateParameters.resolve(params, envVars);
+		envVars.put("BUILD_NUMBER", "18");
+
+		assertEquals("http://server:9090", resolved.getPangolinUrl());
+		assertEquals("http://server/testrail", resolved.getTestRailUrl());
+		assertEquals("user", resolved.getTestRailUser());
+		assertEquals("${PASSWORD}", resolved.getTestRailEncryptedPassword());
+		assertEquals("proj", resolved.getProject());
+		assertEquals("master\\17", resolved.getTestPath());
+		assertEquals("run 17", resolved.getTestRun());
+		assertEquals("**/17/*.xml", resolved.getResultPattern());
+		assertEquals("JUNIT", resolved.getReportFormat());
+		assertEquals(42, resolved.getTimeOut());
+		assertTrue(resolved.isCloseRun());
+		assertFalse(resolved.isDisableGrouping());
+	}
+
+	@Test
+	public void serialize() {
+		final BulkUpdateParameters params = new BulkUpdateParametersImpl();
+		params.setProject("${PROJECT}");
+		final ResolvedBulkUpdateParameters resolved = ResolvedBulkUpdateParameters.resolve(params, new EnvVars("PROJECT", "proj"));
+		final ResolvedBulkUpdateParameters copy = (ResolvedBulkUpdateParameters) SerializationUtils.clone(resolved);
+		assertEquals("proj", copy.getProject());
+	}
+
+	@Test
+	public void toStringDoesNotContainPassword() {
+		final BulkUpdateParameters params = new BulkUpdateParametersImpl();
+		params.setTestRailEncryptedPassword("secret");
+		params.setProject("proj");
+		final String value = ResolvedBulkUpdateParameters.resolve(params, new EnvVars()).toString();
+		assertFalse(value.contains("secret"));
+		assertTrue(value.contains("Project= proj"));
+	}
+}
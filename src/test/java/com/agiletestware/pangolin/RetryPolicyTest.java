@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RetryPolicy}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class RetryPolicyTest {
+
+	@Test
+	public void delayIsExponentialWithJitter() {
+		final RetryPolicy policy = new RetryPolicy(10, 1000, 10000);
+		for (int i = 0; i < 100; i++) {
+			assertBetween(500, 1000, policy.getDelayMillis(0));
+			assertBetween(1000, 2000, policy.getDelayMillis(1));
+			assertBetween(4000, 8000, policy.getDelayMillis(3));
+			assertBetween(5000, 10000, policy.getDelayMillis(4));
+			assertBetween(5000, 10000, policy.getDelayMillis(100));
+		}
+	}
+
+	@Test
+	public void none() {
+		assertEquals(0, RetryPolicy.NONE.getMaxRetries());
+		assertEquals(0, RetryPolicy.NONE.getDelayMillis(5));
+	}
+
+	@Test
+	public void isRetryable() {
+		assertTrue(RetryPolicy.isRetryable(new ConnectException("Connection refused")));
+		assertTrue(RetryPolicy.isRetryable(new SocketTimeoutException("Read timed out")));
+		assertTrue(RetryPolicy.isRetryable(new IllegalStateException("Upload failed", new ConnectException("Connection refused"))));
+		assertTrue(RetryPolicy.isRetryable(new SocketException("Connection reset")));
+		assertTrue(RetryPolicy.isRetryable(new UnknownHostException("pangolin")));
+		assertTrue(RetryPolicy.isRetryable(new HttpException(502)));
+		assertTrue(RetryPolicy.isRetryable(new RuntimeException("Upload failed", new HttpException(503))));
+		assertTrue(RetryPolicy.isRetryable(new HttpException(408)));
+		assertTrue(RetryPolicy.isRetryable(new HttpException(429)));
+		assertFalse(RetryPolicy.isRetryable(new HttpException(401)));
+		assertFalse(RetryPolicy.isRetryable(new HttpException(404)));
+		// status is not guessed from the message
+		assertFalse(RetryPolicy.isRetryable(new IllegalArgumentException("Project 500 not found")));
+		assertFalse(RetryPolicy.isRetryable(new RuntimeException("502 Bad Gateway")));
+		assertFalse(RetryPolicy.isRetryable(new IllegalStateException("Cannot find any file with pattern: *.xml")));
+		assertFalse(RetryPolicy.isRetryable(new IOException("Could not scan workspace")));
+		assertFalse(RetryPolicy.isRetryable(new RuntimeException("Upload failed", new FileNotFoundException("report.xml"))));
+		assertFalse(RetryPolicy.isRetryable(null));
+	}
+
+	/**
+	 * Exception of HTTP client with status code, like
+	 * <code>retrofit2.HttpException</code>.
+	 */
+	public static class HttpException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+		private final int code;
+
+		public HttpException(final int code) {
+			super("HTTP " + code);
+			this.code = code;
+		}
+
+		public int code() {
+			return code;
+		}
+	}
+
+	private static void assertBetween(final long min, final long max, final long actual) {
+		assertTrue(actual + " is not in [" + min + ", " + max + "]", actual >= min && actual <= max);
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2018 Agiletestware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.agiletestware.pangolin;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import hudson.tasks.test.TabulatedResult;
+import hudson.tasks.test.TestResult;
+
+/**
+ * Tests for {@link TestResultReportWriter}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class TestResultReportWriterTest {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void write() throws Exception {
+		final TabulatedResult root = mock(TabulatedResult.class);
+		final TabulatedResult classResult = mock(TabulatedResult.class);
+		when(classResult.getFullName()).thenReturn("com.example.SomeTest");
+		final TestResult passed = createCase(classResult, "passed", 0, 0, 1.5f);
+		final TestResult failed = createCase(classResult, "failed", 1, 0, 0.25f);
+		when(failed.getErrorDetails()).thenReturn("expected <1>");
+		when(failed.getErrorStackTrace()).thenReturn("java.lang.AssertionError");
+		final TestResult skipped = createCase(classResult, "skipped", 0, 1, 0);
+		doReturn(Arrays.asList(classResult)).when(root).getChildren();
+		doReturn(Arrays.asList(passed, failed, skipped)).when(classResult).getChildren();
+		final File target = tempFolder.newFile();
+		assertEquals(3, TestResultReportWriter.write(root, target));
+		final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><testsuites>"
+				+ "<testsuite name=\"com.example.SomeTest\" tests=\"3\" failures=\"1\" skipped=\"1\" time=\"1.750\">"
+				+ "<testcase classname=\"com.example.SomeTest\" name=\"passed\" time=\"1.500\"></testcase>"
+				+ "<testcase classname=\"com.example.SomeTest\" name=\"failed\" time=\"0.250\">"
+				+ "<failure message=\"expected &lt;1&gt;\">java.lang.AssertionError</failure></testcase>"
+				+ "<testcase classname=\"com.example.SomeTest\" name=\"skipped\" time=\"0.000\"><skipped/></testcase>"
+				+ "</testsuite></testsuites>";
+		assertEquals(expected, new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+	}
+
+	private static TestResult createCase(final TabulatedResult parent, final String name, final int failCount, final int skipCount,
+			final float duration) {
+		final TestResult testCase = mock(TestResult.class);
+		when(testCase.getParent()).thenReturn(parent);
+		when(testCase.getName()).thenReturn(name);
+		when(testCase.getFailCount()).thenReturn(failCount);
+		when(testCase.getSkipCount()).thenReturn(skipCount);
+		when(testCase.getDuration()).thenReturn(duration);
+		return testCase;
+	}
+}
@@ -11,10 +11,12 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.agiletestware.pangolin.EncryptedPasswordCache;
 import com.agiletestware.pangolin.GlobalConfigFactory;
 import com.agiletestware.pangolin.client.PangolinClient;
 import com.agiletestware.pangolin.client.PangolinClientFactory;
@@ -40,6 +42,11 @@ public class DefaultRunReportConfigurationFactoryTest {
 	private final PangolinClient client = mock(PangolinClient.class);
 	private final CustomSecret secret = mock(CustomSecret.class);
 
+	@Before
+	public void setUp() {
+		EncryptedPasswordCache.THE_INSTANCE.invalidateAll();
+	}
+
 	@Test
 	public void createWithUserPasswordFromGlobalConfig() throws Exception {
 		final StupidGlobalConfiguration globalConfig = new StupidGlobalConfiguration();
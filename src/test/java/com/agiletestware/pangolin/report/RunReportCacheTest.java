@@ -0,0 +1,135 @@
+package com.agiletestware.pangolin.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.agiletestware.pangolin.shared.model.report.RunReportConfiguration;
+
+/**
+ * Tests for {@link RunReportCache}.
+ *
+ * @author Sergey Oplavin
+ *
+ */
+public class RunReportCacheTest {
+
+	private final AtomicLong now = new AtomicLong(1000);
+	private final RunReportCache cache = new RunReportCache(10, now::get);
+	private final AtomicInteger runs = new AtomicInteger();
+
+	@Test
+	public void runReusesResultWithInterval() throws Exception {
+		final RunReportCache.Report report = cache.run(createConfig("url", "proj", "r1", "user"), 5, this::runReport);
+		assertEquals("report1", report.getReportUrl());
+		assertFalse(report.isReused());
+		now.addAndGet(9);
+		final RunReportCache.Report reused = cache.run(createConfig("url", "proj", "r1", "user"), 5, this::runReport);
+		assertEquals("report1", reused.getReportUrl());
+		assertTrue(reused.isReused());
+		now.addAndGet(1);
+		assertEquals("report2", cache.run(createConfig("url", "proj", "r1", "user"), 5, this::runReport).getReportUrl());
+	}
+
+	@Test
+	public void runWithoutIntervalDoesNotReuseResult() throws Exception {
+		assertEquals("report1", cache.run(createConfig("url", "proj", "r1", "user"), 0, this::runReport).getReportUrl());
+		final RunReportCache.Report report = cache.run(createConfig("url", "proj", "r1", "user"), 0, this::runReport);
+		assertEquals("report2", report.getReportUrl());
+		assertFalse(report.isReused());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void runDifferentConfigurations() throws Exception {
+		assertEquals("report1", cache.run(createConfig("url", "proj", "r1", "user"), 0, this::runReport).getReportUrl());
+		assertEquals("report2", cache.run(createConfig("url", "proj", "r1", "otherUser"), 0, this::runReport).getReportUrl());
+		assertEquals("report3", cache.run(createConfig("url", "proj", "r2", "user"), 0, this::runReport).getReportUrl());
+	}
+
+	@Test
+	public void runWithinInterval() throws Exception {
+		assertEquals("report1", cache.run(createConfig("url", "proj", "r1", "user"), 100, this::runReport).getReportUrl());
+		now.addAndGet(99);
+		final RunReportCache.Report reused = cache.run(createConfig("url", "proj", "r1", "otherUser"), 100, this::runReport);
+		assertEquals("report1", reused.getReportUrl());
+		assertTrue(reused.isReused());
+		assertEquals("report2", cache.run(createConfig("url", "otherProj", "r1", "user"), 100, this::runReport).getReportUrl());
+		now.addAndGet(1);
+		assertEquals("report3", cache.run(createConfig("url", "proj", "r1", "otherUser"), 100, this::runReport).getReportUrl());
+	}
+
+	@Test
+	public void runRemovesExpired() throws Exception {
+		cache.run(createConfig("url", "proj", "r1", "user"), 100, this::runReport);
+		now.addAndGet(100);
+		cache.run(createConfig("url", "proj", "r2", "user"), 0, this::runReport);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void runFailedIsNotCached() throws Exception {
+		try {
+			cache.run(createConfig("url", "proj", "r1", "user"), 100, () -> {
+				throw new IllegalStateException("Pangolin is down");
+			});
+			fail("Exception expected");
+		} catch (final IllegalStateException ex) {
+			assertEquals("Pangolin is down", ex.getMessage());
+		}
+		assertEquals(0, cache.size());
+		assertEquals("report1", cache.run(createConfig("url", "proj", "r1", "user"), 100, this::runReport).getReportUrl());
+	}
+
+	@Test
+	public void runConcurrentSingleFlight() throws Exception {
+		final int threads = 8;
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<RunReportCache.Report>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> cache.run(createConfig("url", "proj", "r1", "user"), 100, () -> {
+					started.countDown();
+					release.await(10, TimeUnit.SECONDS);
+					return runReport();
+				})));
+			}
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			release.countDown();
+			for (final Future<RunReportCache.Report> future : futures) {
+				assertEquals("report1", future.get(10, TimeUnit.SECONDS).getReportUrl());
+			}
+			assertEquals(1, runs.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private String runReport() {
+		return "report" + runs.incrementAndGet();
+	}
+
+	private static RunReportConfiguration createConfig(final String url, final String project, final String template, final String user) {
+		final RunReportConfiguration config = new RunReportConfiguration();
+		config.setUrl(url);
+		config.setProject(project);
+		config.setReportTemplateNameOrId(template);
+		config.setUser(user);
+		return config;
+	}
+}
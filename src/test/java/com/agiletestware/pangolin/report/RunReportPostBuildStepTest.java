@@ -1,15 +1,20 @@
 package com.agiletestware.pangolin.report;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -18,6 +23,7 @@ import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 
 import com.agiletestware.pangolin.GlobalConfigFactory;
+import com.agiletestware.pangolin.PangolinClientRegistry;
 import com.agiletestware.pangolin.client.PangolinClient;
 import com.agiletestware.pangolin.client.PangolinClientFactory;
 import com.agiletestware.pangolin.encryption.CustomSecret;
@@ -57,6 +63,7 @@ public class RunReportPostBuildStepTest {
 
 	@Before
 	public void beforeTest() throws Exception {
+		RunReportCache.THE_INSTANCE.invalidateAll();
 		when(listener.getLogger()).thenReturn(System.out);
 		when(pangolinClient.runReport(any(), any())).then(a -> {
 			final RunReportConfiguration config = a.getArgument(0);
@@ -65,6 +72,11 @@ public class RunReportPostBuildStepTest {
 		});
 	}
 
+	@After
+	public void afterTest() {
+		PangolinClientRegistry.THE_INSTANCE.clear();
+	}
+
 	@Test
 	public void perform_success() throws Exception {
 		globalConfig.setPangolinUrl("pangolin");
@@ -88,6 +100,75 @@ public class RunReportPostBuildStepTest {
 		assertEquals(Arrays.asList("r1", "r2"), action.getReportLinks());
 	}
 
+	@Test
+	public void perform_parallel() throws Exception {
+		setGlobalConfig();
+		final CountDownLatch running = new CountDownLatch(2);
+		when(pangolinClient.runReport(any(), any())).then(a -> {
+			final RunReportConfiguration config = a.getArgument(0);
+			final String templateName = config.getReportTemplateNameOrId();
+			running.countDown();
+			// each report waits until the other one is running too
+			assertTrue("Reports are not run in parallel", running.await(10, TimeUnit.SECONDS));
+			return new RunReportResponse(templateName, templateName, templateName);
+		});
+		final RunReportPostBuildStep step = new RunReportPostBuildStep(globalConfigFactory, pangolinClientFactory, secret, reportConfigFactory);
+		step.setTestRailProject("proj");
+		step.setReportTemplateIds("r1\nr2");
+		step.setMaxParallelReports(2);
+
+		step.perform(run, new FilePath(tempFolder.newFile()), launcher, listener);
+
+		final ArgumentCaptor<RunReportLinkAction> runReportLinkCaptor = ArgumentCaptor.forClass(RunReportLinkAction.class);
+		verify(run).addAction(runReportLinkCaptor.capture());
+		assertEquals(Arrays.asList("r1", "r2"), runReportLinkCaptor.getValue().getReportLinks());
+	}
+
+	@Test
+	public void perform_partialFailure_linksToSuccessfulReports() throws Exception {
+		setGlobalConfig();
+		when(pangolinClient.runReport(any(), any())).then(a -> {
+			final RunReportConfiguration config = a.getArgument(0);
+			final String templateName = config.getReportTemplateNameOrId();
+			if ("r2".equals(templateName)) {
+				throw new IllegalStateException("report failed");
+			}
+			return new RunReportResponse(templateName, templateName, templateName);
+		});
+		final RunReportPostBuildStep step = new RunReportPostBuildStep(globalConfigFactory, pangolinClientFactory, secret, reportConfigFactory);
+		step.setTestRailProject("proj");
+		step.setReportTemplateIds("r1\nr2\nr3");
+		step.setMaxParallelReports(3);
+
+		try {
+			step.perform(run, new FilePath(tempFolder.newFile()), launcher, listener);
+			fail("AbortException expected");
+		} catch (final AbortException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().contains("report failed"));
+		}
+		final ArgumentCaptor<RunReportLinkAction> runReportLinkCaptor = ArgumentCaptor.forClass(RunReportLinkAction.class);
+		verify(run).addAction(runReportLinkCaptor.capture());
+		assertEquals(Arrays.asList("r1", "r3"), runReportLinkCaptor.getValue().getReportLinks());
+	}
+
+	@Test
+	public void perform_reportInterval_reusesReport() throws Exception {
+		setGlobalConfig();
+		globalConfig.setReportInterval(10);
+		final RunReportPostBuildStep step = new RunReportPostBuildStep(globalConfigFactory, pangolinClientFactory, secret, reportConfigFactory);
+		step.setTestRailProject("proj");
+		step.setReportTemplateIds("r1");
+
+		step.perform(run, new FilePath(tempFolder.newFile()), launcher, listener);
+		step.setReportTemplateIds("r1\nr2");
+		step.perform(run, new FilePath(tempFolder.newFile()), launcher, listener);
+
+		verify(pangolinClient, times(2)).runReport(any(), any());
+		final ArgumentCaptor<RunReportLinkAction> runReportLinkCaptor = ArgumentCaptor.forClass(RunReportLinkAction.class);
+		verify(run, times(2)).addAction(runReportLinkCaptor.capture());
+		assertEquals(Arrays.asList("r1", "r2"), runReportLinkCaptor.getValue().getReportLinks());
+	}
+
 	@Test
 	public void perform_emptyGlobalConfig_error() throws Exception {
 		expected.expect(AbortException.class);
@@ -160,6 +241,13 @@ public class RunReportPostBuildStepTest {
 		new RunReportPostBuildStep(globalConfigFactory, pangolinClientFactory, secret, null);
 	}
 
+	private void setGlobalConfig() {
+		globalConfig.setPangolinUrl("pangolin");
+		globalConfig.setTestRailPassword("pwd");
+		globalConfig.setTestRailUrl("trUrl");
+		globalConfig.setTestRailUserName("user");
+	}
+
 	private RunReportConfiguration createConfig(final String url, final String user, final String password, final String project,
 			final String reportTemplateNameOrId) {
 		final RunReportConfiguration expectedConfig = new RunReportConfiguration();
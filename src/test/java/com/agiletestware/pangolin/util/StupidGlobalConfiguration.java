@@ -9,6 +9,16 @@ public class StupidGlobalConfiguration implements GlobalConfiguration {
 	private String testRailUserName;
 	private String testRailPassword;
 	private int uploadTimeOut;
+	private boolean spoolFailedUploads;
+	private int spoolMaxSize;
+	private int uploadRetries;
+	private int retryDelay;
+	private int circuitBreakerThreshold;
+	private int maxConcurrentUploads;
+	private int maxAsyncUploads;
+	private int coalescingWindow;
+	private boolean failFastWhenUnreachable;
+	private int reportInterval;
 
 	@Override
 	public String getPangolinUrl() {
@@ -35,6 +45,56 @@ public class StupidGlobalConfiguration implements GlobalConfiguration {
 		return uploadTimeOut;
 	}
 
+	@Override
+	public boolean isSpoolFailedUploads() {
+		return spoolFailedUploads;
+	}
+
+	@Override
+	public int getSpoolMaxSize() {
+		return spoolMaxSize;
+	}
+
+	@Override
+	public int getUploadRetries() {
+		return uploadRetries;
+	}
+
+	@Override
+	public int getRetryDelay() {
+		return retryDelay;
+	}
+
+	@Override
+	public int getCircuitBreakerThreshold() {
+		return circuitBreakerThreshold;
+	}
+
+	@Override
+	public int getMaxConcurrentUploads() {
+		return maxConcurrentUploads;
+	}
+
+	@Override
+	public int getMaxAsyncUploads() {
+		return maxAsyncUploads;
+	}
+
+	@Override
+	public int getCoalescingWindow() {
+		return coalescingWindow;
+	}
+
+	@Override
+	public boolean isFailFastWhenUnreachable() {
+		return failFastWhenUnreachable;
+	}
+
+	@Override
+	public int getReportInterval() {
+		return reportInterval;
+	}
+
 	public void setPangolinUrl(final String pangolinUrl) {
 		this.pangolinUrl = pangolinUrl;
 	}
@@ -55,4 +115,44 @@ public class StupidGlobalConfiguration implements GlobalConfiguration {
 		this.uploadTimeOut = uploadTimeOut;
 	}
 
+	public void setSpoolFailedUploads(final boolean spoolFailedUploads) {
+		this.spoolFailedUploads = spoolFailedUploads;
+	}
+
+	public void setSpoolMaxSize(final int spoolMaxSize) {
+		this.spoolMaxSize = spoolMaxSize;
+	}
+
+	public void setUploadRetries(final int uploadRetries) {
+		this.uploadRetries = uploadRetries;
+	}
+
+	public void setRetryDelay(final int retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+
+	public void setCircuitBreakerThreshold(final int circuitBreakerThreshold) {
+		this.circuitBreakerThreshold = circuitBreakerThreshold;
+	}
+
+	public void setMaxConcurrentUploads(final int maxConcurrentUploads) {
+		this.maxConcurrentUploads = maxConcurrentUploads;
+	}
+
+	public void setMaxAsyncUploads(final int maxAsyncUploads) {
+		this.maxAsyncUploads = maxAsyncUploads;
+	}
+
+	public void setCoalescingWindow(final int coalescingWindow) {
+		this.coalescingWindow = coalescingWindow;
+	}
+
+	public void setFailFastWhenUnreachable(final boolean failFastWhenUnreachable) {
+		this.failFastWhenUnreachable = failFastWhenUnreachable;
+	}
+
+	public void setReportInterval(final int reportInterval) {
+		this.reportInterval = reportInterval;
+	}
+
 }